@@ -36,6 +36,13 @@ android {
         checkReleaseBuilds = false
         ignoreWarnings = true
     }
+
+    // Benchmark classes are skipped unless run with ./gradlew test -Pbenchmarks
+    testOptions {
+        unitTests.all {
+            it.systemProperty("safetytrack.benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
 }
 
 dependencies {
@@ -43,6 +50,7 @@ dependencies {
     implementation("com.google.android.material:material:1.9.0")
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
     implementation("androidx.cardview:cardview:1.0.0")
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
 
     // Firebase
     implementation(platform("com.google.firebase:firebase-bom:32.2.0"))
@@ -57,4 +65,6 @@ dependencies {
 
     // Google Play Services
     implementation("com.google.android.gms:play-services-location:21.0.1")
+
+    testImplementation("junit:junit:4.13.2")
 }
\ No newline at end of file
@@ -2,17 +2,14 @@
 package com.safetytrack;
 
 import android.Manifest;
-import android.content.ContentResolver;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
 import android.os.Bundle;
-import android.provider.ContactsContract;
-import android.util.Log;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
-import android.widget.ListView;
+import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -21,31 +18,50 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.safetytrack.models.Contact;
+import com.safetytrack.utils.ContactRepository;
+import com.safetytrack.utils.ContactSearchIndex;
+import com.safetytrack.utils.DeviceContactLoader;
+import com.safetytrack.utils.EmergencyContactStore;
 import com.safetytrack.utils.FirebaseHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ContactsActivity extends AppCompatActivity {
     private static final String TAG = "ContactsActivity";
     private static final int CONTACTS_PERMISSION_REQUEST = 100;
+    private static final int MAX_SEARCH_RESULTS = 500;
 
-    private ListView listViewContacts;
+    private RecyclerView recyclerContacts;
     private Button btnSaveContacts;
     private ProgressBar progressBar;
     private TextView tvEmptyState;
+    private EditText etSearchContacts;
 
     private List<Contact> contactList;
     private Set<String> selectedContactsSet;
     private Map<String, Boolean> selectedStateMap; // ✅ Store selected state by phone number
     private ContactsAdapter contactsAdapter;
     private FirebaseHelper firebaseHelper;
+    private DeviceContactLoader contactLoader;
+
+    // Search: the index is rebuilt off the UI thread, queries reuse these buffers
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final int[] searchResults = new int[MAX_SEARCH_RESULTS];
+    private final List<Contact> searchMatches = new ArrayList<>(MAX_SEARCH_RESULTS);
+    private ContactSearchIndex searchIndex;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,6 +69,7 @@ public class ContactsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_contacts);
 
         firebaseHelper = new FirebaseHelper(this);
+        contactLoader = new DeviceContactLoader(this);
         initializeViews();
         initializeData();
         requestContactsPermission();
@@ -60,10 +77,15 @@ public class ContactsActivity extends AppCompatActivity {
     }
 
     private void initializeViews() {
-        listViewContacts = findViewById(R.id.listViewContacts);
+        recyclerContacts = findViewById(R.id.recyclerContacts);
+        recyclerContacts.setLayoutManager(new LinearLayoutManager(this));
+        recyclerContacts.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        contactsAdapter = new ContactsAdapter(this);
+        recyclerContacts.setAdapter(contactsAdapter);
         btnSaveContacts = findViewById(R.id.btnSaveContacts);
         progressBar = findViewById(R.id.progressBar);
         tvEmptyState = findViewById(R.id.tvEmptyState);
+        etSearchContacts = findViewById(R.id.etSearchContacts);
 
         progressBar.setVisibility(View.GONE);
         tvEmptyState.setVisibility(View.GONE);
@@ -73,25 +95,12 @@ public class ContactsActivity extends AppCompatActivity {
         contactList = new ArrayList<>();
         selectedContactsSet = new HashSet<>();
         selectedStateMap = new HashMap<>(); // ✅ Initialize
-
-        // Load previously selected contacts from SharedPreferences (temporary until Firestore loads)
-        SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        String savedContacts = prefs.getString("selectedContacts", "");
-
-        if (!savedContacts.isEmpty()) {
-            String[] contactsArray = savedContacts.split(",");
-            for (String contact : contactsArray) {
-                if (!contact.trim().isEmpty()) {
-                    selectedContactsSet.add(contact.trim());
-                }
-            }
-        }
     }
 
     private void requestContactsPermission() {
         if (ContextCompat.checkSelfPermission(this,
                 Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED) {
-            loadContactsFromFirestore();
+            loadSavedSelection();
         } else {
             ActivityCompat.requestPermissions(this,
                     new String[]{Manifest.permission.READ_CONTACTS},
@@ -104,7 +113,7 @@ public class ContactsActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == CONTACTS_PERMISSION_REQUEST) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                loadContactsFromFirestore();
+                loadSavedSelection();
             } else {
                 tvEmptyState.setVisibility(View.VISIBLE);
                 tvEmptyState.setText("Contacts permission is required to select emergency contacts");
@@ -113,115 +122,112 @@ public class ContactsActivity extends AppCompatActivity {
         }
     }
 
-    private void loadContactsFromFirestore() {
+    private void loadSavedSelection() {
+        // Selected state from the shared repository (live Firestore copy, or the local store offline)
+        selectedStateMap.clear();
+        for (Contact contact : ContactRepository.getInstance(this).getContacts()) {
+            if (contact.isSelected()) {
+                selectedStateMap.put(contact.getPhoneNumber(), true);
+                selectedContactsSet.add(contact.toString());
+            }
+        }
+
+        loadDeviceContacts();
+    }
+
+    private void loadDeviceContacts() {
         progressBar.setVisibility(View.VISIBLE);
+        contactList.clear();
 
-        firebaseHelper.loadContactsFromFirestore(new FirebaseHelper.FirebaseContactsListener() {
+        contactLoader.load(new DeviceContactLoader.Listener() {
             @Override
-            public void onSuccess(List<Contact> contacts) {
-                // ✅ Store selected state from Firestore contacts
-                selectedStateMap.clear();
-                for (Contact contact : contacts) {
-                    if (contact.isSelected()) {
-                        selectedStateMap.put(contact.getPhoneNumber(), true);
-                        selectedContactsSet.add(contact.toString());
+            public void onPage(List<Contact> page) {
+                for (Contact contact : page) {
+                    // ✅ Check if this contact was previously selected using phone number
+                    if (selectedStateMap.containsKey(contact.getPhoneNumber())
+                            || selectedContactsSet.contains(contact.toString())) {
+                        contact.setSelected(true);
                     }
                 }
-
-                // Load device contacts
-                loadDeviceContacts();
+                contactList.addAll(page);
+                applySearch(etSearchContacts.getText());
+                tvEmptyState.setVisibility(View.GONE);
             }
 
             @Override
-            public void onError(String error) {
-                Log.e(TAG, "Error loading contacts from Firestore: " + error);
-                progressBar.setVisibility(View.GONE);
-                // Still load device contacts even if Firestore fails
-                loadDeviceContacts();
+            public void onDelta(Set<String> removedContactIds, List<Contact> added) {
+                // Only changed rows are touched; untouched rows keep their selection as-is
+                contactList.removeIf(contact -> removedContactIds.contains(contact.getId()));
+                for (Contact contact : added) {
+                    if (selectedStateMap.containsKey(contact.getPhoneNumber())
+                            || selectedContactsSet.contains(contact.toString())) {
+                        contact.setSelected(true);
+                    }
+                    int index = Collections.binarySearch(contactList, contact, DeviceContactLoader.BY_NAME);
+                    contactList.add(index < 0 ? -index - 1 : index, contact);
+                }
+                applySearch(etSearchContacts.getText());
+                rebuildSearchIndex();
             }
-        });
-    }
 
-    private void loadDeviceContacts() {
-        ContentResolver contentResolver = getContentResolver();
-        Cursor cursor = contentResolver.query(
-                ContactsContract.Contacts.CONTENT_URI,
-                null,
-                null,
-                null,
-                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME + " ASC"
-        );
-
-        if (cursor != null && cursor.getCount() > 0) {
-            contactList.clear();
-
-            while (cursor.moveToNext()) {
-                String id = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts._ID));
-                String name = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts.DISPLAY_NAME));
-
-                if (Integer.parseInt(cursor.getString(cursor.getColumnIndexOrThrow(
-                        ContactsContract.Contacts.HAS_PHONE_NUMBER))) > 0) {
-
-                    Cursor phoneCursor = contentResolver.query(
-                            ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-                            null,
-                            ContactsContract.CommonDataKinds.Phone.CONTACT_ID + " = ?",
-                            new String[]{id},
-                            null
-                    );
-
-                    if (phoneCursor != null) {
-                        while (phoneCursor.moveToNext()) {
-                            String phoneNumber = phoneCursor.getString(phoneCursor.getColumnIndexOrThrow(
-                                    ContactsContract.CommonDataKinds.Phone.NUMBER));
-
-                            phoneNumber = formatPhoneNumber(phoneNumber);
-                            String contactInfo = name + "\n" + phoneNumber;
-
-                            Contact contact = new Contact(name, phoneNumber);
-                            contact.setRawContactInfo(contactInfo);
-
-                            // ✅ Check if this contact was previously selected using phone number
-                            if (selectedStateMap.containsKey(phoneNumber) || selectedContactsSet.contains(contactInfo)) {
-                                contact.setSelected(true);
-                            }
-
-                            contactList.add(contact);
-                        }
-                        phoneCursor.close();
-                    }
+            @Override
+            public void onComplete(int total) {
+                progressBar.setVisibility(View.GONE);
+                rebuildSearchIndex();
+                if (total == 0) {
+                    tvEmptyState.setVisibility(View.VISIBLE);
+                    tvEmptyState.setText("No contacts with phone numbers found");
                 }
             }
-            cursor.close();
 
-            if (contactList.isEmpty()) {
+            @Override
+            public void onError(String error) {
+                progressBar.setVisibility(View.GONE);
                 tvEmptyState.setVisibility(View.VISIBLE);
-                tvEmptyState.setText("No contacts with phone numbers found");
-            } else {
-                tvEmptyState.setVisibility(View.GONE);
-                contactsAdapter = new ContactsAdapter(this, contactList);
-                listViewContacts.setAdapter(contactsAdapter);
-                listViewContacts.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE);
+                tvEmptyState.setText("No contacts found on device");
             }
-        } else {
-            tvEmptyState.setVisibility(View.VISIBLE);
-            tvEmptyState.setText("No contacts found on device");
-        }
+        });
+    }
 
-        progressBar.setVisibility(View.GONE);
+    private void rebuildSearchIndex() {
+        List<Contact> snapshot = new ArrayList<>(contactList);
+        indexExecutor.execute(() -> {
+            ContactSearchIndex index = ContactSearchIndex.build(snapshot);
+            runOnUiThread(() -> {
+                searchIndex = index;
+                applySearch(etSearchContacts.getText());
+            });
+        });
     }
 
-    private String formatPhoneNumber(String phone) {
-        return phone.replaceAll("[^0-9+]", "");
+    private void applySearch(CharSequence query) {
+        if (query.length() == 0 || searchIndex == null) {
+            contactsAdapter.setContacts(contactList);
+            return;
+        }
+
+        int count = searchIndex.search(query, searchResults);
+        searchMatches.clear();
+        for (int i = 0; i < count; i++) {
+            searchMatches.add(searchIndex.get(searchResults[i]));
+        }
+        contactsAdapter.setContacts(searchMatches);
     }
 
     private void setupListeners() {
         btnSaveContacts.setOnClickListener(v -> saveSelectedContacts());
 
-        listViewContacts.setOnItemClickListener((parent, view, position, id) -> {
-            Contact contact = contactList.get(position);
-            contact.setSelected(!contact.isSelected());
-            contactsAdapter.notifyDataSetChanged();
+        etSearchContacts.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                applySearch(s);
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
         });
     }
 
@@ -230,21 +236,14 @@ public class ContactsActivity extends AppCompatActivity {
         btnSaveContacts.setEnabled(false);
 
         List<Contact> selectedContactsList = new ArrayList<>();
-        StringBuilder contactsBuilder = new StringBuilder();
-
         for (Contact contact : contactList) {
             if (contact.isSelected()) {
                 selectedContactsList.add(contact);
-                contactsBuilder.append(contact.toString()).append(",");
             }
         }
 
-        // Save to SharedPreferences (for backward compatibility)
-        SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        editor.putString("selectedContacts", contactsBuilder.toString());
-        editor.putString("emergencyContacts", contactsBuilder.toString());
-        editor.apply();
+        // Local copy for offline starts
+        EmergencyContactStore.getInstance(this).write(selectedContactsList);
 
         // ✅ Save to Firestore - NOW INCLUDES SELECTED STATE
         firebaseHelper.saveContactsToFirestore(selectedContactsList,
@@ -283,4 +282,11 @@ public class ContactsActivity extends AppCompatActivity {
                     }
                 });
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        contactLoader.cancel();
+        indexExecutor.shutdownNow();
+    }
+}
@@ -1,76 +1,137 @@
 //ContactsAdapter.java
 package com.safetytrack;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.CheckBox;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.safetytrack.models.Contact;
+import com.safetytrack.utils.PhoneNumberNormalizer;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ContactsAdapter extends BaseAdapter {
-    private List<Contact> contactList;
-    private LayoutInflater inflater;
+public class ContactsAdapter extends ListAdapter<Contact, ContactsAdapter.ViewHolder> {
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    // Selection lives on the Contact itself and is rebound through PAYLOAD_SELECTION,
+    // so the diff only compares what a row displays
+    private static final DiffUtil.ItemCallback<Contact> DIFF_CALLBACK = new DiffUtil.ItemCallback<Contact>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Contact oldItem, @NonNull Contact newItem) {
+            return oldItem == newItem || (equals(oldItem.getId(), newItem.getId())
+                    && equals(oldItem.getPhoneNumber(), newItem.getPhoneNumber()));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Contact oldItem, @NonNull Contact newItem) {
+            return equals(oldItem.getName(), newItem.getName())
+                    && equals(oldItem.getPhoneNumber(), newItem.getPhoneNumber())
+                    && oldItem.isSelected() == newItem.isSelected();
+        }
+
+        private boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    };
 
-    public ContactsAdapter(ContactsActivity context, List<Contact> contactList) {
-        this.contactList = contactList;
+    private final LayoutInflater inflater;
+    private final PhoneNumberNormalizer phoneNormalizer;
+
+    public ContactsAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.inflater = LayoutInflater.from(context);
+        this.phoneNormalizer = PhoneNumberNormalizer.getInstance(context);
+        setHasStableIds(true);
     }
 
-    @Override
-    public int getCount() {
-        return contactList.size();
+    // ListAdapter ignores a list it has already seen, so each update gets its own copy
+    public void setContacts(List<Contact> contacts) {
+        submitList(new ArrayList<>(contacts));
     }
 
-    @Override
-    public Object getItem(int position) {
-        return contactList.get(position);
+    public Contact getContact(int position) {
+        return getItem(position);
     }
 
+    // Stable id from the normalized number, mixed with the device contact id so the same
+    // number saved under two contacts still gets two rows
     @Override
     public long getItemId(int position) {
-        return position;
+        Contact contact = getItem(position);
+        String normalized = phoneNormalizer.normalize(contact.getPhoneNumber());
+        String key = normalized != null ? normalized : contact.getName();
+
+        long hash = 0xcbf29ce484222325L; // FNV-1a 64
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        if (contact.getId() != null) {
+            for (int i = 0; i < contact.getId().length(); i++) {
+                hash ^= contact.getId().charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
     }
 
+    @NonNull
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        ViewHolder holder;
-
-        if (convertView == null) {
-            convertView = inflater.inflate(R.layout.item_contact, parent, false);
-            holder = new ViewHolder();
-            holder.tvContactName = convertView.findViewById(R.id.tvContactName);
-            holder.tvContactPhone = convertView.findViewById(R.id.tvContactPhone);
-            holder.cbSelect = convertView.findViewById(R.id.cbSelect);
-            convertView.setTag(holder);
-        } else {
-            holder = (ViewHolder) convertView.getTag();
-        }
-
-        Contact contact = contactList.get(position);
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = inflater.inflate(R.layout.item_contact, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+
+        // Toggling redraws only the tapped row
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            Contact contact = getItem(position);
+            contact.setSelected(!contact.isSelected());
+            notifyItemChanged(position, PAYLOAD_SELECTION);
+        });
+        return holder;
+    }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Contact contact = getItem(position);
         holder.tvContactName.setText(contact.getName());
         holder.tvContactPhone.setText(contact.getPhoneNumber());
         holder.cbSelect.setChecked(contact.isSelected());
-
-        // Prevent checkbox from handling its own clicks (let the list item handle it)
-        holder.cbSelect.setClickable(false);
-        holder.cbSelect.setFocusable(false);
-
-        return convertView;
     }
 
-    public void notifyDataSetChanged() {
-        super.notifyDataSetChanged();
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            holder.cbSelect.setChecked(getItem(position).isSelected());
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
-    static class ViewHolder {
-        TextView tvContactName;
-        TextView tvContactPhone;
-        CheckBox cbSelect;
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvContactName;
+        final TextView tvContactPhone;
+        final CheckBox cbSelect;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tvContactName = itemView.findViewById(R.id.tvContactName);
+            tvContactPhone = itemView.findViewById(R.id.tvContactPhone);
+            cbSelect = itemView.findViewById(R.id.cbSelect);
+
+            // Prevent checkbox from handling its own clicks (let the row handle it)
+            cbSelect.setClickable(false);
+            cbSelect.setFocusable(false);
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,12 @@ import androidx.appcompat.widget.SwitchCompat;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.app.PendingIntent;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
+import android.content.ServiceConnection;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationManager;
@@ -18,12 +19,11 @@ import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
-import android.telephony.SmsManager;
 import android.telephony.TelephonyManager;
 import android.util.Log;
 import android.view.View;
@@ -38,6 +38,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Lifecycle;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
@@ -46,19 +47,24 @@ import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.safetytrack.models.Contact;
-import com.safetytrack.services.JourneyDetector;
+import com.safetytrack.services.AutoTrackService;
+import com.safetytrack.services.JourneyStarter;
+import com.safetytrack.services.LocationEngine;
 import com.safetytrack.services.LocationService;
+import com.safetytrack.services.VoiceSosService;
+import com.safetytrack.utils.CompactSmsEncoder;
+import com.safetytrack.utils.ContactRepository;
 import com.safetytrack.utils.FirebaseHelper;
 import com.safetytrack.utils.SessionManager;
+import com.safetytrack.utils.SmsDispatcher;
+import com.safetytrack.utils.SmsLedger;
+import com.safetytrack.utils.TripIds;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class DashboardActivity extends AppCompatActivity {
@@ -70,12 +76,12 @@ public class DashboardActivity extends AppCompatActivity {
     private static final int NOTIFICATION_PERMISSION_REQUEST = 1004;
     private static final int VOICE_PERMISSION_REQUEST = 1005;
     private static final long LOCATION_UPDATE_INTERVAL = 120000;
-    private static final float MIN_DISTANCE_CHANGE = 10;
+    private static final long MAX_CACHED_FIX_AGE = 30000;
 
     // UI Components
     private TextView tvStatus, tvLastUpdate, tvUserName, tvBatteryStatus, tvGpsStatus, tvInternetStatus, tvSimStatus;
     private TextView tvContactsCount, tvActiveTime, tvDistance, tvEmergencyMessage, tvSmsLength;
-    private TextView tvVoiceStatus;
+    private TextView tvVoiceStatus, tvDebugPanel;
     private Button btnStartStop, btnSelectContacts, btnTripHistory, btnLogout;
     private Button btnSafeArrival, btnManualUpdate;
     private SwitchCompat switchAutoTrack;
@@ -88,17 +94,21 @@ public class DashboardActivity extends AppCompatActivity {
     // Services
     private FusedLocationProviderClient fusedLocationClient;
     private FirebaseHelper firebaseHelper;
-    private JourneyDetector journeyDetector;
-    private LocationCallback locationCallback;
+    private SmsDispatcher smsDispatcher;
+    private final CompactSmsEncoder previewEncoder = new CompactSmsEncoder();
+    private LocationEngine locationEngine;
+    private LocationEngine.Subscriber locationSubscriber;
+    private LocationEngine.Subscription locationSubscription;
     private SessionManager sessionManager;
 
     // State variables
     private boolean isTracking = false;
     private boolean isJourneyActive = false;
     private long journeyStartTime = 0;
-    private double totalDistance = 0;
+    private boolean lowBatteryAlertSent = false;
     private Location lastLocation;
-    private List<Contact> emergencyContacts = new ArrayList<>();
+    private ContactRepository contactRepository;
+    private final ContactRepository.Listener contactsListener = contacts -> applyEmergencyContacts();
     private List<String> emergencyPhoneNumbers = new ArrayList<>();
     private Handler handler = new Handler(Looper.getMainLooper());
     private SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a, dd MMM", Locale.getDefault());
@@ -108,13 +118,14 @@ public class DashboardActivity extends AppCompatActivity {
     private Handler activeTimeHandler = new Handler(Looper.getMainLooper());
 
     // ========== NLP VOICE SOS RECOGNITION ==========
-    private SpeechRecognizer speechRecognizer;
-    private boolean isVoiceListening = false;
     private boolean isVoiceSOSAvailable = false;
+    private VoiceSosService boundVoiceSosService;
+    private boolean isVoiceSosBound = false;
 
     // ========== PERIODIC SMS HANDLER ==========
-    private Handler periodicSmsHandler = new Handler(Looper.getMainLooper());
-    private Runnable periodicSmsRunnable;
+    private String currentTripId;
+    private LocationService boundLocationService;
+    private boolean isServiceBound = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -126,14 +137,14 @@ public class DashboardActivity extends AppCompatActivity {
         initializeServices();
         setupListeners();
         loadUserInfo();
-        loadEmergencyContactsFromFirestore();
+        observeEmergencyContacts();
+        bindLocationService(); // connects only if a journey is already running
         setupLocationUpdates();
         startStatusIndicators();
         checkPermissions();
         checkVoiceRecognitionAvailability();
-
-        // UNCOMMENT TO TEST SMS WITHOUT LINK
-         testSmsWithoutLink();
+        bindVoiceSosService(); // connects only if Voice SOS is already running
+        handleVoiceSosIntent(getIntent());
     }
 
     private void initializeSession() {
@@ -165,6 +176,7 @@ public class DashboardActivity extends AppCompatActivity {
             tvDistance = findViewById(R.id.tvDistance);
             tvEmergencyMessage = findViewById(R.id.tvEmergencyMessage);
             tvSmsLength = findViewById(R.id.tvSmsLength);
+            tvDebugPanel = findViewById(R.id.tvDebugPanel);
 
             cardStatus = findViewById(R.id.cardStatus);
             cardContacts = findViewById(R.id.cardContacts);
@@ -196,8 +208,9 @@ public class DashboardActivity extends AppCompatActivity {
 
     private void initializeServices() {
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        locationEngine = LocationEngine.getInstance(this);
         firebaseHelper = new FirebaseHelper(this);
-        journeyDetector = new JourneyDetector(this);
+        smsDispatcher = SmsDispatcher.getInstance(this);
     }
 
     private void setupListeners() {
@@ -218,6 +231,8 @@ public class DashboardActivity extends AppCompatActivity {
         btnManualUpdate.setOnClickListener(v -> sendManualLocationUpdate());
         btnLogout.setOnClickListener(v -> logoutUser());
 
+        // Detection runs in AutoTrackService and outlives this screen; show its saved state
+        switchAutoTrack.setChecked(AutoTrackService.isEnabled(this));
         switchAutoTrack.setOnCheckedChangeListener((buttonView, isChecked) -> {
             if (isChecked) {
                 enableAutoTracking();
@@ -230,6 +245,16 @@ public class DashboardActivity extends AppCompatActivity {
             Intent intent = new Intent(this, ContactsActivity.class);
             startActivityForResult(intent, 100);
         });
+
+        cardContacts.setOnLongClickListener(v -> {
+            showDeliveryStatsDialog();
+            return true;
+        });
+
+        cardEmergency.setOnLongClickListener(v -> {
+            toggleCompactSms();
+            return true;
+        });
     }
 
     // ========== VOICE RECOGNITION AVAILABILITY CHECK ==========
@@ -245,187 +270,109 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
-    // ========== NLP VOICE SOS IMPLEMENTATION ==========
+    // ========== VOICE SOS SERVICE ==========
+    // VoiceSosService owns the microphone and recognizer; the dashboard binds only to show state
+    // and the SOS dialog
 
-    private void initVoiceSOS() {
-        if (!isVoiceSOSAvailable) {
-            Log.e(TAG, "❌ Cannot initialize Voice SOS");
-            return;
-        }
-
-        try {
-            if (speechRecognizer != null) {
-                speechRecognizer.destroy();
-                speechRecognizer = null;
+    private final VoiceSosService.Listener voiceSosListener = new VoiceSosService.Listener() {
+        @Override
+        public boolean onSosKeyword(String keyword, String spokenText, boolean partial) {
+            if (!getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+                return false; // the service falls back to its alert notification
             }
+            showVoiceSosDialog(spokenText);
+            return true;
+        }
 
-            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
-
-            if (speechRecognizer == null) {
-                Log.e(TAG, "❌ Failed to create SpeechRecognizer");
-                return;
-            }
-
-            speechRecognizer.setRecognitionListener(new RecognitionListener() {
-                @Override
-                public void onReadyForSpeech(Bundle params) {
-                    Log.d(TAG, "🎤 Voice SOS is READY and LISTENING...");
-                    runOnUiThread(() -> {
-                        updateVoiceStatus(true);
-                        Toast.makeText(DashboardActivity.this,
-                                "🎤 Voice SOS Active - Say HELP, DANGER, EMERGENCY",
-                                Toast.LENGTH_SHORT).show();
-                    });
-                }
-
-                @Override
-                public void onBeginningOfSpeech() {
-                    Log.d(TAG, "🎤 Speech detected");
-                }
-
-                @Override
-                public void onRmsChanged(float rmsdB) {}
-
-                @Override
-                public void onBufferReceived(byte[] buffer) {}
-
-                @Override
-                public void onEndOfSpeech() {
-                    Log.d(TAG, "🎤 Speech ended");
-                }
-
-                @Override
-                public void onError(int error) {
-                    String errorMessage = getErrorText(error);
-                    Log.e(TAG, "🎤 Speech error: " + errorMessage);
-                    isVoiceListening = false;
-                    updateVoiceStatus(false);
-
-                    if (isTracking && isVoiceSOSAvailable) {
-                        new Handler(Looper.getMainLooper()).postDelayed(() -> startVoiceListening(), 1000);
-                    }
-                }
-
-                @Override
-                public void onResults(Bundle results) {
-                    ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                    if (matches != null && matches.size() > 0) {
-                        String spokenText = matches.get(0).toLowerCase();
-                        Log.d(TAG, "🎤 USER SAID: \"" + spokenText + "\"");
-
-                        runOnUiThread(() -> {
-                            Toast.makeText(DashboardActivity.this,
-                                    "🎤 You said: \"" + spokenText + "\"",
-                                    Toast.LENGTH_SHORT).show();
-                        });
-
-                        // 🚨 NLP KEYWORD DETECTION - IMMEDIATE SOS 🚨
-                        if (spokenText.contains("help") ||
-                                spokenText.contains("danger") ||
-                                spokenText.contains("risk") ||
-                                spokenText.contains("emergency") ||
-                                spokenText.contains("sos") ||
-                                spokenText.contains("save me") ||
-                                spokenText.contains("accident") ||
-                                spokenText.contains("crash") ||
-                                spokenText.contains("attack") ||
-                                spokenText.contains("need assistance")) {
-
-                            Log.e(TAG, "🚨🚨🚨 SOS KEYWORD DETECTED! \"" + spokenText + "\" 🚨🚨🚨");
-
-                            runOnUiThread(() -> {
-                                new AlertDialog.Builder(DashboardActivity.this)
-                                        .setTitle("🚨🚨🚨 EMERGENCY SOS 🚨🚨🚨")
-                                        .setMessage("Voice keyword detected: \"" + spokenText + "\"\n\nSending emergency alert to all contacts!")
-                                        .setPositiveButton("SEND SOS", (dialog, which) -> triggerEmergency())
-                                        .setNegativeButton("Cancel", null)
-                                        .setIcon(android.R.drawable.ic_dialog_alert)
-                                        .show();
-                            });
-                        }
-                    }
-                    isVoiceListening = false;
-                    updateVoiceStatus(false);
-
-                    if (isTracking && isVoiceSOSAvailable) {
-                        startVoiceListening();
-                    }
-                }
-
-                @Override
-                public void onPartialResults(Bundle partialResults) {}
-
-                @Override
-                public void onEvent(int eventType, Bundle params) {}
-            });
-
-            Log.d(TAG, "🎤 Voice SOS initialized successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "🎤 Failed to initialize Voice SOS: " + e.getMessage());
+        @Override
+        public void onStateChanged(VoiceSosService.State state) {
+            updateVoiceStatus(state == VoiceSosService.State.GATING || state == VoiceSosService.State.RECOGNIZING);
+            updateDebugPanel();
+        }
+    };
+
+    private final ServiceConnection voiceSosConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            boundVoiceSosService = ((VoiceSosService.LocalBinder) service).getService();
+            boundVoiceSosService.addListener(voiceSosListener);
+            voiceSosListener.onStateChanged(boundVoiceSosService.getState());
+            Log.d(TAG, "🔗 Bound to VoiceSosService");
         }
-    }
 
-    private void startVoiceListening() {
-        if (!isTracking) {
-            Log.d(TAG, "🎤 Not listening - journey not active");
-            return;
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            boundVoiceSosService = null;
+            updateVoiceStatus(false);
         }
+    };
 
+    private void startVoiceSOS() {
         if (!isVoiceSOSAvailable) {
             Log.d(TAG, "🎤 Voice SOS not available");
             return;
         }
-
-        if (isVoiceListening) {
-            Log.d(TAG, "🎤 Already listening");
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.d(TAG, "🎤 Requesting audio permission");
+            requestAudioPermission();
             return;
         }
 
-        try {
-            if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
-                    != PackageManager.PERMISSION_GRANTED) {
-                Log.d(TAG, "🎤 Requesting audio permission");
-                requestAudioPermission();
-                return;
-            }
-
-            if (speechRecognizer == null) {
-                initVoiceSOS();
-                if (speechRecognizer == null) return;
-            }
-
-            Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-            intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, getPackageName());
-            intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 5);
-            intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+        VoiceSosService.start(this);
+        bindVoiceSosService();
+        Toast.makeText(this, "🎤 Voice SOS Active - Say HELP, DANGER, EMERGENCY", Toast.LENGTH_SHORT).show();
+    }
 
-            speechRecognizer.startListening(intent);
-            isVoiceListening = true;
-            updateVoiceStatus(true);
-            Log.d(TAG, "🎤 Voice SOS listening STARTED");
+    private void stopVoiceSOS() {
+        unbindVoiceSosService();
+        VoiceSosService.stop(this);
+        updateVoiceStatus(false);
+    }
 
-        } catch (SecurityException e) {
-            Log.e(TAG, "🎤 Missing RECORD_AUDIO permission");
-            requestAudioPermission();
-        } catch (Exception e) {
-            Log.e(TAG, "🎤 Error starting voice recognition: " + e.getMessage());
+    private void bindVoiceSosService() {
+        if (!isVoiceSosBound) {
+            isVoiceSosBound = bindService(new Intent(this, VoiceSosService.class), voiceSosConnection, 0);
         }
     }
 
-    private void stopVoiceListening() {
-        if (speechRecognizer != null) {
-            try {
-                speechRecognizer.stopListening();
-                isVoiceListening = false;
-                updateVoiceStatus(false);
-                Log.d(TAG, "🎤 Voice SOS listening STOPPED");
-            } catch (Exception e) {
-                Log.e(TAG, "🎤 Error stopping voice recognition: " + e.getMessage());
+    private void unbindVoiceSosService() {
+        if (isVoiceSosBound) {
+            if (boundVoiceSosService != null) {
+                boundVoiceSosService.removeListener(voiceSosListener);
+                boundVoiceSosService = null;
             }
+            unbindService(voiceSosConnection);
+            isVoiceSosBound = false;
         }
     }
 
+    private void showVoiceSosDialog(String spokenText) {
+        if (isFinishing() || isDestroyed()) return;
+        new AlertDialog.Builder(DashboardActivity.this)
+                .setTitle("🚨🚨🚨 EMERGENCY SOS 🚨🚨🚨")
+                .setMessage("Voice keyword detected: \"" + spokenText + "\"\n\nSending emergency alert to all contacts!")
+                .setPositiveButton("SEND SOS", (dialog, which) -> triggerEmergency())
+                .setNegativeButton("Cancel", null)
+                .setIcon(android.R.drawable.ic_dialog_alert)
+                .show();
+    }
+
+    // Opened from the service's alert notification while the dashboard was not bound
+    private void handleVoiceSosIntent(Intent intent) {
+        String spokenText = intent != null ? intent.getStringExtra(VoiceSosService.EXTRA_VOICE_SOS_TEXT) : null;
+        if (spokenText != null) {
+            intent.removeExtra(VoiceSosService.EXTRA_VOICE_SOS_TEXT);
+            showVoiceSosDialog(spokenText);
+        }
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        handleVoiceSosIntent(intent);
+    }
+
     private void updateVoiceStatus(boolean isListening) {
         if (tvVoiceStatus != null) {
             if (isListening) {
@@ -444,21 +391,6 @@ public class DashboardActivity extends AppCompatActivity {
                 VOICE_PERMISSION_REQUEST);
     }
 
-    private String getErrorText(int errorCode) {
-        switch (errorCode) {
-            case SpeechRecognizer.ERROR_AUDIO: return "Audio error";
-            case SpeechRecognizer.ERROR_CLIENT: return "Client error";
-            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS: return "Insufficient permissions";
-            case SpeechRecognizer.ERROR_NETWORK: return "Network error";
-            case SpeechRecognizer.ERROR_NETWORK_TIMEOUT: return "Network timeout";
-            case SpeechRecognizer.ERROR_NO_MATCH: return "No speech match";
-            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY: return "Recognizer busy";
-            case SpeechRecognizer.ERROR_SERVER: return "Server error";
-            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT: return "Speech timeout";
-            default: return "Unknown error: " + errorCode;
-        }
-    }
-
     // ========== SIM STATUS INDICATOR ==========
 
     private void updateSimStatus() {
@@ -486,45 +418,17 @@ public class DashboardActivity extends AppCompatActivity {
     private void updateSmsCharacterCount(String message) {
         if (tvSmsLength != null) {
             int length = message.length();
-            int smsCount = 1;
-            if (length > 160) {
-                smsCount = (int) Math.ceil(length / 153.0);
-            }
-            tvSmsLength.setText(length + "/" + (smsCount * 153) + " chars (" + smsCount + " SMS)");
+            int smsCount = CompactSmsEncoder.segmentCount(message);
+            tvSmsLength.setText(length + " chars (" + smsCount + " SMS"
+                    + (CompactSmsEncoder.isGsm7(message) ? ")" : ", unicode)"));
 
-            int color = length > 160 ?
+            int color = smsCount > 1 ?
                     ContextCompat.getColor(this, R.color.warning_orange) :
                     ContextCompat.getColor(this, R.color.success_green);
             tvSmsLength.setTextColor(color);
         }
     }
 
-    // ========== TEST METHOD - SMS WITHOUT LINK ==========
-    private void testSmsWithoutLink() {
-        String testNumber = "+919345048662"; // CHANGE THIS TO YOUR NUMBER
-        String testMessage = "✅ TEST SMS from SafetyTrack - NO LINK - " +
-                new SimpleDateFormat("hh:mm:ss", Locale.getDefault()).format(new Date());
-
-        try {
-            SmsManager smsManager = SmsManager.getDefault();
-            Intent sentIntent = new Intent("com.safetytrack.SMS_SENT");
-            sentIntent.putExtra("phone", testNumber);
-            sentIntent.putExtra("type", "TEST");
-            PendingIntent sentPI = PendingIntent.getBroadcast(
-                    this, 9999, sentIntent, PendingIntent.FLAG_IMMUTABLE);
-
-            smsManager.sendTextMessage(testNumber, null, testMessage, sentPI, null);
-            Log.d(TAG, "📱 TEST SMS sent to: " + testNumber);
-            Toast.makeText(this, "📱 Test SMS sent - CHECK YOUR INBOX!", Toast.LENGTH_LONG).show();
-        } catch (SecurityException e) {
-            Log.e(TAG, "❌ SMS permission denied");
-            requestSmsPermission();
-        } catch (Exception e) {
-            Log.e(TAG, "❌ SMS failed: " + e.getMessage());
-            Toast.makeText(this, "SMS failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
-    }
-
     // ========== PERMISSION METHODS ==========
 
     private boolean checkLocationPermission() {
@@ -579,6 +483,7 @@ public class DashboardActivity extends AppCompatActivity {
             case LOCATION_PERMISSION_REQUEST:
                 if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                     Toast.makeText(this, "Location permission granted", Toast.LENGTH_SHORT).show();
+                    locationEngine.onPermissionGranted();
                     if (isTracking) startLocationUpdates();
                 }
                 break;
@@ -595,7 +500,7 @@ public class DashboardActivity extends AppCompatActivity {
             case VOICE_PERMISSION_REQUEST:
                 if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                     Toast.makeText(this, "🎤 Audio permission granted", Toast.LENGTH_SHORT).show();
-                    if (isTracking) startVoiceListening();
+                    if (isTracking) startVoiceSOS();
                 }
                 break;
         }
@@ -608,92 +513,16 @@ public class DashboardActivity extends AppCompatActivity {
         tvUserName.setText("Welcome, " + userName);
     }
 
-    private void loadEmergencyContactsFromFirestore() {
-        progressBar.setVisibility(View.VISIBLE);
-        Log.d(TAG, "Loading contacts from Firestore...");
-
-        firebaseHelper.loadContactsFromFirestore(new FirebaseHelper.FirebaseContactsListener() {
-            @Override
-            public void onSuccess(List<Contact> contacts) {
-                progressBar.setVisibility(View.GONE);
-                emergencyContacts.clear();
-                emergencyPhoneNumbers.clear();
-
-                emergencyContacts.addAll(contacts);
-                Log.d(TAG, "Total contacts: " + contacts.size());
-
-                for (Contact contact : contacts) {
-                    if (contact.isSelected()) {
-                        String phone = contact.getPhoneNumber();
-                        if (phone != null && !phone.isEmpty()) {
-                            String cleanPhone = phone.replaceAll("[^0-9]", "");
-
-                            if (cleanPhone.length() == 10) {
-                                cleanPhone = "+91" + cleanPhone;
-                            } else if (cleanPhone.length() == 12 && cleanPhone.startsWith("91")) {
-                                cleanPhone = "+" + cleanPhone;
-                            } else if (cleanPhone.length() > 12) {
-                                cleanPhone = "+" + cleanPhone.replaceAll("^\\+?", "");
-                            }
-
-                            cleanPhone = cleanPhone.replace("++", "+").replace("+91+91", "+91");
-                            emergencyPhoneNumbers.add(cleanPhone);
-                            Log.d(TAG, "✅ Contact: " + cleanPhone);
-                        }
-                    }
-                }
-
-                updateContactsUI();
-                saveContactsToPreferences();
-                Log.d(TAG, "Loaded " + emergencyPhoneNumbers.size() + " contacts");
-            }
-
-            @Override
-            public void onError(String error) {
-                progressBar.setVisibility(View.GONE);
-                Log.e(TAG, "Error loading contacts: " + error);
-                loadEmergencyContactsFromPreferences();
-            }
-        });
+    // Contacts come from the shared repository, which keeps one Firestore listener for the app
+    private void observeEmergencyContacts() {
+        contactRepository = ContactRepository.getInstance(this);
+        contactRepository.addListener(contactsListener);
+        applyEmergencyContacts();
     }
 
-    private void saveContactsToPreferences() {
-        SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        StringBuilder contactsBuilder = new StringBuilder();
-
-        for (Contact contact : emergencyContacts) {
-            if (contact.isSelected()) {
-                contactsBuilder.append(contact.toString()).append(",");
-            }
-        }
-        editor.putString("emergencyContacts", contactsBuilder.toString());
-        editor.apply();
-    }
-
-    private void loadEmergencyContactsFromPreferences() {
-        SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        String contactsJson = prefs.getString("emergencyContacts", "");
-        emergencyPhoneNumbers.clear();
-
-        if (!contactsJson.isEmpty()) {
-            String[] contactsArray = contactsJson.split(",");
-            for (String contact : contactsArray) {
-                if (!contact.trim().isEmpty()) {
-                    String[] parts = contact.split("\n");
-                    if (parts.length >= 2) {
-                        String phone = parts[1].replaceAll("[^0-9]", "");
-
-                        if (phone.length() == 10) phone = "+91" + phone;
-                        else if (phone.length() == 12 && phone.startsWith("91")) phone = "+" + phone;
-                        else if (phone.length() > 12) phone = "+" + phone.replaceAll("^\\+?", "");
-
-                        phone = phone.replace("++", "+").replace("+91+91", "+91");
-                        emergencyPhoneNumbers.add(phone);
-                    }
-                }
-            }
-        }
+    private void applyEmergencyContacts() {
+        emergencyPhoneNumbers = contactRepository.getSelectedPhones();
+        Log.d(TAG, "Loaded " + emergencyPhoneNumbers.size() + " contacts");
         updateContactsUI();
     }
 
@@ -727,18 +556,11 @@ public class DashboardActivity extends AppCompatActivity {
     // ========== LOCATION METHODS ==========
 
     private void setupLocationUpdates() {
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(LocationResult locationResult) {
-                if (locationResult == null) return;
-                Location location = locationResult.getLastLocation();
-                if (location != null) {
-                    lastLocation = location;
-                    updateLocationUI(location);
-                    updateEmergencyMessagePreview();
-                    if (journeyStartTime > 0) updateStatsUI(location);
-                }
-            }
+        locationSubscriber = location -> {
+            lastLocation = location;
+            updateLocationUI(location);
+            updateEmergencyMessagePreview();
+            if (journeyStartTime > 0) updateStatsUI(location);
         };
     }
 
@@ -748,23 +570,18 @@ public class DashboardActivity extends AppCompatActivity {
             return;
         }
 
-        LocationRequest locationRequest = LocationRequest.create()
-                .setInterval(LOCATION_UPDATE_INTERVAL)
-                .setFastestInterval(60000)
-                .setSmallestDisplacement(MIN_DISTANCE_CHANGE)
-                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-
-        try {
-            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+        if (locationSubscription == null) {
+            // The UI only needs coarse refreshes; LocationService raises accuracy while moving
+            locationSubscription = locationEngine.subscribe(locationSubscriber,
+                    LOCATION_UPDATE_INTERVAL, LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, Looper.getMainLooper());
             Log.d(TAG, "Location updates started");
-        } catch (SecurityException e) {
-            Log.e(TAG, "Location permission error: " + e.getMessage());
         }
     }
 
     private void stopLocationUpdates() {
-        if (locationCallback != null) {
-            fusedLocationClient.removeLocationUpdates(locationCallback);
+        if (locationSubscription != null) {
+            locationEngine.unsubscribe(locationSubscription);
+            locationSubscription = null;
             Log.d(TAG, "Location updates stopped");
         }
     }
@@ -775,6 +592,13 @@ public class DashboardActivity extends AppCompatActivity {
             return;
         }
 
+        // Reuse the shared engine's fix when it is recent instead of opening another GPS session
+        Location engineLocation = locationEngine.getLastLocation();
+        if (engineLocation != null && System.currentTimeMillis() - engineLocation.getTime() < MAX_CACHED_FIX_AGE) {
+            callback.onLocationResult(LocationResult.create(List.of(engineLocation)));
+            return;
+        }
+
         try {
             fusedLocationClient.getLastLocation()
                     .addOnSuccessListener(location -> {
@@ -850,6 +674,26 @@ public class DashboardActivity extends AppCompatActivity {
                 "Sent via SafetyTrack";
     }
 
+    // Shows what LocationService will actually send for periodic updates
+    private String generateJourneyUpdatePreview(Location location) {
+        if (!LocationService.isCompactSmsEnabled(this)) {
+            return generateJourneyUpdateMessage(location);
+        }
+        previewEncoder.reset();
+        return previewEncoder.encode(location.getLatitude(), location.getLongitude(),
+                System.currentTimeMillis(), getBatteryLevel());
+    }
+
+    // Long-press on the message preview switches periodic updates between the two formats
+    private void toggleCompactSms() {
+        boolean compact = !LocationService.isCompactSmsEnabled(this);
+        getSharedPreferences("SafetyTrack", MODE_PRIVATE).edit()
+                .putBoolean(LocationService.KEY_COMPACT_SMS, compact).apply();
+        updateEmergencyMessagePreview();
+        Toast.makeText(this, compact ? "📨 Compact journey updates (1 SMS each)" : "📨 Full journey updates",
+                Toast.LENGTH_SHORT).show();
+    }
+
     // ========== SMS SENDING METHODS ==========
 
     private void sendSmsToContacts(String message, String type) {
@@ -865,86 +709,32 @@ public class DashboardActivity extends AppCompatActivity {
             return;
         }
 
+        SmsDispatcher.Priority priority;
         try {
-            SmsManager smsManager = SmsManager.getDefault();
-            int successCount = 0;
-
-            for (String phone : emergencyPhoneNumbers) {
-                try {
-                    int requestCode = phone.hashCode();
-
-                    if (message.length() > 160) {
-                        ArrayList<String> messageParts = smsManager.divideMessage(message);
-                        smsManager.sendMultipartTextMessage(phone, null, messageParts, null, null);
-                        Log.d(TAG, "✅ " + type + " multipart SMS sent to: " + phone);
-                    } else {
-                        smsManager.sendTextMessage(phone, null, message, null, null);
-                        Log.d(TAG, "✅ " + type + " SMS sent to: " + phone);
-                    }
-                    successCount++;
-
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ Failed to send SMS to " + phone + ": " + e.getMessage());
-                }
-            }
-
-            if (successCount > 0) {
-                String toastMsg = "";
-                switch (type) {
-                    case "SOS":
-                        toastMsg = "🚨 SOS Emergency Alert";
-                        break;
-                    case "SAFE_ARRIVAL":
-                        toastMsg = "🛡️ Safe Arrival Notification";
-                        break;
-                    case "JOURNEY_UPDATE":
-                        toastMsg = "📍 Journey Update";
-                        break;
-                    default:
-                        toastMsg = "📨 Message";
-                }
-                Toast.makeText(this, toastMsg + " sent to " + successCount + " contacts", Toast.LENGTH_LONG).show();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "SMS Manager error: " + e.getMessage());
-            Toast.makeText(this, "Failed to send SMS: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
-    }
-
-    // ========== PERIODIC SMS UPDATES ==========
-
-    private void startPeriodicSmsUpdates() {
-        if (periodicSmsRunnable != null) {
-            periodicSmsHandler.removeCallbacks(periodicSmsRunnable);
+            priority = SmsDispatcher.Priority.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            priority = SmsDispatcher.Priority.JOURNEY_UPDATE;
         }
 
-        periodicSmsRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (isTracking && lastLocation != null && !emergencyPhoneNumbers.isEmpty()) {
-                    String message = generateJourneyUpdateMessage(lastLocation);
-                    sendSmsToContacts(message, "JOURNEY_UPDATE");
-                    saveLocationUpdate(lastLocation, "Periodic update sent");
-                    Log.d(TAG, "Periodic SMS update sent");
-                }
-
-                // Schedule next update in 2 minutes (120,000 ms)
-                if (isTracking) {
-                    periodicSmsHandler.postDelayed(this, 120000);
-                }
+        int queuedCount = smsDispatcher.sendToAll(emergencyPhoneNumbers, message, priority);
+        Log.d(TAG, "✅ " + type + " SMS queued for " + queuedCount + " contacts");
+
+        if (queuedCount > 0) {
+            String toastMsg = "";
+            switch (type) {
+                case "SOS":
+                    toastMsg = "🚨 SOS Emergency Alert";
+                    break;
+                case "SAFE_ARRIVAL":
+                    toastMsg = "🛡️ Safe Arrival Notification";
+                    break;
+                case "JOURNEY_UPDATE":
+                    toastMsg = "📍 Journey Update";
+                    break;
+                default:
+                    toastMsg = "📨 Message";
             }
-        };
-
-        // Start first update after 2 minutes
-        periodicSmsHandler.postDelayed(periodicSmsRunnable, 120000);
-        Log.d(TAG, "Periodic SMS updates scheduled (every 2 minutes)");
-    }
-
-    private void stopPeriodicSmsUpdates() {
-        if (periodicSmsRunnable != null) {
-            periodicSmsHandler.removeCallbacks(periodicSmsRunnable);
-            periodicSmsRunnable = null;
-            Log.d(TAG, "Periodic SMS updates stopped");
+            Toast.makeText(this, toastMsg + " sent to " + queuedCount + " contacts", Toast.LENGTH_LONG).show();
         }
     }
 
@@ -973,24 +763,21 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     private void startJourneyTracking() {
+        long requestedAt = SystemClock.elapsedRealtime();
         if (!checkSmsPermission()) {
             requestSmsPermission();
             Toast.makeText(this, "SMS permission required", Toast.LENGTH_LONG).show();
             return;
         }
 
+        // Service first: it resolves contacts from the local cache and waits for the first fix
+        // while the UI and the Firestore trip catch up
+        currentTripId = JourneyStarter.start(this, firebaseHelper, lastLocation, requestedAt);
+        bindLocationService();
+
         isTracking = true;
         journeyStartTime = System.currentTimeMillis();
-
-        btnStartStop.setText("🏍️🏍️🏍️ STOP JOURNEY");
-        btnStartStop.setBackgroundTintList(ContextCompat.getColorStateList(this, R.color.error_red));
-        tvStatus.setText("Journey Active 🏍️");
-        tvStatus.setTextColor(ContextCompat.getColor(this, R.color.success_green));
-        cardStatus.setStrokeColor(ContextCompat.getColorStateList(this, R.color.success_green));
-        cardStatus.setStrokeWidth(2);
-
-        startActiveTimeCounter();
-        startPeriodicSmsUpdates(); // START 2-MINUTE SMS UPDATES
+        showJourneyActive();
 
         getCurrentLocation(new LocationCallback() {
             @Override
@@ -1006,26 +793,48 @@ public class DashboardActivity extends AppCompatActivity {
             }
         });
 
-        startLocationService();
+        startVoiceSOS();
 
-        if (switchAutoTrack.isChecked()) {
-            journeyDetector.startDetection();
-        }
+        Toast.makeText(this, "🏍️ Journey started - SMS every 2 minutes", Toast.LENGTH_LONG).show();
+    }
 
-        // Initialize and start Voice SOS
-        if (isVoiceSOSAvailable) {
-            initVoiceSOS();
-            new Handler(Looper.getMainLooper()).postDelayed(() -> startVoiceListening(), 500);
-        }
+    private void showJourneyActive() {
+        btnStartStop.setText("🏍️🏍️🏍️ STOP JOURNEY");
+        btnStartStop.setBackgroundTintList(ContextCompat.getColorStateList(this, R.color.error_red));
+        tvStatus.setText("Journey Active 🏍️");
+        tvStatus.setTextColor(ContextCompat.getColor(this, R.color.success_green));
+        cardStatus.setStrokeColor(ContextCompat.getColorStateList(this, R.color.success_green));
+        cardStatus.setStrokeWidth(2);
 
-        Toast.makeText(this, "🏍️ Journey started - SMS every 2 minutes", Toast.LENGTH_LONG).show();
+        startActiveTimeCounter();
+    }
+
+    // The activity was recreated while the service kept the journey running: take its state back
+    private void restoreJourney(LocationService service) {
+        currentTripId = service.getCurrentTripId();
+        if (currentTripId == null) {
+            currentTripId = getSharedPreferences("SafetyTrack", MODE_PRIVATE)
+                    .getString(JourneyStarter.KEY_CURRENT_TRIP_ID, null);
+        }
+        long startedAt = TripIds.timestampOf(currentTripId);
+        journeyStartTime = startedAt > 0 ? startedAt : System.currentTimeMillis();
+        isTracking = true;
+        showJourneyActive();
+
+        Location location = service.getLastSentLocation();
+        if (location != null) {
+            lastLocation = location;
+            tvLastUpdate.setText("Last: " + timeFormat.format(new Date(service.getLastSentAt())));
+            updateEmergencyMessagePreview();
+            updateStatsUI(location);
+        }
+        Log.d(TAG, "♻️ Restored running journey " + currentTripId);
     }
 
     private void stopJourneyTracking() {
         isTracking = false;
         isJourneyActive = false;
-        stopVoiceListening();
-        stopPeriodicSmsUpdates(); // STOP 2-MINUTE SMS UPDATES
+        stopVoiceSOS();
 
         btnStartStop.setText("🏍️🏍️🏍️ START JOURNEY");
         btnStartStop.setBackgroundTintList(ContextCompat.getColorStateList(this, R.color.primary));
@@ -1035,13 +844,13 @@ public class DashboardActivity extends AppCompatActivity {
 
         stopActiveTimeCounter();
         stopLocationUpdates();
-        journeyDetector.stopDetection();
         fetchFinalLocationAndSendSafeArrival();
-        stopLocationService();
+        unbindLocationService();
+        JourneyStarter.stop(this, firebaseHelper, currentTripId);
+        currentTripId = null;
 
         journeyStartTime = 0;
-        totalDistance = 0;
-        updateStatsUI(null);
+        tvDistance.setText(String.format(Locale.getDefault(), "%.1f km", 0.0));
         Toast.makeText(this, "Journey stopped", Toast.LENGTH_SHORT).show();
     }
 
@@ -1078,29 +887,82 @@ public class DashboardActivity extends AppCompatActivity {
 
     // ========== LOCATION SERVICE METHODS ==========
 
-    private void startLocationService() {
-        Intent serviceIntent = new Intent(this, LocationService.class);
-        serviceIntent.putExtra("tripId", "trip_" + System.currentTimeMillis());
+    // LocationService sends the periodic SMS; the dashboard binds only to mirror its state
+    private final LocationService.StateListener serviceStateListener = (location, sentAt, contactCount) -> {
+        lastLocation = location;
+        tvLastUpdate.setText("Last: " + timeFormat.format(new Date(sentAt)));
+        updateEmergencyMessagePreview();
+        updateStatsUI(location);
+        updateDebugPanel();
+    };
 
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                startForegroundService(serviceIntent);
-            } else {
-                startService(serviceIntent);
+    // ========== DEBUG PANEL ==========
+
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private void updateDebugPanel() {
+        if (tvDebugPanel == null || !isDebuggable()) {
+            return;
+        }
+
+        LocationService service = boundLocationService;
+        VoiceSosService voiceService = boundVoiceSosService;
+        if (service == null && voiceService == null) {
+            tvDebugPanel.setVisibility(View.GONE);
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (service != null) {
+            long latency = service.getFirstSmsLatencyMs();
+            text.append("⏱️ Tap → first SMS: ").append(latency < 0 ? "pending" : latency + " ms")
+                    .append("\n🧾 Trip: ").append(service.getCurrentTripId())
+                    .append("\n👥 Contacts: ").append(service.getContactCount())
+                    .append(contactRepository.isSynced() ? " (Firestore)" : " (device cache)");
+        }
+        if (voiceService != null) {
+            if (text.length() > 0) text.append('\n');
+            text.append("🎤 ").append(voiceService.getMetrics());
+        }
+        tvDebugPanel.setText(text);
+        tvDebugPanel.setVisibility(View.VISIBLE);
+    }
+
+    private final ServiceConnection locationServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            boundLocationService = ((LocationService.LocalBinder) service).getService();
+            boundLocationService.addStateListener(serviceStateListener);
+            if (!isTracking && boundLocationService.isTracking()) {
+                restoreJourney(boundLocationService);
             }
-            Log.d(TAG, "✅ LocationService started");
-        } catch (Exception e) {
-            Log.e(TAG, "Error starting LocationService: " + e.getMessage());
+            updateDebugPanel();
+            Log.d(TAG, "🔗 Bound to LocationService");
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            boundLocationService = null;
+        }
+    };
+
+    private void bindLocationService() {
+        if (!isServiceBound) {
+            isServiceBound = bindService(new Intent(this, LocationService.class),
+                    locationServiceConnection, 0);
         }
     }
 
-    private void stopLocationService() {
-        try {
-            Intent serviceIntent = new Intent(this, LocationService.class);
-            stopService(serviceIntent);
-            Log.d(TAG, "🛑 LocationService stopped");
-        } catch (Exception e) {
-            Log.e(TAG, "Error stopping LocationService: " + e.getMessage());
+    private void unbindLocationService() {
+        if (isServiceBound) {
+            if (boundLocationService != null) {
+                boundLocationService.removeStateListener(serviceStateListener);
+                boundLocationService = null;
+            }
+            unbindService(locationServiceConnection);
+            isServiceBound = false;
         }
     }
 
@@ -1162,7 +1024,7 @@ public class DashboardActivity extends AppCompatActivity {
         if (lastLocation != null) {
             String message = generateEmergencyMessage(lastLocation, sessionManager.getUserName());
             sendSmsToContacts(message, "SOS");
-            saveLocationUpdate(lastLocation, "🚨 SOS ALERT SENT");
+            saveLocationUpdate(lastLocation, "🚨 SOS ALERT SENT", true);
         } else {
             Toast.makeText(this, "🚨 Getting current location...", Toast.LENGTH_SHORT).show();
             getCurrentLocation(new LocationCallback() {
@@ -1173,7 +1035,7 @@ public class DashboardActivity extends AppCompatActivity {
                         lastLocation = location;
                         String message = generateEmergencyMessage(location, sessionManager.getUserName());
                         sendSmsToContacts(message, "SOS");
-                        saveLocationUpdate(location, "🚨 SOS ALERT SENT");
+                        saveLocationUpdate(location, "🚨 SOS ALERT SENT", true);
                     } else {
                         // Send SOS without location
                         String message = "🚨🚨🚨 EMERGENCY ALERT 🚨🚨🚨\n" +
@@ -1182,6 +1044,7 @@ public class DashboardActivity extends AppCompatActivity {
                                 "PLEASE RESPOND IMMEDIATELY!\n" +
                                 "Sent via SafetyTrack";
                         sendSmsToContacts(message, "SOS");
+                        firebaseHelper.flushLocationUpdates();
                     }
                     fusedLocationClient.removeLocationUpdates(this);
                 }
@@ -1242,7 +1105,12 @@ public class DashboardActivity extends AppCompatActivity {
 
         updateSimStatus();
 
-        if (batteryLevel < 20 && isTracking) sendLowBatteryAlert();
+        // One alert per drop below the threshold, not one every 5 s while it stays there
+        if (batteryLevel >= 20) {
+            lowBatteryAlertSent = false;
+        } else if (isTracking && !lowBatteryAlertSent) {
+            sendLowBatteryAlert();
+        }
     }
 
     private void updateLocationUI(Location location) {
@@ -1257,17 +1125,21 @@ public class DashboardActivity extends AppCompatActivity {
                     TimeUnit.MILLISECONDS.toHours(duration),
                     TimeUnit.MILLISECONDS.toMinutes(duration) % 60));
 
-            if (location != null && lastLocation != null) {
-                totalDistance += lastLocation.distanceTo(location) / 1000;
-                tvDistance.setText(String.format(Locale.getDefault(), "%.1f km", totalDistance));
+            // Distance comes from the service's trip aggregator, which keeps counting while
+            // this activity is gone
+            LocationService service = boundLocationService;
+            if (service != null) {
+                double km = service.getTripSummary().distanceMeters / 1000;
+                tvDistance.setText(String.format(Locale.getDefault(), "%.1f km", km));
             }
         }
     }
 
     private void updateEmergencyMessagePreview() {
         if (lastLocation != null) {
-            tvEmergencyMessage.setText(generateJourneyUpdateMessage(lastLocation));
-            updateSmsCharacterCount(generateJourneyUpdateMessage(lastLocation));
+            String preview = generateJourneyUpdatePreview(lastLocation);
+            tvEmergencyMessage.setText(preview);
+            updateSmsCharacterCount(preview);
         } else {
             tvEmergencyMessage.setText("Start a journey to share your location");
         }
@@ -1310,15 +1182,9 @@ public class DashboardActivity extends AppCompatActivity {
         String message = "⚠️ Low Battery Alert\nBattery: " + getBatteryLevel() + "%\nJourney may be interrupted.\nSent via SafetyTrack";
 
         if (checkSmsPermission()) {
-            try {
-                SmsManager smsManager = SmsManager.getDefault();
-                for (String phone : emergencyPhoneNumbers) {
-                    smsManager.sendTextMessage(phone, null, message, null, null);
-                }
-                Log.d(TAG, "Low battery alert sent");
-            } catch (Exception e) {
-                Log.e(TAG, "SMS error: " + e.getMessage());
-            }
+            smsDispatcher.sendToAll(emergencyPhoneNumbers, message, SmsDispatcher.Priority.LOW_BATTERY);
+            lowBatteryAlertSent = true;
+            Log.d(TAG, "Low battery alert queued");
         }
     }
 
@@ -1330,37 +1196,24 @@ public class DashboardActivity extends AppCompatActivity {
             requestLocationPermission();
             return;
         }
-        journeyDetector.startDetection();
+        AutoTrackService.start(this);
         Toast.makeText(this, "Auto-detection enabled", Toast.LENGTH_SHORT).show();
     }
 
     private void disableAutoTracking() {
-        journeyDetector.stopDetection();
+        AutoTrackService.stop(this);
         Toast.makeText(this, "Auto-detection disabled", Toast.LENGTH_SHORT).show();
     }
 
     // ========== FIRESTORE METHODS ==========
 
     private void saveLocationUpdate(Location location, String message) {
-        Map<String, Object> update = new HashMap<>();
-        update.put("timestamp", System.currentTimeMillis());
-        update.put("latitude", location.getLatitude());
-        update.put("longitude", location.getLongitude());
-        update.put("message", message);
-        update.put("type", isTracking ? "journey" : "sos");
-        update.put("userId", sessionManager.getUserId());
-
-        firebaseHelper.saveLocationUpdate(update, new FirebaseHelper.FirebaseCompleteListener() {
-            @Override
-            public void onSuccess(String message) {
-                Log.d(TAG, "Location saved: " + message);
-            }
+        saveLocationUpdate(location, message, false);
+    }
 
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Failed to save: " + error);
-            }
-        });
+    private void saveLocationUpdate(Location location, String message, boolean urgent) {
+        firebaseHelper.saveLocationUpdate(location.getLatitude(), location.getLongitude(),
+                message, isTracking ? "journey" : "sos", urgent);
     }
 
     // ========== HELPER METHODS ==========
@@ -1410,6 +1263,20 @@ public class DashboardActivity extends AppCompatActivity {
                 .show();
     }
 
+    private void showDeliveryStatsDialog() {
+        List<SmsLedger.ContactStats> stats = SmsLedger.getInstance(this).getContactStats();
+        StringBuilder message = new StringBuilder();
+        for (SmsLedger.ContactStats contactStats : stats) {
+            message.append(contactStats).append("\n\n");
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("📨 SMS Delivery")
+                .setMessage(stats.isEmpty() ? "No messages sent yet." : message.toString().trim())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
     // ========== LOGOUT ==========
 
     private void logoutUser() {
@@ -1418,12 +1285,10 @@ public class DashboardActivity extends AppCompatActivity {
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Logout", (dialog, which) -> {
                     if (isTracking) stopJourneyTracking();
-                    stopVoiceListening();
-                    if (speechRecognizer != null) {
-                        speechRecognizer.destroy();
-                        speechRecognizer = null;
-                    }
+                    stopVoiceSOS();
+                    AutoTrackService.stop(this);
                     sessionManager.logout();
+                    contactRepository.unsubscribe();
                     Intent intent = new Intent(this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                     startActivity(intent);
@@ -1439,7 +1304,7 @@ public class DashboardActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == 100 && resultCode == RESULT_OK) {
-            loadEmergencyContactsFromFirestore();
+            applyEmergencyContacts();
         } else if (requestCode == LOCATION_SETTINGS_REQUEST && isLocationEnabled()) {
             Toast.makeText(this, "GPS enabled", Toast.LENGTH_SHORT).show();
         }
@@ -1448,7 +1313,6 @@ public class DashboardActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        loadEmergencyContactsFromFirestore();
         updateStatusIndicators();
 
         if (!sessionManager.isLoggedIn()) {
@@ -1457,28 +1321,18 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        prefs.edit().putBoolean("isTracking", isTracking).apply();
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
         stopLocationUpdates();
-        stopPeriodicSmsUpdates();
+        unbindLocationService();
+        if (contactRepository != null) {
+            contactRepository.removeListener(contactsListener);
+        }
         handler.removeCallbacksAndMessages(null);
         activeTimeHandler.removeCallbacksAndMessages(null);
-        periodicSmsHandler.removeCallbacksAndMessages(null);
         stopActiveTimeCounter();
-        stopVoiceListening();
-
-        if (speechRecognizer != null) {
-            speechRecognizer.destroy();
-            speechRecognizer = null;
-        }
+        unbindVoiceSosService(); // keeps listening for the rest of the journey
 
         Log.d(TAG, "DashboardActivity destroyed");
     }
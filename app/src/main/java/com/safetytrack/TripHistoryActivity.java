@@ -1,11 +1,15 @@
 package com.safetytrack;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
+
+import com.safetytrack.models.Trip;
+import com.safetytrack.utils.TripHistoryRepository;
+
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -13,16 +17,39 @@ import java.util.List;
 import java.util.Locale;
 
 public class TripHistoryActivity extends AppCompatActivity {
+    // Start fetching the next page this many rows before the end of the list
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private ListView listViewTrips;
     private TextView tvNoTrips;
     private ArrayAdapter<String> adapter;
     private List<String> tripHistoryList;
+    private TripHistoryRepository tripHistory;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM d, HH:mm", Locale.getDefault());
+
+    private final TripHistoryRepository.Callback historyCallback = new TripHistoryRepository.Callback() {
+        @Override
+        public void onTrips(List<Trip> trips, int newCount, boolean endReached) {
+            if (isFinishing() || isDestroyed()) return;
+            showTrips(trips);
+        }
+
+        @Override
+        public void onError(String error) {
+            if (isFinishing() || isDestroyed()) return;
+            if (tripHistoryList.isEmpty()) {
+                tvNoTrips.setText("Couldn't load trip history");
+                tvNoTrips.setVisibility(android.view.View.VISIBLE);
+            }
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_trip_history);
 
+        tripHistory = TripHistoryRepository.getInstance(this);
         initializeViews();
         loadTripHistory();
     }
@@ -34,15 +61,36 @@ public class TripHistoryActivity extends AppCompatActivity {
         tripHistoryList = new ArrayList<>();
         adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, tripHistoryList);
         listViewTrips.setAdapter(adapter);
+
+        listViewTrips.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {}
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (totalItemCount > 0
+                        && firstVisibleItem + visibleItemCount >= totalItemCount - LOAD_MORE_THRESHOLD
+                        && !tripHistory.isEndReached() && !tripHistory.isLoading()) {
+                    tripHistory.loadNextPage(historyCallback);
+                }
+            }
+        });
     }
 
     private void loadTripHistory() {
-        // For now, show sample data
-        tripHistoryList.clear();
-        tripHistoryList.add("Start: Jan 25, 10:30\nEnd: Jan 25, 11:15\nDuration: 45 mins\nStatus: ✅ completed");
-        tripHistoryList.add("Start: Jan 24, 14:20\nEnd: Jan 24, 15:10\nDuration: 50 mins\nStatus: ✅ completed");
-        tripHistoryList.add("Start: Jan 23, 09:15\nEnd: Jan 23, 09:45\nDuration: 30 mins\nStatus: ✅ completed");
+        // Pages seen earlier in this process show immediately; only newer trips are fetched
+        List<Trip> cached = tripHistory.getCachedTrips();
+        if (!cached.isEmpty()) {
+            showTrips(cached);
+        }
+        tripHistory.refreshHead(historyCallback);
+    }
 
+    private void showTrips(List<Trip> trips) {
+        tripHistoryList.clear();
+        for (Trip trip : trips) {
+            tripHistoryList.add(formatTrip(trip));
+        }
         adapter.notifyDataSetChanged();
 
         if (tripHistoryList.isEmpty()) {
@@ -52,4 +100,19 @@ public class TripHistoryActivity extends AppCompatActivity {
             tvNoTrips.setVisibility(android.view.View.GONE);
         }
     }
-}
\ No newline at end of file
+
+    private String formatTrip(Trip trip) {
+        boolean completed = "completed".equals(trip.getStatus());
+        StringBuilder sb = new StringBuilder();
+        sb.append("Start: ").append(dateFormat.format(new Date(trip.getStartTime())));
+        if (trip.getEndTime() > 0) {
+            sb.append("\nEnd: ").append(dateFormat.format(new Date(trip.getEndTime())));
+            sb.append("\nDuration: ").append((trip.getEndTime() - trip.getStartTime()) / 60000).append(" mins");
+        }
+        if (trip.getDistance() > 0) {
+            sb.append(String.format(Locale.getDefault(), "\nDistance: %.1f km", trip.getDistance()));
+        }
+        sb.append("\nStatus: ").append(completed ? "✅ " : "🏍️ ").append(trip.getStatus());
+        return sb.toString();
+    }
+}
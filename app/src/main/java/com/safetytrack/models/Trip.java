@@ -1,6 +1,7 @@
 package com.safetytrack.models;
 
 public class Trip {
+    private String id;
     private String userId;
     private double startLat;
     private double startLng;
@@ -17,6 +18,14 @@ public class Trip {
         this.status = "active";
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -0,0 +1,27 @@
+//BootReceiver.java
+package com.safetytrack.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.safetytrack.services.AutoTrackService;
+
+// Re-arms auto-detection after a reboot or app update if the user left it on
+public class BootReceiver extends BroadcastReceiver {
+    private static final String TAG = "BootReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+        if (AutoTrackService.isEnabled(context)) {
+            Log.d(TAG, "🔁 Restarting auto-detection after " + action);
+            AutoTrackService.start(context);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import android.telephony.SmsManager;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.safetytrack.utils.SmsDispatcher;
+
 public class SmsBroadcastReceiver extends BroadcastReceiver {
     private static final String TAG = "SmsReceiver";
 
@@ -20,7 +22,19 @@ public class SmsBroadcastReceiver extends BroadcastReceiver {
         if (phone == null) phone = "Unknown";
         if (type == null) type = "SMS";
 
+        // Multipart messages report every part; the dispatcher combines them, the UI shows the last one
+        int attempt = intent.getIntExtra(SmsDispatcher.EXTRA_ATTEMPT, 1);
+        boolean lastPart = intent.getIntExtra(SmsDispatcher.EXTRA_PART, 0)
+                >= intent.getIntExtra(SmsDispatcher.EXTRA_PART_COUNT, 1) - 1;
+
         if ("com.safetytrack.SMS_SENT".equals(action)) {
+            // The dispatcher decides whether a failed send is retried
+            long messageId = intent.getLongExtra(SmsDispatcher.EXTRA_MESSAGE_ID, -1);
+            if (messageId != -1) {
+                SmsDispatcher.getInstance(context).onSendResult(messageId, attempt, getResultCode());
+            }
+            if (!lastPart) return;
+
             switch (getResultCode()) {
                 case android.app.Activity.RESULT_OK:
                     Log.d(TAG, "✅ " + type + " SMS sent successfully to: " + phone);
@@ -48,6 +62,12 @@ public class SmsBroadcastReceiver extends BroadcastReceiver {
                     break;
             }
         } else if ("com.safetytrack.SMS_DELIVERED".equals(action)) {
+            long messageId = intent.getLongExtra(SmsDispatcher.EXTRA_MESSAGE_ID, -1);
+            if (messageId != -1) {
+                SmsDispatcher.getInstance(context).onDeliveryResult(messageId, attempt, getResultCode());
+            }
+            if (!lastPart) return;
+
             switch (getResultCode()) {
                 case android.app.Activity.RESULT_OK:
                     Log.d(TAG, "✅ " + type + " SMS delivered to: " + phone);
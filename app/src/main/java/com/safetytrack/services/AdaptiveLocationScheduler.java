@@ -0,0 +1,208 @@
+//AdaptiveLocationScheduler.java
+package com.safetytrack.services;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.location.LocationRequest;
+
+/**
+ * Chooses the location interval and priority for an active journey from recent speed, heading
+ * change and accelerometer stillness, and keeps per-trip counters of how long the GPS was held
+ * at high accuracy compared with the trip duration. The counters follow the priority the shared
+ * LocationEngine actually ran, which other subscribers can raise above the one chosen here.
+ */
+public class AdaptiveLocationScheduler implements SensorEventListener {
+    private static final String TAG = "AdaptiveScheduler";
+
+    public enum Mode { STILL, SLOW, FAST, BURST }
+
+    private static final float FAST_SPEED_KPH = 40.0f;
+    private static final float MOVING_SPEED_KPH = 5.0f;
+    private static final float SHARP_TURN_DEGREES = 45.0f;
+    private static final long BURST_DURATION_MS = 30000;
+    // Accelerometer magnitude deviation from 1 g below which the phone is considered at rest
+    private static final float STILL_THRESHOLD = 0.6f;
+    private static final long STILL_WINDOW_MS = 60000;
+
+    // Under LocationService's 2-minute SMS tick, so a standing rider still has a fresh fix for it
+    private static final long STILL_INTERVAL_MS = 90000;
+    private static final long SLOW_INTERVAL_MS = 30000;
+    private static final long FAST_INTERVAL_MS = 10000;
+    private static final long BURST_INTERVAL_MS = 2000;
+
+    public interface Listener {
+        void onScheduleChanged(Mode mode, long intervalMs, int priority);
+    }
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private final Listener listener;
+    private final LocationEngine locationEngine;
+
+    private Mode mode = Mode.SLOW;
+    private float lastBearing = -1;
+    private float lastSpeedKph = 0;
+    private long burstUntil = 0;
+    private volatile long lastMotionAt = 0;
+
+    // Per-trip counters
+    private long tripStartedAt = 0;
+    private long accumulatedAt = 0;
+    private int appliedPriority = 0;
+    private long highAccuracyMs = 0;
+    private long balancedMs = 0;
+    private int modeChanges = 0;
+
+    public AdaptiveLocationScheduler(Context context, Listener listener) {
+        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        this.accelerometer = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) : null;
+        this.listener = listener;
+        this.locationEngine = LocationEngine.getInstance(context);
+    }
+
+    public void start() {
+        long now = SystemClock.elapsedRealtime();
+        tripStartedAt = now;
+        accumulatedAt = now;
+        lastMotionAt = now;
+        highAccuracyMs = 0;
+        balancedMs = 0;
+        modeChanges = 0;
+        mode = Mode.SLOW;
+        lastBearing = -1;
+
+        if (accelerometer != null) {
+            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL);
+        }
+        listener.onScheduleChanged(mode, intervalFor(mode), priorityFor(mode));
+        appliedPriority = locationEngine.getActivePriority();
+    }
+
+    public void stop() {
+        if (sensorManager != null) {
+            sensorManager.unregisterListener(this);
+        }
+        accumulate(SystemClock.elapsedRealtime());
+        Log.d(TAG, "📊 Trip GPS usage: " + getSummary());
+    }
+
+    public void onLocation(Location location) {
+        long now = SystemClock.elapsedRealtime();
+        float speedKph = location.hasSpeed() ? location.getSpeed() * 3.6f : lastSpeedKph;
+        lastSpeedKph = speedKph;
+
+        if (location.hasBearing() && speedKph > MOVING_SPEED_KPH) {
+            float bearing = location.getBearing();
+            if (lastBearing >= 0 && headingChange(lastBearing, bearing) > SHARP_TURN_DEGREES) {
+                burstUntil = now + BURST_DURATION_MS;
+            }
+            lastBearing = bearing;
+        }
+
+        Mode next;
+        if (now < burstUntil) {
+            next = Mode.BURST;
+        } else if (speedKph >= FAST_SPEED_KPH) {
+            next = Mode.FAST;
+        } else if (speedKph < MOVING_SPEED_KPH && isStill(now)) {
+            next = Mode.STILL;
+        } else {
+            next = Mode.SLOW;
+        }
+
+        // Every fix closes a counter interval, so engine changes made by other subscribers are seen too
+        accumulate(now);
+        if (next != mode) {
+            Log.d(TAG, "🔁 " + mode + " → " + next + " at " + speedKph + " km/h");
+            mode = next;
+            modeChanges++;
+            listener.onScheduleChanged(mode, intervalFor(mode), priorityFor(mode));
+        }
+        appliedPriority = locationEngine.getActivePriority();
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        if (Math.abs(magnitude - SensorManager.GRAVITY_EARTH) > STILL_THRESHOLD) {
+            lastMotionAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+
+    private boolean isStill(long now) {
+        // Without an accelerometer, low speed alone is treated as standstill
+        return accelerometer == null || now - lastMotionAt > STILL_WINDOW_MS;
+    }
+
+    private static float headingChange(float from, float to) {
+        float diff = Math.abs(to - from) % 360;
+        return diff > 180 ? 360 - diff : diff;
+    }
+
+    private static long intervalFor(Mode mode) {
+        switch (mode) {
+            case STILL: return STILL_INTERVAL_MS;
+            case FAST: return FAST_INTERVAL_MS;
+            case BURST: return BURST_INTERVAL_MS;
+            default: return SLOW_INTERVAL_MS;
+        }
+    }
+
+    private static int priorityFor(Mode mode) {
+        return mode == Mode.STILL
+                ? LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY
+                : LocationRequest.PRIORITY_HIGH_ACCURACY;
+    }
+
+    private void accumulate(long now) {
+        long elapsed = now - accumulatedAt;
+        if (appliedPriority == LocationRequest.PRIORITY_HIGH_ACCURACY) {
+            highAccuracyMs += elapsed;
+        } else if (appliedPriority != 0) {
+            balancedMs += elapsed;
+        }
+        accumulatedAt = now;
+    }
+
+    // ========== COUNTERS ==========
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getTripDurationMs() {
+        return tripStartedAt == 0 ? 0 : SystemClock.elapsedRealtime() - tripStartedAt;
+    }
+
+    public long getHighAccuracyMs() {
+        return highAccuracyMs;
+    }
+
+    public long getBalancedMs() {
+        return balancedMs;
+    }
+
+    public int getModeChanges() {
+        return modeChanges;
+    }
+
+    public String getSummary() {
+        long duration = getTripDurationMs();
+        int percent = duration == 0 ? 0 : (int) (highAccuracyMs * 100 / duration);
+        return "GPS on " + (highAccuracyMs / 1000) + "s of " + (duration / 1000) + "s (" + percent + "%), "
+                + modeChanges + " mode changes";
+    }
+}
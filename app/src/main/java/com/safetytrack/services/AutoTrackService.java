@@ -0,0 +1,138 @@
+//AutoTrackService.java
+package com.safetytrack.services;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Hosts journey auto-detection outside the Dashboard, as a location-type foreground service.
+ *
+ * JourneyDetector and its MotionGate live here, so the significant-motion trigger stays armed
+ * after the activity is gone; START_STICKY re-arms it when the system restarts a killed process,
+ * and BootReceiver restarts it after a reboot. KEY_AUTO_TRACK records whether the user turned
+ * auto-tracking on, so a restart without the Dashboard knows whether to run.
+ */
+public class AutoTrackService extends Service {
+    private static final String TAG = "AutoTrackService";
+    private static final String CHANNEL_ID = "SafetyTrackAutoTrackChannel";
+    private static final int NOTIFICATION_ID = 4;
+
+    public static final String KEY_AUTO_TRACK = "autoTrackEnabled";
+
+    private JourneyDetector journeyDetector;
+
+    public static void start(Context context) {
+        prefs(context).edit().putBoolean(KEY_AUTO_TRACK, true).apply();
+        Intent intent = new Intent(context, AutoTrackService.class);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(intent);
+            } else {
+                context.startService(intent);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Could not start auto-detection: " + e.getMessage());
+        }
+    }
+
+    public static void stop(Context context) {
+        prefs(context).edit().putBoolean(KEY_AUTO_TRACK, false).apply();
+        context.stopService(new Intent(context, AutoTrackService.class));
+    }
+
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_AUTO_TRACK, false);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+        journeyDetector = new JourneyDetector(this);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (!isEnabled(this) || ContextCompat.checkSelfPermission(this,
+                Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "⚠️ Auto-detection off or location permission missing");
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        try {
+            Notification notification = createNotification();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION);
+            } else {
+                startForeground(NOTIFICATION_ID, notification);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Auto-detection foreground start refused: " + e.getMessage());
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        journeyDetector.startDetection();
+        Log.d(TAG, "🛰️ Auto-detection running");
+        return START_STICKY;
+    }
+
+    private Notification createNotification() {
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("🛰️ Auto-detect On")
+                .setContentText("A journey starts by itself when you start riding")
+                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                .setPriority(NotificationCompat.PRIORITY_MIN)
+                .setOngoing(true)
+                .build();
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "SafetyTrack Auto-detect",
+                    NotificationManager.IMPORTANCE_MIN
+            );
+            channel.setDescription("Watching for motion to start journeys automatically");
+            channel.setSound(null, null);
+            channel.setShowBadge(false);
+
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+            }
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        journeyDetector.stopDetection();
+        Log.d(TAG, "AutoTrackService destroyed");
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
+    }
+}
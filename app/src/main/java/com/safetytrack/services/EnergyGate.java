@@ -0,0 +1,73 @@
+//EnergyGate.java
+package com.safetytrack.services;
+
+/**
+ * Cheap voice-activity gate in front of the speech recognizer. It runs on raw 16-bit PCM frames
+ * and opens once the level stays OPEN_MARGIN_DB above the adaptive noise floor for OPEN_FRAMES
+ * consecutive frames. The floor falls quickly and rises slowly, so steady engine or wind noise
+ * is absorbed into it while a voice on top of it still opens the gate.
+ *
+ * Plain Java like TripAggregator, fed by VoiceSosService, testable on the JVM.
+ */
+public class EnergyGate {
+    static final double OPEN_MARGIN_DB = 12.0;
+    static final double MIN_OPEN_DB = -50.0;      // quieter than this is never speech
+    static final int OPEN_FRAMES = 3;             // 60 ms at 20 ms frames
+    static final double FLOOR_RISE = 0.02;        // per quiet frame
+    static final double FLOOR_RISE_LOUD = 0.005;  // per loud frame, ~4 s to absorb a 20 dB step
+    static final double FLOOR_FALL = 0.5;
+    static final double SILENCE_DB = -100.0;
+
+    private double noiseFloorDb = SILENCE_DB;
+    private boolean hasFloor = false;
+    private int loudFrames = 0;
+
+    public boolean onFrame(short[] pcm, int length) {
+        return onLevel(levelDb(pcm, length));
+    }
+
+    boolean onLevel(double db) {
+        if (!hasFloor) {
+            noiseFloorDb = db;
+            hasFloor = true;
+            return false;
+        }
+
+        boolean loud = db >= MIN_OPEN_DB && db >= noiseFloorDb + OPEN_MARGIN_DB;
+        if (loud) {
+            loudFrames++;
+            // Creep up under sustained loudness too, or a lasting step in road noise keeps reopening
+            noiseFloorDb += (db - noiseFloorDb) * FLOOR_RISE_LOUD;
+        } else {
+            loudFrames = 0;
+            noiseFloorDb += (db - noiseFloorDb) * (db < noiseFloorDb ? FLOOR_FALL : FLOOR_RISE);
+        }
+
+        if (loudFrames >= OPEN_FRAMES) {
+            loudFrames = 0;
+            return true;
+        }
+        return false;
+    }
+
+    // Keeps the learned noise floor; only the pending loud run is dropped
+    public void reset() {
+        loudFrames = 0;
+    }
+
+    public double getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    // RMS level in dBFS
+    static double levelDb(short[] pcm, int length) {
+        if (length <= 0) return SILENCE_DB;
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double sample = pcm[i];
+            sum += sample * sample;
+        }
+        double rms = Math.sqrt(sum / length) / 32768.0;
+        return rms <= 0 ? SILENCE_DB : Math.max(SILENCE_DB, 20 * Math.log10(rms));
+    }
+}
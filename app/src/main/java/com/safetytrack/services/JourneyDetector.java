@@ -3,189 +3,164 @@ package com.safetytrack.services;
 
 import android.Manifest;
 import android.content.Context;
-import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.content.ContextCompat;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
-import com.safetytrack.models.Trip;
+import com.google.android.gms.location.LocationRequest;
 import com.safetytrack.utils.FirebaseHelper;
-import com.safetytrack.utils.SessionManager;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-public class JourneyDetector {
+public class JourneyDetector implements JourneyStateMachine.Listener {
     private static final String TAG = "JourneyDetector";
-    private static final float MIN_SPEED_KPH = 10.0f;
     private static final long DETECTION_INTERVAL = 30000;
+    private static final long SAMPLING_WINDOW_MS = 180000; // 3 minutes of GPS per motion wake-up
+
+    // One thread for every detector, no matter how long the ride lasts
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor();
 
     private Context context;
-    private FusedLocationProviderClient fusedLocationClient;
+    private LocationEngine locationEngine;
+    private LocationEngine.Subscription locationSubscription;
     private FirebaseHelper firebaseHelper;
-    private SessionManager sessionManager;
-    private Timer detectionTimer;
+    private Handler mainHandler;
+    private MotionGate motionGate;
+    private final Runnable samplingCheck = this::checkSamplingWindow;
+    private JourneyStateMachine stateMachine;
+    private ScheduledFuture<?> tickFuture;
+    private Location lastLocation;
     private String currentTripId;
-    private boolean isJourneyActive;
 
     public JourneyDetector(Context context) {
         this.context = context;
-        this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+        this.locationEngine = LocationEngine.getInstance(context);
         this.firebaseHelper = new FirebaseHelper(context);
-        this.sessionManager = SessionManager.getInstance(context);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.stateMachine = new JourneyStateMachine(this);
+        this.motionGate = new MotionGate(context, this::onMotionLikely);
     }
 
     public void startDetection() {
-        if (detectionTimer != null) {
-            detectionTimer.cancel();
-        }
-
-        detectionTimer = new Timer();
-        detectionTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                checkIfDriving();
-            }
-        }, 0, DETECTION_INTERVAL);
-    }
-
-    private void checkIfDriving() {
         // Check location permission first
         if (ContextCompat.checkSelfPermission(context,
                 Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            Log.w(TAG, "Location permission not granted. Skipping location check.");
+            Log.w(TAG, "Location permission not granted. Skipping detection.");
             return;
         }
 
-        try {
-            fusedLocationClient.getLastLocation()
-                    .addOnSuccessListener(location -> {
-                        if (location != null && location.hasSpeed()) {
-                            float speedKph = location.getSpeed() * 3.6f;
-
-                            if (speedKph > MIN_SPEED_KPH && !isJourneyActive) {
-                                startJourney(location);
-                            } else if (speedKph < MIN_SPEED_KPH && isJourneyActive) {
-                                checkJourneyEnd(location);
-                            }
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to get location: " + e.getMessage());
-                    });
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException in location request: " + e.getMessage());
+        // GPS stays off until the motion gate says the phone is moving
+        if (locationSubscription == null) {
+            motionGate.arm();
         }
     }
 
-    private void startJourney(Location location) {
-        isJourneyActive = true;
-        Trip trip = new Trip(getUserId());
-        trip.setStartLat(location.getLatitude());
-        trip.setStartLng(location.getLongitude());
-
-        firebaseHelper.startTrip(trip, new FirebaseHelper.FirebaseCompleteListener() {
-            @Override
-            public void onSuccess(String tripId) {
-                currentTripId = tripId;
-                Log.d(TAG, "Journey started: " + currentTripId);
-                startLocationService();
-
-                // Save trip ID
-                SharedPreferences prefs = context.getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
-                prefs.edit().putString("currentTripId", currentTripId).apply();
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Error starting trip: " + error);
-                isJourneyActive = false;
-            }
-        });
-    }
-
-    private void checkJourneyEnd(Location location) {
-        Timer endTimer = new Timer();
-        endTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                // Check permission again
-                if (ContextCompat.checkSelfPermission(context,
-                        Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                    Log.w(TAG, "Location permission not granted. Cannot check journey end.");
-                    return;
-                }
-
-                fusedLocationClient.getLastLocation()
-                        .addOnSuccessListener(newLocation -> {
-                            if (newLocation != null && newLocation.hasSpeed()) {
-                                float speedKph = newLocation.getSpeed() * 3.6f;
-                                if (speedKph < MIN_SPEED_KPH) {
-                                    endJourney(newLocation);
-                                }
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Failed to get location for journey end check: " + e.getMessage());
-                        });
-            }
-        }, 300000); // 5 minutes
+    private void onMotionLikely() {
+        startSampling();
     }
 
-    private void endJourney(Location location) {
-        isJourneyActive = false;
+    private void startSampling() {
+        if (locationSubscription == null) {
+            Log.d(TAG, "📡 Sampling GPS speed");
+            locationSubscription = locationEngine.subscribe(this::checkIfDriving,
+                    DETECTION_INTERVAL, LocationRequest.PRIORITY_HIGH_ACCURACY, Looper.getMainLooper());
+        }
 
-        if (currentTripId != null) {
-            firebaseHelper.updateTripStatus(currentTripId, "completed",
-                    new FirebaseHelper.FirebaseCompleteListener() {
-                        @Override
-                        public void onSuccess(String message) {
-                            Log.d(TAG, "Journey ended: " + currentTripId);
-                            stopLocationService();
-
-                            // Clear trip ID
-                            SharedPreferences prefs = context.getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
-                            prefs.edit().remove("currentTripId").apply();
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            Log.e(TAG, "Error ending trip: " + error);
-                        }
-                    });
+        if (tickFuture == null) {
+            tickFuture = SCHEDULER.scheduleWithFixedDelay(
+                    () -> stateMachine.onTick(SystemClock.elapsedRealtime()),
+                    DETECTION_INTERVAL, DETECTION_INTERVAL, TimeUnit.MILLISECONDS);
         }
+
+        mainHandler.removeCallbacks(samplingCheck);
+        mainHandler.postDelayed(samplingCheck, SAMPLING_WINDOW_MS);
     }
 
-    private void startLocationService() {
-        Intent serviceIntent = new Intent(context, LocationService.class);
-        serviceIntent.putExtra("tripId", currentTripId);
+    private void stopSampling() {
+        mainHandler.removeCallbacks(samplingCheck);
+        if (locationSubscription != null) {
+            locationEngine.unsubscribe(locationSubscription);
+            locationSubscription = null;
+            Log.d(TAG, "💤 GPS sampling stopped");
+        }
+        if (tickFuture != null) {
+            tickFuture.cancel(false);
+            tickFuture = null;
+        }
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            context.startForegroundService(serviceIntent);
+    // Keeps sampling while a journey is possible or running, otherwise goes back to the motion gate
+    private void checkSamplingWindow() {
+        JourneyStateMachine.State state = stateMachine.getState();
+        if (state == JourneyStateMachine.State.IDLE || state == JourneyStateMachine.State.ENDED) {
+            stopSampling();
+            motionGate.arm();
         } else {
-            context.startService(serviceIntent);
+            mainHandler.postDelayed(samplingCheck, SAMPLING_WINDOW_MS);
+        }
+    }
+
+    private void checkIfDriving(Location location) {
+        if (location == null || !location.hasSpeed()) {
+            return;
         }
+
+        lastLocation = location;
+        float speedKph = location.getSpeed() * 3.6f;
+        long now = SystemClock.elapsedRealtime();
+        SCHEDULER.execute(() -> stateMachine.onSpeedSample(speedKph, now));
+    }
+
+    public JourneyStateMachine.State getState() {
+        return stateMachine.getState();
     }
 
-    private void stopLocationService() {
-        Intent serviceIntent = new Intent(context, LocationService.class);
-        context.stopService(serviceIntent);
+    // ========== STATE MACHINE CALLBACKS (scheduler thread) ==========
+
+    @Override
+    public void onJourneyStarted(long timestampMs) {
+        mainHandler.post(() -> startJourney(lastLocation));
     }
 
-    private String getUserId() {
-        return sessionManager.getUserId();
+    @Override
+    public void onJourneyEnded(long timestampMs) {
+        mainHandler.post(this::endJourney);
     }
 
-    public void stopDetection() {
-        if (detectionTimer != null) {
-            detectionTimer.cancel();
-            detectionTimer = null;
+    private void startJourney(Location location) {
+        // LocationService now drives GPS for the ride; keep reading its fixes for the end of the
+        // journey without holding the engine at high accuracy every 30 s
+        locationEngine.update(locationSubscription, DETECTION_INTERVAL, LocationRequest.PRIORITY_PASSIVE);
+
+        String activeTripId = LocationService.getActiveTripId();
+        if (activeTripId != null) {
+            // Someone else's journey (usually the Start button): leave starting and stopping it to them
+            Log.d(TAG, "Journey already running: " + activeTripId);
+            return;
+        }
+        currentTripId = JourneyStarter.start(context, firebaseHelper, location, SystemClock.elapsedRealtime());
+        Log.d(TAG, "Journey started: " + currentTripId);
+    }
+
+    private void endJourney() {
+        locationEngine.update(locationSubscription, DETECTION_INTERVAL, LocationRequest.PRIORITY_HIGH_ACCURACY);
+        if (currentTripId != null) {
+            JourneyStarter.stop(context, firebaseHelper, currentTripId);
+            Log.d(TAG, "Journey ended: " + currentTripId);
+            currentTripId = null;
         }
     }
-}
\ No newline at end of file
+
+    public void stopDetection() {
+        motionGate.disarm();
+        stopSampling();
+    }
+}
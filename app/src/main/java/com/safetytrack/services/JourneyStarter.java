@@ -0,0 +1,112 @@
+//services/JourneyStarter.java
+package com.safetytrack.services;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.os.Build;
+import android.util.Log;
+
+import com.safetytrack.models.Trip;
+import com.safetytrack.utils.FirebaseHelper;
+import com.safetytrack.utils.SessionManager;
+import com.safetytrack.utils.TripIds;
+
+/**
+ * Journey start/stop shared by the manual button and auto-detection.
+ *
+ * Start never waits on the network: the trip id is issued locally and LocationService is started
+ * straight away, where contacts come from ContactRepository's on-device copy and the first fix is
+ * requested in parallel. The Firestore trip document is written under the same id afterwards;
+ * Firestore keeps pending writes in order while offline, and both writes merge into the same
+ * document, so an offline start/stop still ends up as one completed trip.
+ */
+public final class JourneyStarter {
+    private static final String TAG = "JourneyStarter";
+
+    public static final String EXTRA_TRIP_ID = "tripId";
+    // SystemClock.elapsedRealtime() of the tap, for the tap-to-first-SMS metric
+    public static final String EXTRA_REQUESTED_AT = "journeyRequestedAt";
+    public static final String KEY_CURRENT_TRIP_ID = "currentTripId";
+
+    private JourneyStarter() {
+    }
+
+    // Returns the local trip id, or the running trip's id when a journey is already active
+    public static String start(Context context, FirebaseHelper firebaseHelper,
+                               Location startLocation, long requestedAt) {
+        String activeTripId = LocationService.getActiveTripId();
+        if (activeTripId != null) {
+            Log.d(TAG, "↩️ Journey " + activeTripId + " already running");
+            return activeTripId;
+        }
+
+        String tripId = TripIds.next();
+
+        Intent serviceIntent = new Intent(context, LocationService.class);
+        serviceIntent.putExtra(EXTRA_TRIP_ID, tripId);
+        serviceIntent.putExtra(EXTRA_REQUESTED_AT, requestedAt);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(serviceIntent);
+            } else {
+                context.startService(serviceIntent);
+            }
+            Log.d(TAG, "✅ LocationService started for " + tripId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting LocationService: " + e.getMessage());
+        }
+
+        prefs(context).edit().putString(KEY_CURRENT_TRIP_ID, tripId).apply();
+
+        // Reconcile with Firestore in the background
+        Trip trip = new Trip(SessionManager.getInstance(context).getUserId());
+        if (startLocation != null) {
+            trip.setStartLat(startLocation.getLatitude());
+            trip.setStartLng(startLocation.getLongitude());
+        }
+        firebaseHelper.startTrip(tripId, trip, new FirebaseHelper.FirebaseCompleteListener() {
+            @Override
+            public void onSuccess(String message) {
+                Log.d(TAG, "☁️ Trip " + tripId + " saved to Firestore");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "❌ Trip " + tripId + " not saved: " + error);
+            }
+        });
+        return tripId;
+    }
+
+    public static void stop(Context context, FirebaseHelper firebaseHelper, String tripId) {
+        try {
+            context.stopService(new Intent(context, LocationService.class));
+            Log.d(TAG, "🛑 LocationService stopped");
+        } catch (Exception e) {
+            Log.e(TAG, "Error stopping LocationService: " + e.getMessage());
+        }
+
+        prefs(context).edit().remove(KEY_CURRENT_TRIP_ID).apply();
+
+        if (tripId == null) {
+            return;
+        }
+        firebaseHelper.updateTripStatus(tripId, "completed", new FirebaseHelper.FirebaseCompleteListener() {
+            @Override
+            public void onSuccess(String message) {
+                Log.d(TAG, "☁️ Trip " + tripId + " completed");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "❌ Trip " + tripId + " not completed: " + error);
+            }
+        });
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,89 @@
+//JourneyStateMachine.java
+package com.safetytrack.services;
+
+/**
+ * Journey detection as an explicit state machine:
+ * IDLE → CANDIDATE → ACTIVE → STOPPING → ENDED (→ IDLE).
+ *
+ * Start and stop use different speed thresholds and confirmation windows so that slow traffic
+ * or a single noisy sample never starts or ends a journey. The machine is plain Java and is
+ * driven by the caller with speed samples and clock ticks, which keeps it testable on the JVM.
+ */
+public class JourneyStateMachine {
+
+    public enum State { IDLE, CANDIDATE, ACTIVE, STOPPING, ENDED }
+
+    public interface Listener {
+        void onJourneyStarted(long timestampMs);
+        void onJourneyEnded(long timestampMs);
+    }
+
+    static final float START_SPEED_KPH = 10.0f;
+    static final float STOP_SPEED_KPH = 6.0f;
+    static final long CANDIDATE_CONFIRM_MS = 60000;   // 1 minute above start speed
+    static final long STOP_CONFIRM_MS = 300000;       // 5 minutes below stop speed
+
+    private final Listener listener;
+    private volatile State state = State.IDLE;
+    private long stateSince = 0;
+
+    public JourneyStateMachine(Listener listener) {
+        this.listener = listener;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void onSpeedSample(float speedKph, long timestampMs) {
+        switch (state) {
+            case IDLE:
+                if (speedKph > START_SPEED_KPH) {
+                    enter(State.CANDIDATE, timestampMs);
+                }
+                break;
+            case CANDIDATE:
+                if (speedKph <= START_SPEED_KPH) {
+                    enter(State.IDLE, timestampMs);
+                } else if (timestampMs - stateSince >= CANDIDATE_CONFIRM_MS) {
+                    enter(State.ACTIVE, timestampMs);
+                    listener.onJourneyStarted(timestampMs);
+                }
+                break;
+            case ACTIVE:
+                if (speedKph < STOP_SPEED_KPH) {
+                    enter(State.STOPPING, timestampMs);
+                }
+                break;
+            case STOPPING:
+                if (speedKph > START_SPEED_KPH) {
+                    enter(State.ACTIVE, timestampMs);
+                } else {
+                    onTick(timestampMs);
+                }
+                break;
+            case ENDED:
+                enter(State.IDLE, timestampMs);
+                onSpeedSample(speedKph, timestampMs);
+                break;
+        }
+    }
+
+    // Called periodically so a journey can end even when no new fixes arrive (e.g. parked indoors)
+    public void onTick(long timestampMs) {
+        if (state == State.STOPPING && timestampMs - stateSince >= STOP_CONFIRM_MS) {
+            enter(State.ENDED, timestampMs);
+            listener.onJourneyEnded(timestampMs);
+        }
+    }
+
+    public void reset() {
+        state = State.IDLE;
+        stateSince = 0;
+    }
+
+    private void enter(State next, long timestampMs) {
+        state = next;
+        stateSince = timestampMs;
+    }
+}
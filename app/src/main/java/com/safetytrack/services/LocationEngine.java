@@ -0,0 +1,238 @@
+//LocationEngine.java
+package com.safetytrack.services;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Owns the app's single FusedLocationProviderClient subscription. Each consumer subscribes with
+ * the update interval and priority it needs; the engine requests the cheapest location updates
+ * that satisfy all of them (fastest interval, most accurate priority) and fans every fix out to
+ * the subscribers through per-subscriber lock-free queues drained on the subscriber's looper.
+ * PRIORITY_PASSIVE subscribers receive those fixes without raising the request.
+ */
+public class LocationEngine {
+    private static final String TAG = "LocationEngine";
+    // A fix is delivered once at least this fraction of the subscriber's interval has elapsed
+    private static final float DELIVERY_SLACK = 0.9f;
+
+    private static LocationEngine instance;
+
+    public interface Subscriber {
+        void onLocation(Location location);
+    }
+
+    public static final class Subscription {
+        private final Subscriber subscriber;
+        private final Handler handler;
+        private final ConcurrentLinkedQueue<Location> inbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+        private final Runnable drainRunnable = this::drain;
+        private volatile long intervalMs;
+        private volatile int priority;
+        private volatile long lastDeliveredAt = 0;
+
+        private Subscription(Subscriber subscriber, long intervalMs, int priority, Looper looper) {
+            this.subscriber = subscriber;
+            this.intervalMs = intervalMs;
+            this.priority = priority;
+            this.handler = new Handler(looper);
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        private void offer(Location location) {
+            long elapsed = location.getTime() - lastDeliveredAt;
+            if (elapsed < intervalMs * DELIVERY_SLACK) {
+                return; // subscriber asked for a slower rate than the engine is running at
+            }
+            lastDeliveredAt = location.getTime();
+            inbox.offer(location);
+            if (drainScheduled.compareAndSet(false, true)) {
+                handler.post(drainRunnable);
+            }
+        }
+
+        private void drain() {
+            drainScheduled.set(false);
+            Location location;
+            while ((location = inbox.poll()) != null) {
+                subscriber.onLocation(location);
+            }
+        }
+    }
+
+    private final Context context;
+    private final FusedLocationProviderClient fusedLocationClient;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Looper engineLooper;
+    private final LocationCallback locationCallback;
+
+    private volatile Location lastLocation;
+    private long activeIntervalMs = 0;
+    private int activePriority = 0;
+
+    private LocationEngine(Context context) {
+        this.context = context;
+        this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+
+        HandlerThread thread = new HandlerThread("LocationEngine");
+        thread.start();
+        this.engineLooper = thread.getLooper();
+
+        this.locationCallback = new LocationCallback() {
+            @Override
+            public void onLocationResult(LocationResult locationResult) {
+                if (locationResult == null) return;
+                for (Location location : locationResult.getLocations()) {
+                    publish(location);
+                }
+            }
+        };
+    }
+
+    public static synchronized LocationEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public Subscription subscribe(Subscriber subscriber, long intervalMs, int priority, Looper looper) {
+        Subscription subscription = new Subscription(subscriber, intervalMs, priority, looper);
+        subscriptions.add(subscription);
+        Log.d(TAG, "➕ Subscriber added (" + intervalMs + " ms, priority " + priority + ")");
+        reconfigure();
+
+        // Hand over the cached fix only if it is still fresh for this subscriber's interval
+        Location cached = lastLocation;
+        if (cached != null && ageMs(cached) <= intervalMs) {
+            subscription.offer(cached);
+        }
+        return subscription;
+    }
+
+    public void update(Subscription subscription, long intervalMs, int priority) {
+        if (subscription == null) return;
+        if (subscription.intervalMs == intervalMs && subscription.priority == priority) return;
+        subscription.intervalMs = intervalMs;
+        subscription.priority = priority;
+        reconfigure();
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        if (subscription == null) return;
+        if (subscriptions.remove(subscription)) {
+            subscription.handler.removeCallbacks(subscription.drainRunnable);
+            Log.d(TAG, "➖ Subscriber removed");
+            reconfigure();
+        }
+    }
+
+    // Requests refused for a missing permission are retried once the user grants it
+    public void onPermissionGranted() {
+        Log.d(TAG, "🔓 Location permission granted, retrying request");
+        reconfigure();
+    }
+
+    public Location getLastLocation() {
+        return lastLocation;
+    }
+
+    public synchronized long getActiveIntervalMs() {
+        return activeIntervalMs;
+    }
+
+    public synchronized int getActivePriority() {
+        return activePriority;
+    }
+
+    private static long ageMs(Location location) {
+        return (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1_000_000L;
+    }
+
+    private void publish(Location location) {
+        lastLocation = location;
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(location);
+        }
+    }
+
+    // Picks the cheapest request that satisfies every subscriber and re-requests only on change
+    private synchronized void reconfigure() {
+        long intervalMs = Long.MAX_VALUE;
+        int priority = Integer.MAX_VALUE;
+        // Passive subscribers ride along on fixes requested by others and only set the request
+        // when nobody else is subscribed
+        boolean onlyPassive = true;
+        for (Subscription subscription : subscriptions) {
+            onlyPassive &= subscription.priority == LocationRequest.PRIORITY_PASSIVE;
+        }
+        for (Subscription subscription : subscriptions) {
+            if (!onlyPassive && subscription.priority == LocationRequest.PRIORITY_PASSIVE) continue;
+            intervalMs = Math.min(intervalMs, subscription.intervalMs);
+            // Lower constant means more accurate (HIGH_ACCURACY = 100 ... PASSIVE = 105)
+            priority = Math.min(priority, subscription.priority);
+        }
+
+        if (subscriptions.isEmpty()) {
+            if (activeIntervalMs != 0) {
+                fusedLocationClient.removeLocationUpdates(locationCallback);
+                activeIntervalMs = 0;
+                activePriority = 0;
+                Log.d(TAG, "🛑 Location updates stopped (no subscribers)");
+            }
+            return;
+        }
+
+        if (intervalMs == activeIntervalMs && priority == activePriority) {
+            return;
+        }
+
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            // activeIntervalMs is left as is, so onPermissionGranted() re-requests
+            Log.e(TAG, "❌ Location permission not granted");
+            return;
+        }
+
+        LocationRequest locationRequest = new LocationRequest.Builder(priority, intervalMs)
+                .setMinUpdateIntervalMillis(intervalMs / 2)
+                .build();
+
+        try {
+            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, engineLooper);
+            activeIntervalMs = intervalMs;
+            activePriority = priority;
+            Log.d(TAG, "📡 Location updates every " + intervalMs + " ms, priority " + priority
+                    + " for " + subscriptions.size() + " subscribers");
+        } catch (SecurityException e) {
+            Log.e(TAG, "❌ Location permission error: " + e.getMessage());
+        }
+    }
+}
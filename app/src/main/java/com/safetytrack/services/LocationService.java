@@ -5,7 +5,6 @@ import android.Manifest;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -13,25 +12,28 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.BatteryManager;
+import android.os.Binder;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
-import android.telephony.SmsManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
-import com.google.android.gms.location.LocationServices;
 import com.safetytrack.R;
+import com.safetytrack.utils.CompactSmsEncoder;
+import com.safetytrack.utils.ContactRepository;
 import com.safetytrack.utils.FirebaseHelper;
+import com.safetytrack.utils.LocationJournal;
 import com.safetytrack.utils.SessionManager;
+import com.safetytrack.utils.SmsDispatcher;
+import com.safetytrack.utils.SpatialIndex;
+import com.safetytrack.utils.TrajectoryCodec;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -44,30 +46,71 @@ public class LocationService extends Service {
     private static final String CHANNEL_ID = "SafetyTrackJourneyChannel";
     private static final int NOTIFICATION_ID = 1;
     private static final long LOCATION_UPDATE_INTERVAL = 120000; // 2 minutes
-    private static final String SMS_SENT_ACTION = "com.safetytrack.SMS_SENT";
-    private static final String SMS_DELIVERED_ACTION = "com.safetytrack.SMS_DELIVERED";
+    public static final String KEY_COMPACT_SMS = "compactJourneyUpdates";
+    // Simplified trace stays within this distance of every recorded fix
+    private static final double TRACE_TOLERANCE_M = 5.0;
 
-    private FusedLocationProviderClient fusedLocationClient;
+    // Trip the running service is recording, or null; JourneyStarter joins it instead of starting another
+    private static volatile String activeTripId;
+
+    private LocationEngine locationEngine;
+    private LocationEngine.Subscription locationSubscription;
+    private AdaptiveLocationScheduler adaptiveScheduler;
     private FirebaseHelper firebaseHelper;
     private SessionManager sessionManager;
+    private LocationJournal locationJournal;
+    private SpatialIndex spatialIndex;
+    private SmsDispatcher smsDispatcher;
+    private final CompactSmsEncoder compactSmsEncoder = new CompactSmsEncoder();
 
     private Handler handler;
     private Runnable locationRunnable;
 
     private String currentTripId;
+    private ContactRepository contactRepository;
+    private final ContactRepository.Listener contactsListener = contacts -> applyEmergencyContacts();
     private List<String> emergencyPhoneNumbers = new ArrayList<>();
     private SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a, dd MMM", Locale.getDefault());
     private boolean isSmsPermissionGranted = false;
     private boolean isRunning = false;
+    private boolean awaitingFix = false;
+    private long lastJournaledTime = 0;
+
+    private final IBinder binder = new LocalBinder();
+    private final List<StateListener> stateListeners = new ArrayList<>();
+    private Location lastSentLocation;
+    private long lastSentAt = 0;
+    private long journeyRequestedAt = 0;
+    private final TripAggregator tripAggregator = new TripAggregator();
+    private final TrajectoryCodec.Track tripTrack = new TrajectoryCodec.Track();
+    private long firstSmsLatencyMs = -1;
+
+    // Tap to first SMS counts until the radio accepts it, so rate limiting, retries and radio failures are in
+    private final SmsDispatcher.SendListener smsSentListener = (messageId, priority, phone) -> {
+        if (priority == SmsDispatcher.Priority.JOURNEY_UPDATE && journeyRequestedAt > 0) {
+            firstSmsLatencyMs = SystemClock.elapsedRealtime() - journeyRequestedAt;
+            journeyRequestedAt = 0;
+            Log.d(TAG, "⏱️ Tap to first SMS sent: " + firstSmsLatencyMs + " ms");
+        }
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        locationEngine = LocationEngine.getInstance(this);
+        adaptiveScheduler = new AdaptiveLocationScheduler(this, (mode, intervalMs, priority) ->
+                locationEngine.update(locationSubscription, intervalMs, priority));
         firebaseHelper = new FirebaseHelper(this);
         sessionManager = SessionManager.getInstance(this);
+        locationJournal = LocationJournal.getInstance(this);
+        spatialIndex = SpatialIndex.getInstance(this);
+        smsDispatcher = SmsDispatcher.getInstance(this);
+        smsDispatcher.addSendListener(smsSentListener);
         handler = new Handler(Looper.getMainLooper());
 
+        // Replay anything left over from a previous run that never reached Firestore
+        locationJournal.requestDrain();
+
         checkSmsPermission();
         createNotificationChannel();
 
@@ -85,9 +128,33 @@ public class LocationService extends Service {
         Log.d(TAG, "LocationService onStartCommand");
 
         if (intent != null) {
-            currentTripId = intent.getStringExtra("tripId");
+            String tripId = intent.getStringExtra(JourneyStarter.EXTRA_TRIP_ID);
+            if (tripId != null && !tripId.equals(currentTripId)) {
+                // Write the replaced trip's stats and trace before they are reset
+                saveTripSummary();
+                tripAggregator.reset();
+                synchronized (tripTrack) {
+                    tripTrack.clear();
+                }
+                // The first compact update of a trip carries full coordinates, not a delta from the last ride
+                compactSmsEncoder.reset();
+            }
+            currentTripId = tripId;
+            journeyRequestedAt = intent.getLongExtra(JourneyStarter.EXTRA_REQUESTED_AT, 0);
+            firstSmsLatencyMs = -1;
             Log.d(TAG, "Received tripId: " + currentTripId);
+        } else if (currentTripId == null) {
+            // Restarted by the system after the process was killed: carry on with the same trip
+            currentTripId = getSharedPreferences("SafetyTrack", MODE_PRIVATE)
+                    .getString(JourneyStarter.KEY_CURRENT_TRIP_ID, null);
+            if (currentTripId == null) {
+                Log.w(TAG, "⚠️ Restarted with no journey to resume");
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+            Log.d(TAG, "♻️ Resumed trip " + currentTripId + " after restart");
         }
+        activeTripId = currentTripId;
 
         checkSmsPermission();
 
@@ -102,91 +169,28 @@ public class LocationService extends Service {
         return START_STICKY;
     }
 
+    // The repository already holds the contacts (from Firestore or the local store), so the
+    // journey starts without waiting on the network and picks up later edits by itself
     private void loadEmergencyContactsAndStart() {
-        emergencyPhoneNumbers.clear();
-
-        Log.d(TAG, "Loading emergency contacts...");
-
-        firebaseHelper.loadContactsFromFirestore(new FirebaseHelper.FirebaseContactsListener() {
-            @Override
-            public void onSuccess(List<com.safetytrack.models.Contact> contacts) {
-                emergencyPhoneNumbers.clear();
-
-                for (com.safetytrack.models.Contact contact : contacts) {
-                    if (contact.isSelected()) {
-                        String phone = contact.getPhoneNumber();
-                        if (phone != null && !phone.isEmpty()) {
-                            // ✅ FIXED: Remove ALL non-digit characters first
-                            String cleanPhone = phone.replaceAll("[^0-9]", "");
-
-                            // ✅ FIXED: Check if it already has country code
-                            if (cleanPhone.length() == 10) {
-                                // 10 digit number - add +91
-                                cleanPhone = "+91" + cleanPhone;
-                            } else if (cleanPhone.length() == 12 && cleanPhone.startsWith("91")) {
-                                // 12 digits starting with 91 - add + at front
-                                cleanPhone = "+" + cleanPhone;
-                            } else if (cleanPhone.length() > 12) {
-                                // Already has country code, just add + at front if missing
-                                cleanPhone = "+" + cleanPhone.replaceAll("^\\+?", "");
-                            }
-
-                            // ✅ FINAL CHECK: Ensure no double +91
-                            cleanPhone = cleanPhone.replace("++", "+");
-                            cleanPhone = cleanPhone.replace("+91+91", "+91");
-
-                            emergencyPhoneNumbers.add(cleanPhone);
-                            Log.d(TAG, "✅ Added contact: " + cleanPhone);
-                        }
-                    }
-                }
-
-                Log.d(TAG, "✅ Loaded " + emergencyPhoneNumbers.size() + " emergency contacts");
-
-                // ✅ Log all contacts for debugging
-                for (int i = 0; i < emergencyPhoneNumbers.size(); i++) {
-                    Log.d(TAG, "   Contact " + (i+1) + ": " + emergencyPhoneNumbers.get(i));
-                }
+        contactRepository = ContactRepository.getInstance(this);
+        contactRepository.addListener(contactsListener);
+        applyEmergencyContacts();
+        startRepeatingLocationTask();
+    }
 
-                updateNotification("🏍️ Journey Active",
-                        "📍 Tracking " + emergencyPhoneNumbers.size() + " contacts");
+    private void applyEmergencyContacts() {
+        boolean hadContacts = !emergencyPhoneNumbers.isEmpty();
+        emergencyPhoneNumbers = contactRepository.getSelectedPhones();
+        Log.d(TAG, "✅ Loaded " + emergencyPhoneNumbers.size() + " emergency contacts");
 
-                startRepeatingLocationTask();
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "❌ Failed to load contacts: " + error);
-                loadContactsFromPreferences();
-            }
-        });
-    }
+        updateNotification("🏍️ Journey Active",
+                "📍 Tracking " + emergencyPhoneNumbers.size() + " contacts");
 
-    private void loadContactsFromPreferences() {
-        android.content.SharedPreferences prefs = getSharedPreferences("SafetyTrack", MODE_PRIVATE);
-        String contactsJson = prefs.getString("emergencyContacts", "");
-
-        if (!contactsJson.isEmpty()) {
-            String[] contactsArray = contactsJson.split(",");
-            for (String contact : contactsArray) {
-                if (!contact.trim().isEmpty()) {
-                    String[] parts = contact.split("\n");
-                    if (parts.length >= 2) {
-                        String phone = parts[1].replaceAll("[^0-9+]", "");
-                        if (!phone.isEmpty()) {
-                            if (!phone.startsWith("+")) {
-                                phone = "+91" + phone;
-                            }
-                            emergencyPhoneNumbers.add(phone);
-                            Log.d(TAG, "Added contact from prefs: " + phone);
-                        }
-                    }
-                }
-            }
-            Log.d(TAG, "✅ Loaded " + emergencyPhoneNumbers.size() + " contacts from preferences");
+        // Nothing was cached on the device: send the first update as soon as Firestore answers
+        // instead of waiting for the next 2-minute tick
+        if (isRunning && !hadContacts && lastSentAt == 0 && !emergencyPhoneNumbers.isEmpty()) {
+            fetchAndSendLocation();
         }
-
-        startRepeatingLocationTask();
     }
 
     private void startRepeatingLocationTask() {
@@ -194,6 +198,12 @@ public class LocationService extends Service {
             handler.removeCallbacks(locationRunnable);
         }
 
+        if (locationSubscription == null) {
+            locationSubscription = locationEngine.subscribe(this::onEngineLocation,
+                    LOCATION_UPDATE_INTERVAL, LocationRequest.PRIORITY_HIGH_ACCURACY, Looper.getMainLooper());
+            adaptiveScheduler.start();
+        }
+
         locationRunnable = new Runnable() {
             @Override
             public void run() {
@@ -236,49 +246,51 @@ public class LocationService extends Service {
             return;
         }
 
-        try {
-            fusedLocationClient.getLastLocation()
-                    .addOnSuccessListener(location -> {
-                        if (location != null) {
-                            Log.d(TAG, "📍 Location fetched: " + location.getLatitude() + ", " + location.getLongitude());
-                            sendLocationSms(location);
-                        } else {
-                            Log.w(TAG, "⚠️ Location is null");
-                            requestNewLocation();
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to get location: " + e.getMessage());
-                    });
-        } catch (SecurityException e) {
-            Log.e(TAG, "❌ Location permission error: " + e.getMessage());
+        Location location = locationEngine.getLastLocation();
+        if (location != null && System.currentTimeMillis() - location.getTime() < LOCATION_UPDATE_INTERVAL) {
+            Log.d(TAG, "📍 Location fetched: " + location.getLatitude() + ", " + location.getLongitude());
+            awaitingFix = false;
+            journalLocation(location);
+            sendLocationSms(location);
+        } else {
+            // No fresh fix yet - send as soon as the engine delivers one
+            Log.w(TAG, "⚠️ No fresh location, waiting for next fix");
+            awaitingFix = true;
         }
     }
 
-    private void requestNewLocation() {
-        LocationRequest locationRequest = LocationRequest.create()
-                .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY)
-                .setInterval(1000)
-                .setNumUpdates(1);
-
-        if (checkLocationPermission()) {
-            try {
-                fusedLocationClient.requestLocationUpdates(locationRequest,
-                        new LocationCallback() {
-                            @Override
-                            public void onLocationResult(LocationResult locationResult) {
-                                if (locationResult != null && locationResult.getLastLocation() != null) {
-                                    Location location = locationResult.getLastLocation();
-                                    Log.d(TAG, "📍 New location fetched");
-                                    sendLocationSms(location);
-                                }
-                                fusedLocationClient.removeLocationUpdates(this);
-                            }
-                        }, Looper.getMainLooper());
-            } catch (SecurityException e) {
-                Log.e(TAG, "❌ Location permission error: " + e.getMessage());
+    private void onEngineLocation(Location location) {
+        adaptiveScheduler.onLocation(location);
+        if (isRunning) {
+            float accuracy = location.hasAccuracy() ? location.getAccuracy() : Float.MAX_VALUE;
+            tripAggregator.onFix(location.getLatitude(), location.getLongitude(), accuracy, location.getTime());
+            if (accuracy <= TripAggregator.MAX_ACCURACY_M) {
+                synchronized (tripTrack) {
+                    tripTrack.add(location.getTime(), location.getLatitude(), location.getLongitude());
+                }
+                journalLocation(location);
             }
         }
+
+        if (awaitingFix && isRunning) {
+            awaitingFix = false;
+            Log.d(TAG, "📍 New location fetched");
+            journalLocation(location);
+            sendLocationSms(location);
+        }
+    }
+
+    // Every accepted fix is journaled; the fix an SMS reuses is skipped if it already was
+    private void journalLocation(Location location) {
+        // Fix time, not journal time: a replayed or late fix keeps its own stamp and document id
+        long timestamp = location.getTime();
+        if (timestamp == lastJournaledTime) return;
+        lastJournaledTime = timestamp;
+        locationJournal.append(currentTripId, timestamp,
+                location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Float.NaN, getBatteryLevel());
+        locationJournal.requestDrain();
+        spatialIndex.add(currentTripId, timestamp, location.getLatitude(), location.getLongitude());
     }
 
     private void sendLocationSms(Location location) {
@@ -287,53 +299,27 @@ public class LocationService extends Service {
             return;
         }
 
-        String message = generateJourneyUpdateMessage(location);
-        Log.d(TAG, "📱 Sending SMS to " + emergencyPhoneNumbers.size() + " contacts");
-
-        try {
-            SmsManager smsManager = SmsManager.getDefault();
-            int successCount = 0;
-
-            for (String phone : emergencyPhoneNumbers) {
-                try {
-                    if (phone == null || phone.trim().isEmpty()) {
-                        continue;
-                    }
-
-                    int requestCode = phone.hashCode();
-                    Intent sentIntent = new Intent(SMS_SENT_ACTION);
-                    sentIntent.putExtra("phone", phone);
-                    sentIntent.putExtra("type", "JOURNEY_UPDATE");
-                    PendingIntent sentPI = PendingIntent.getBroadcast(
-                            this, requestCode, sentIntent, PendingIntent.FLAG_IMMUTABLE);
-
-                    Intent deliveredIntent = new Intent(SMS_DELIVERED_ACTION);
-                    deliveredIntent.putExtra("phone", phone);
-                    deliveredIntent.putExtra("type", "JOURNEY_UPDATE");
-                    PendingIntent deliveredPI = PendingIntent.getBroadcast(
-                            this, requestCode, deliveredIntent, PendingIntent.FLAG_IMMUTABLE);
-
-                    smsManager.sendTextMessage(phone, null, message, sentPI, deliveredPI);
-                    Log.d(TAG, "✅ SMS sent to: " + phone);
-                    successCount++;
-
-                } catch (SecurityException e) {
-                    Log.e(TAG, "❌ SMS permission denied for " + phone);
-                    isSmsPermissionGranted = false;
-                } catch (Exception e) {
-                    Log.e(TAG, "❌ Failed to send SMS to " + phone + ": " + e.getMessage());
-                }
-            }
-
-            if (successCount > 0) {
-                Log.d(TAG, "✅ Successfully sent " + successCount + " SMS messages");
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "❌ SMS Manager error: " + e.getMessage());
+        String message = isCompactSmsEnabled(this)
+                ? compactSmsEncoder.encode(location.getLatitude(), location.getLongitude(),
+                        System.currentTimeMillis(), (int) getBatteryLevel())
+                : generateJourneyUpdateMessage(location);
+        int queued = smsDispatcher.sendToAll(emergencyPhoneNumbers, message,
+                SmsDispatcher.Priority.JOURNEY_UPDATE);
+        Log.d(TAG, "📱 Queued journey update for " + queued + " contacts");
+
+        lastSentLocation = location;
+        lastSentAt = System.currentTimeMillis();
+        for (StateListener listener : new ArrayList<>(stateListeners)) {
+            listener.onJourneyUpdateSent(location, lastSentAt, queued);
         }
     }
 
+    // Compact single-segment GSM-7 updates are opt-in; contacts get the emoji text unless the user switches
+    public static boolean isCompactSmsEnabled(Context context) {
+        return context.getSharedPreferences("SafetyTrack", MODE_PRIVATE)
+                .getBoolean(KEY_COMPACT_SMS, false);
+    }
+
     private String generateJourneyUpdateMessage(Location location) {
         double lat = location.getLatitude();
         double lng = location.getLongitude();
@@ -351,12 +337,56 @@ public class LocationService extends Service {
 
     public void stopRepeatingTask() {
         isRunning = false;
+        awaitingFix = false;
+        if (locationSubscription != null) {
+            locationEngine.unsubscribe(locationSubscription);
+            locationSubscription = null;
+            adaptiveScheduler.stop();
+            saveGpsUsage();
+        }
         if (handler != null && locationRunnable != null) {
             handler.removeCallbacks(locationRunnable);
             Log.d(TAG, "🛑 2-minute repeating SMS task stopped");
         }
     }
 
+    private void saveGpsUsage() {
+        getSharedPreferences("SafetyTrack", MODE_PRIVATE).edit()
+                .putString("lastTripGpsTripId", currentTripId)
+                .putLong("lastTripGpsOnMs", adaptiveScheduler.getHighAccuracyMs())
+                .putLong("lastTripDurationMs", adaptiveScheduler.getTripDurationMs())
+                .apply();
+    }
+
+    // The service outlives the Dashboard, so the trip's stats are written from here
+    private void saveTripSummary() {
+        TripAggregator.Summary summary = tripAggregator.snapshot();
+        if (currentTripId == null || summary.acceptedFixes == 0) {
+            return;
+        }
+
+        byte[] trace = null;
+        synchronized (tripTrack) {
+            if (tripTrack.size() > 0) {
+                trace = TrajectoryCodec.encode(tripTrack, TRACE_TOLERANCE_M);
+                Log.d(TAG, "🗺️ Trace: " + tripTrack.size() + " fixes -> " + trace.length + " bytes");
+            }
+        }
+
+        Log.d(TAG, "📊 Trip " + currentTripId + ": " + summary);
+        firebaseHelper.saveTripSummary(currentTripId, summary, trace, new FirebaseHelper.FirebaseCompleteListener() {
+            @Override
+            public void onSuccess(String message) {
+                Log.d(TAG, "☁️ Trip summary saved");
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "❌ " + error);
+            }
+        });
+    }
+
     private boolean checkLocationPermission() {
         return ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 == PackageManager.PERMISSION_GRANTED;
@@ -414,11 +444,73 @@ public class LocationService extends Service {
     public void onDestroy() {
         super.onDestroy();
         stopRepeatingTask();
+        saveTripSummary();
+        activeTripId = null;
+        smsDispatcher.removeSendListener(smsSentListener);
+        if (contactRepository != null) {
+            contactRepository.removeListener(contactsListener);
+        }
         Log.d(TAG, "LocationService destroyed");
     }
 
+    // ========== BINDER ==========
+    // The service owns the periodic update schedule; bound clients only observe it
+
+    public interface StateListener {
+        void onJourneyUpdateSent(Location location, long sentAt, int contactCount);
+    }
+
+    public class LocalBinder extends Binder {
+        public LocationService getService() {
+            return LocationService.this;
+        }
+    }
+
+    public void addStateListener(StateListener listener) {
+        if (!stateListeners.contains(listener)) {
+            stateListeners.add(listener);
+        }
+    }
+
+    public void removeStateListener(StateListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    public boolean isTracking() {
+        return isRunning;
+    }
+
+    public Location getLastSentLocation() {
+        return lastSentLocation;
+    }
+
+    public long getLastSentAt() {
+        return lastSentAt;
+    }
+
+    public int getContactCount() {
+        return emergencyPhoneNumbers.size();
+    }
+
+    public TripAggregator.Summary getTripSummary() {
+        return tripAggregator.snapshot();
+    }
+
+    // Time from the start tap until the radio accepted the first journey SMS, or -1
+    public long getFirstSmsLatencyMs() {
+        return firstSmsLatencyMs;
+    }
+
+    public String getCurrentTripId() {
+        return currentTripId;
+    }
+
+    public static String getActiveTripId() {
+        return activeTripId;
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
 }
\ No newline at end of file
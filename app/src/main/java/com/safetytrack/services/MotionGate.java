@@ -0,0 +1,163 @@
+//MotionGate.java
+package com.safetytrack.services;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.location.LocationRequest;
+
+/**
+ * Wakes journey detection only when the phone is likely moving. Uses the hardware
+ * significant-motion sensor, which stays in the sensor hub and costs almost nothing while the
+ * phone sits still. The sensor is one-shot, so the caller re-arms it after each trigger.
+ * Devices without the sensor fall back to a slow periodic wake-up. Each wake-up first does a
+ * cheap displacement check (a recent last-known fix, or one BALANCED_POWER fix), and only reports
+ * motion when the phone has moved away from the previous check or reports a travelling speed;
+ * otherwise the caller's long HIGH_ACCURACY sampling window would run every few minutes while idle.
+ */
+public class MotionGate {
+    private static final String TAG = "MotionGate";
+    private static final long FALLBACK_WAKE_INTERVAL = 300000; // 5 minutes
+    private static final long CHECK_INTERVAL_MS = 5000;
+    private static final long CHECK_TIMEOUT_MS = 30000;
+    private static final long MAX_LAST_FIX_AGE_MS = 60000;
+    private static final float MIN_DISPLACEMENT_M = 200;   // beyond network-fix wander
+    private static final float MIN_MOVING_SPEED_MPS = 3;   // ~11 km/h
+
+    public interface Listener {
+        void onMotionLikely();
+    }
+
+    private final SensorManager sensorManager;
+    private final Sensor significantMotion;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private final Runnable fallbackWake = this::checkDisplacement;
+    private final Runnable checkTimeout = this::onCheckTimeout;
+    private final LocationEngine locationEngine;
+    private LocationEngine.Subscription checkSubscription;
+    private long checkStartedAtNanos;
+    private Location anchor;
+    private boolean armed = false;
+
+    private final TriggerEventListener triggerListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            armed = false;
+            Log.d(TAG, "🚶 Significant motion detected");
+            listener.onMotionLikely();
+        }
+    };
+
+    public MotionGate(Context context, Listener listener) {
+        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        this.significantMotion = sensorManager != null
+                ? sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION) : null;
+        this.listener = listener;
+        this.locationEngine = LocationEngine.getInstance(context);
+
+        if (significantMotion == null) {
+            Log.w(TAG, "⚠️ No significant-motion sensor, falling back to periodic wake-ups");
+        }
+    }
+
+    public void arm() {
+        if (armed) return;
+        armed = true;
+        // Where the phone is now, for free if sampling just stopped; otherwise the first check sets it
+        Location last = locationEngine.getLastLocation();
+        anchor = last != null && ageMs(last) <= MAX_LAST_FIX_AGE_MS ? last : null;
+
+        if (significantMotion != null) {
+            if (!sensorManager.requestTriggerSensor(triggerListener, significantMotion)) {
+                Log.e(TAG, "❌ Could not arm significant-motion sensor");
+                handler.postDelayed(fallbackWake, FALLBACK_WAKE_INTERVAL);
+            }
+        } else {
+            handler.postDelayed(fallbackWake, FALLBACK_WAKE_INTERVAL);
+        }
+    }
+
+    public void disarm() {
+        armed = false;
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(triggerListener, significantMotion);
+        }
+        handler.removeCallbacks(fallbackWake);
+        endCheck();
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    // ========== FALLBACK DISPLACEMENT CHECK ==========
+
+    private void checkDisplacement() {
+        Location last = locationEngine.getLastLocation();
+        if (last != null && ageMs(last) <= MAX_LAST_FIX_AGE_MS) {
+            onCheckFix(last);
+            return;
+        }
+
+        checkStartedAtNanos = SystemClock.elapsedRealtimeNanos();
+        checkSubscription = locationEngine.subscribe(this::onCheckLocation, CHECK_INTERVAL_MS,
+                LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, Looper.getMainLooper());
+        handler.postDelayed(checkTimeout, CHECK_TIMEOUT_MS);
+    }
+
+    private void onCheckLocation(Location location) {
+        if (location.getElapsedRealtimeNanos() < checkStartedAtNanos) {
+            return; // the engine's cached fix, older than this check
+        }
+        endCheck();
+        onCheckFix(location);
+    }
+
+    private void onCheckFix(Location fix) {
+        if (!armed) return;
+
+        boolean travelling = fix.hasSpeed() && fix.getSpeed() >= MIN_MOVING_SPEED_MPS;
+        boolean displaced = anchor != null && anchor.distanceTo(fix)
+                > Math.max(MIN_DISPLACEMENT_M, anchor.getAccuracy() + fix.getAccuracy());
+        if (travelling || displaced) {
+            Log.d(TAG, "🚶 Fallback check suggests movement");
+            armed = false;
+            listener.onMotionLikely();
+            return;
+        }
+
+        if (anchor == null) {
+            anchor = fix;
+        }
+        handler.postDelayed(fallbackWake, FALLBACK_WAKE_INTERVAL);
+    }
+
+    private void onCheckTimeout() {
+        endCheck();
+        if (armed) {
+            Log.w(TAG, "⚠️ No fix for the fallback check, trying again later");
+            handler.postDelayed(fallbackWake, FALLBACK_WAKE_INTERVAL);
+        }
+    }
+
+    private void endCheck() {
+        handler.removeCallbacks(checkTimeout);
+        if (checkSubscription != null) {
+            locationEngine.unsubscribe(checkSubscription);
+            checkSubscription = null;
+        }
+    }
+
+    private static long ageMs(Location location) {
+        return (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1000000;
+    }
+}
@@ -0,0 +1,68 @@
+//PcmRingBuffer.java
+package com.safetytrack.services;
+
+/**
+ * The most recent samples of 16-bit mono PCM seen by the energy gate. When the gate opens, this
+ * pre-roll holds the start of the utterance that opened it, which VoiceSosService hands to the
+ * recognizer ahead of the live audio.
+ */
+public class PcmRingBuffer {
+    private final short[] samples;
+    private int head = 0; // next write position
+    private int size = 0;
+
+    public PcmRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        samples = new short[capacity];
+    }
+
+    public void write(short[] pcm, int length) {
+        int from = Math.max(0, length - samples.length); // only the tail of an oversized frame fits
+        for (int i = from; i < length; i++) {
+            samples[head] = pcm[i];
+            head = (head + 1) % samples.length;
+        }
+        size = Math.min(samples.length, size + length - from);
+    }
+
+    // Oldest first; returns the number of samples copied
+    public int copyTo(short[] out) {
+        int count = Math.min(size, out.length);
+        int start = (head - size + samples.length) % samples.length;
+        for (int i = 0; i < count; i++) {
+            out[i] = samples[(start + i) % samples.length];
+        }
+        return count;
+    }
+
+    // The whole buffer as little-endian PCM bytes, the RecognizerIntent.EXTRA_AUDIO_SOURCE format
+    public byte[] toPcm16le() {
+        short[] pcm = new short[size];
+        int count = copyTo(pcm);
+        byte[] bytes = new byte[count * 2];
+        toPcm16le(pcm, count, bytes);
+        return bytes;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+
+    static void toPcm16le(short[] pcm, int length, byte[] out) {
+        for (int i = 0; i < length; i++) {
+            out[2 * i] = (byte) pcm[i];
+            out[2 * i + 1] = (byte) (pcm[i] >> 8);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+//RestartBackoff.java
+package com.safetytrack.services;
+
+/**
+ * Exponential restart delay for the voice SOS recognizer: BASE_MS, doubling per consecutive
+ * failure, capped at MAX_MS. The cap stays short on purpose; this is an SOS listener, so a
+ * bad spell must never leave it deaf for long.
+ */
+public class RestartBackoff {
+    static final long BASE_MS = 500;
+    static final long MAX_MS = 8000;
+
+    private int failures = 0;
+
+    // Delay before the next attempt, counting this failure
+    public long nextDelayMs() {
+        long delay = BASE_MS << Math.min(failures, 16);
+        failures++;
+        return Math.min(delay, MAX_MS);
+    }
+
+    public void reset() {
+        failures = 0;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+}
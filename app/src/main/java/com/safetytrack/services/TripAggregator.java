@@ -0,0 +1,148 @@
+//TripAggregator.java
+package com.safetytrack.services;
+
+import com.safetytrack.utils.GeoMath;
+
+/**
+ * Streaming trip statistics with O(1) state: distance, moving time, max/avg speed and stops.
+ *
+ * Fixes go through three filters before they count:
+ *   - fixes with accuracy worse than MAX_ACCURACY_M are dropped;
+ *   - a fix closer to the last accepted point than its noise radius is "standing still", so GPS
+ *     jitter while parked adds no distance (the anchor stays put, slow drift still adds up);
+ *   - a fix that implies more than MAX_SPEED_MPS from the anchor is a jump and is dropped.
+ *
+ * Like JourneyStateMachine this is plain Java, fed by LocationService, and testable on the JVM.
+ */
+public class TripAggregator {
+    static final float MAX_ACCURACY_M = 50f;
+    static final double MIN_SEGMENT_M = 10.0;
+    static final double MAX_SPEED_MPS = 70.0;      // ~250 km/h
+    static final long STOP_MIN_MS = 60000;         // standing still this long counts as a stop
+    static final long MIN_SPEED_WINDOW_MS = 2000;  // max speed is taken over at least this long
+
+    public static final class Summary {
+        public final double distanceMeters;
+        public final long durationMs;
+        public final long movingMs;
+        public final double maxSpeedKph;
+        public final double avgSpeedKph;
+        public final int stopCount;
+        public final int acceptedFixes;
+        public final int rejectedFixes;
+
+        Summary(double distanceMeters, long durationMs, long movingMs, double maxSpeedKph,
+                double avgSpeedKph, int stopCount, int acceptedFixes, int rejectedFixes) {
+            this.distanceMeters = distanceMeters;
+            this.durationMs = durationMs;
+            this.movingMs = movingMs;
+            this.maxSpeedKph = maxSpeedKph;
+            this.avgSpeedKph = avgSpeedKph;
+            this.stopCount = stopCount;
+            this.acceptedFixes = acceptedFixes;
+            this.rejectedFixes = rejectedFixes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "%.2f km in %d min (%d moving), max %.0f km/h, avg %.0f km/h, %d stops",
+                    distanceMeters / 1000, durationMs / 60000, movingMs / 60000,
+                    maxSpeedKph, avgSpeedKph, stopCount);
+        }
+    }
+
+    private boolean started = false;
+    private long startTime;
+    private long lastTime;
+
+    // Last point that counted as movement
+    private double anchorLat, anchorLng;
+    private long anchorTime;
+
+    private double distanceMeters;
+    private long movingMs;
+    private double maxSpeedMps;
+    private double windowMeters;
+    private long windowMs;
+    private long stillMs;
+    private boolean stopped;
+    private int stopCount;
+    private int accepted;
+    private int rejected;
+
+    public synchronized void onFix(double lat, double lng, float accuracyM, long timeMs) {
+        if (accuracyM > MAX_ACCURACY_M || (started && timeMs <= lastTime)) {
+            rejected++;
+            return;
+        }
+
+        if (!started) {
+            started = true;
+            startTime = lastTime = anchorTime = timeMs;
+            anchorLat = lat;
+            anchorLng = lng;
+            accepted++;
+            return;
+        }
+
+        long sinceLast = timeMs - lastTime;
+        double meters = GeoMath.haversine(anchorLat, anchorLng, lat, lng);
+
+        if (meters < Math.max(MIN_SEGMENT_M, accuracyM)) {
+            // Inside the noise radius: standing still
+            lastTime = timeMs;
+            stillMs += sinceLast;
+            windowMeters = 0;
+            windowMs = 0;
+            if (!stopped && stillMs >= STOP_MIN_MS) {
+                stopped = true;
+                stopCount++;
+            }
+            accepted++;
+            return;
+        }
+
+        long segmentMs = timeMs - anchorTime;
+        double speed = meters / (segmentMs / 1000.0);
+        if (speed > MAX_SPEED_MPS) {
+            rejected++;
+            return;
+        }
+
+        distanceMeters += meters;
+        movingMs += sinceLast;
+
+        // Single 1 s segments are too noisy for a max; average over a short window instead
+        windowMeters += meters;
+        windowMs += segmentMs;
+        if (windowMs >= MIN_SPEED_WINDOW_MS) {
+            maxSpeedMps = Math.max(maxSpeedMps, windowMeters / (windowMs / 1000.0));
+            windowMeters = 0;
+            windowMs = 0;
+        }
+
+        anchorLat = lat;
+        anchorLng = lng;
+        anchorTime = lastTime = timeMs;
+        stillMs = 0;
+        stopped = false;
+        accepted++;
+    }
+
+    public synchronized Summary snapshot() {
+        double avgSpeedMps = movingMs > 0 ? distanceMeters / (movingMs / 1000.0) : 0;
+        return new Summary(distanceMeters, started ? lastTime - startTime : 0, movingMs,
+                maxSpeedMps * 3.6, avgSpeedMps * 3.6, stopCount, accepted, rejected);
+    }
+
+    public synchronized void reset() {
+        started = false;
+        startTime = lastTime = anchorTime = 0;
+        anchorLat = anchorLng = 0;
+        distanceMeters = maxSpeedMps = windowMeters = 0;
+        movingMs = stillMs = windowMs = 0;
+        stopped = false;
+        stopCount = accepted = rejected = 0;
+    }
+}
@@ -0,0 +1,695 @@
+//VoiceSosService.java
+package com.safetytrack.services;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.BatteryManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import com.safetytrack.DashboardActivity;
+import com.safetytrack.R;
+import com.safetytrack.utils.KeywordMatcher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Voice SOS listener that outlives the Dashboard, as a microphone-type foreground service.
+ *
+ * It moves between two states:
+ *   GATING      - an AudioRecord feeds 20 ms frames to the EnergyGate on a background thread,
+ *                 keeping the last PRE_ROLL_SAMPLES in a PcmRingBuffer;
+ *   RECOGNIZING - once the gate opens, one SpeechRecognizer utterance runs, checked for
+ *                 keywords on partial and final results.
+ * The speech that opens the gate is the speech that matters, and a recognizer needs several
+ * hundred ms to bind and open the microphone - most of a shouted "Help!". On API 33+ the gate
+ * therefore keeps the microphone and streams the pre-roll followed by live audio into the
+ * recognizer through EXTRA_AUDIO_SOURCE, so nothing is lost. Older releases have to release
+ * the AudioRecord and hand the microphone over, losing the onset.
+ *
+ * Every utterance ends back in GATING. NO_MATCH and SPEECH_TIMEOUT return at once (the
+ * recognizer is fine, it heard noise or a clipped word, and the user may be repeating it);
+ * real errors delay the return by RestartBackoff, and a watchdog recovers an utterance whose
+ * callbacks never arrive, so there is exactly one restart path.
+ *
+ * Keywords go to bound listeners (the Dashboard); when none is on screen, a high-priority
+ * notification opens the Dashboard with EXTRA_VOICE_SOS_TEXT. Metrics are published through the binder.
+ */
+public class VoiceSosService extends Service {
+    private static final String TAG = "VoiceSosService";
+    private static final String CHANNEL_ID = "SafetyTrackVoiceSosChannel";
+    private static final String ALERT_CHANNEL_ID = "SafetyTrackVoiceSosAlerts";
+    private static final int NOTIFICATION_ID = 2;
+    private static final int ALERT_NOTIFICATION_ID = 3;
+
+    public static final String EXTRA_VOICE_SOS_TEXT = "voiceSosText";
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE / 50; // 20 ms
+    static final int PRE_ROLL_SAMPLES = SAMPLE_RATE / 2;       // 500 ms before the gate opened
+    private static final long GATE_STOP_WAIT_MS = 100;
+    private static final long UTTERANCE_WATCHDOG_MS = 15000;
+    private static final long METRICS_LOG_INTERVAL_MS = 5 * 60 * 1000;
+
+    public enum State { IDLE, GATING, RECOGNIZING, BACKING_OFF }
+
+    public interface Listener {
+        // Returns true if the alert was shown to the user
+        boolean onSosKeyword(String keyword, String spokenText, boolean partial);
+        void onStateChanged(State state);
+    }
+
+    public static final class Metrics {
+        public final long uptimeMs;
+        public final int gateOpens;
+        public final int recognizerStarts;
+        public final double restartsPerHour;
+        public final int busyErrors;
+        public final int noMatchErrors;
+        public final int otherErrors;
+        public final double recognizingDutyCycle;
+        public final int keywordsDetected;
+        public final long lastDetectionLatencyMs;
+        // Device-wide drain while the listener ran (unplugged only); -1 when unknown
+        public final double batteryPercentPerHour;
+        public final double milliampHoursPerHour;
+
+        Metrics(long uptimeMs, int gateOpens, int recognizerStarts, int busyErrors, int noMatchErrors,
+                int otherErrors, long recognizingMs, int keywordsDetected, long lastDetectionLatencyMs,
+                double batteryPercentPerHour, double milliampHoursPerHour) {
+            double hours = uptimeMs / 3600000.0;
+            this.uptimeMs = uptimeMs;
+            this.gateOpens = gateOpens;
+            this.recognizerStarts = recognizerStarts;
+            this.restartsPerHour = hours > 0 ? recognizerStarts / hours : 0;
+            this.busyErrors = busyErrors;
+            this.noMatchErrors = noMatchErrors;
+            this.otherErrors = otherErrors;
+            this.recognizingDutyCycle = uptimeMs > 0 ? recognizingMs / (double) uptimeMs : 0;
+            this.keywordsDetected = keywordsDetected;
+            this.lastDetectionLatencyMs = lastDetectionLatencyMs;
+            this.batteryPercentPerHour = batteryPercentPerHour;
+            this.milliampHoursPerHour = milliampHoursPerHour;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "%d min, %.0f restarts/h, %.0f%% recognizing, busy %d, no match %d, other %d, "
+                            + "%d keywords, %.1f %%/h, %.0f mAh/h",
+                    uptimeMs / 60000, restartsPerHour, recognizingDutyCycle * 100, busyErrors,
+                    noMatchErrors, otherErrors, keywordsDetected, batteryPercentPerHour, milliampHoursPerHour);
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final RestartBackoff backoff = new RestartBackoff();
+    private final EnergyGate energyGate = new EnergyGate();
+    private final Runnable enterGatingRunnable = this::enterGating;
+    private final Runnable watchdogRunnable = this::onUtteranceStuck;
+    private final Runnable metricsRunnable = this::logMetrics;
+
+    private Handler handler;
+    private KeywordMatcher keywordMatcher;
+    private SpeechRecognizer speechRecognizer;
+    private Thread gateThread;
+    // Bumped on the main thread to retire the current gate thread
+    private volatile int gateGeneration = 0;
+    private ParcelFileDescriptor recognizerAudio;
+    private State state = State.IDLE;
+    private boolean keywordFired = false;
+
+    // Metrics; touched on the main thread only
+    private long startedAt;
+    private long recognizingSince;
+    private long recognizingMs;
+    private long speechStartedAt;
+    private int gateOpens;
+    private int recognizerStarts;
+    private int busyErrors;
+    private int noMatchErrors;
+    private int otherErrors;
+    private int keywordsDetected;
+    private long lastDetectionLatencyMs = -1;
+    private float startBatteryPercent = -1;
+    private long startChargeMicroAh = -1;
+
+    public static void start(Context context) {
+        Intent intent = new Intent(context, VoiceSosService.class);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(intent);
+            } else {
+                context.startService(intent);
+            }
+        } catch (Exception e) {
+            // Microphone services may only start while the app is in the foreground
+            Log.e(TAG, "❌ Could not start Voice SOS: " + e.getMessage());
+        }
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, VoiceSosService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        handler = new Handler(Looper.getMainLooper());
+        keywordMatcher = KeywordMatcher.compile(getResources().getStringArray(R.array.sos_keywords));
+        createNotificationChannels();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        try {
+            Notification notification = createNotification();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE);
+            } else {
+                startForeground(NOTIFICATION_ID, notification);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Voice SOS foreground start refused: " + e.getMessage());
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        if (state == State.IDLE) {
+            if (!hasAudioPermission() || !SpeechRecognizer.isRecognitionAvailable(this)) {
+                Log.e(TAG, "❌ Voice SOS unavailable (permission or recognizer missing)");
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+            startedAt = SystemClock.elapsedRealtime();
+            startBatteryPercent = getBatteryPercent();
+            startChargeMicroAh = getChargeMicroAh();
+            handler.postDelayed(metricsRunnable, METRICS_LOG_INTERVAL_MS);
+            Log.d(TAG, "🎤 Voice SOS service started (" + keywordMatcher.keywordCount() + " keywords)");
+            enterGating();
+        }
+        return START_STICKY;
+    }
+
+    // ========== ENERGY GATE ==========
+
+    private void enterGating() {
+        handler.removeCallbacks(enterGatingRunnable);
+        stopGate();
+        setState(State.GATING);
+        energyGate.reset();
+        int generation = ++gateGeneration;
+        gateThread = new Thread(() -> runGate(generation), "VoiceSosGate");
+        gateThread.start();
+    }
+
+    private void runGate(int generation) {
+        boolean streamToRecognizer = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        PcmRingBuffer preRoll = new PcmRingBuffer(PRE_ROLL_SAMPLES);
+        AudioRecord record = null;
+        OutputStream stream = null;
+        boolean opened = false;
+        try {
+            record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBuffer, FRAME_SAMPLES * 2 * 4));
+            if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+                throw new IllegalStateException("AudioRecord not initialized");
+            }
+            record.startRecording();
+
+            short[] frame = new short[FRAME_SAMPLES];
+            byte[] bytes = new byte[FRAME_SAMPLES * 2];
+            while (gateGeneration == generation) {
+                int read = record.read(frame, 0, FRAME_SAMPLES);
+                if (read < 0) {
+                    throw new IllegalStateException("AudioRecord read error " + read);
+                }
+                if (stream != null) {
+                    // Recognizing: live audio follows the pre-roll until the utterance ends
+                    PcmRingBuffer.toPcm16le(frame, read, bytes);
+                    stream.write(bytes, 0, read * 2);
+                    continue;
+                }
+
+                preRoll.write(frame, read);
+                if (energyGate.onFrame(frame, read)) {
+                    opened = true;
+                    if (!streamToRecognizer) break;
+
+                    ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+                    stream = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
+                    handler.post(() -> onGateOpened(generation, pipe[0]));
+                    stream.write(preRoll.toPcm16le());
+                }
+            }
+        } catch (IOException e) {
+            // The recognizer closed its end; it reports the utterance result on its own
+            Log.d(TAG, "🎤 Recognizer audio stream closed: " + e.getMessage());
+        } catch (SecurityException | IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "❌ Energy gate failed: " + e.getMessage());
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (record != null) {
+                try {
+                    record.stop();
+                } catch (IllegalStateException ignored) {
+                }
+                record.release(); // on the handover path the recognizer needs the microphone next
+            }
+        }
+
+        if (gateGeneration != generation || stream != null) return;
+        boolean gateOpened = opened;
+        handler.post(() -> {
+            if (gateGeneration != generation || state != State.GATING) return;
+            if (gateOpened) {
+                enterRecognizing(null);
+            } else {
+                scheduleRestart("gate error");
+            }
+        });
+    }
+
+    private void onGateOpened(int generation, ParcelFileDescriptor audio) {
+        if (gateGeneration != generation || state != State.GATING) {
+            closeQuietly(audio);
+            return;
+        }
+        enterRecognizing(audio);
+    }
+
+    private void stopGate() {
+        gateGeneration++;
+        Thread thread = gateThread;
+        gateThread = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(GATE_STOP_WAIT_MS); // let it release the AudioRecord before the next one opens
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ========== RECOGNIZER ==========
+
+    // audio is the read end of the gate's pre-roll + live stream, or null to let the recognizer open the microphone
+    private void enterRecognizing(ParcelFileDescriptor audio) {
+        gateOpens++;
+        if (speechRecognizer == null) {
+            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
+            if (speechRecognizer == null) {
+                closeQuietly(audio);
+                scheduleRestart("no recognizer");
+                return;
+            }
+            speechRecognizer.setRecognitionListener(recognitionListener);
+        }
+
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, getPackageName());
+        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 5);
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+        if (audio != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE, audio);
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_CHANNEL_COUNT, 1);
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_ENCODING, AudioFormat.ENCODING_PCM_16BIT);
+            intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_SAMPLING_RATE, SAMPLE_RATE);
+            recognizerAudio = audio;
+        }
+
+        keywordFired = false;
+        speechStartedAt = SystemClock.elapsedRealtime(); // the gate opened on speech
+        recognizingSince = speechStartedAt;
+        recognizerStarts++;
+        setState(State.RECOGNIZING);
+        handler.postDelayed(watchdogRunnable, UTTERANCE_WATCHDOG_MS);
+        try {
+            speechRecognizer.startListening(intent);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ startListening failed: " + e.getMessage());
+            destroyRecognizer();
+            endUtterance(false, "start failed");
+        }
+    }
+
+    private final RecognitionListener recognitionListener = new RecognitionListener() {
+        @Override
+        public void onReadyForSpeech(Bundle params) {}
+
+        @Override
+        public void onBeginningOfSpeech() {}
+
+        @Override
+        public void onRmsChanged(float rmsdB) {}
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {}
+
+        @Override
+        public void onEndOfSpeech() {}
+
+        @Override
+        public void onError(int error) {
+            if (state != State.RECOGNIZING) return;
+            if (error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY) {
+                busyErrors++;
+                destroyRecognizer(); // a fresh instance clears most stuck-busy states
+            } else if (error == SpeechRecognizer.ERROR_NO_MATCH || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT) {
+                // Noise or a clipped word: the recognizer is healthy, so listen again without a backoff
+                noMatchErrors++;
+                endUtterance(true, null);
+                return;
+            } else {
+                otherErrors++;
+                if (error == SpeechRecognizer.ERROR_CLIENT) destroyRecognizer();
+            }
+
+            if (error == SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS) {
+                Log.e(TAG, "❌ Microphone permission revoked, stopping Voice SOS");
+                stopSelf();
+                return;
+            }
+            endUtterance(false, getErrorText(error));
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            if (state != State.RECOGNIZING) return;
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (matches != null && !matches.isEmpty()) {
+                Log.d(TAG, "🎤 Heard: \"" + matches.get(0) + "\"");
+            }
+            if (!keywordFired) {
+                checkKeywords(matches, false);
+            }
+            endUtterance(true, null);
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            if (state != State.RECOGNIZING || keywordFired) return;
+            if (checkKeywords(partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION), true)) {
+                speechRecognizer.cancel(); // no further callbacks for this utterance
+                endUtterance(true, null);
+            }
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {}
+    };
+
+    private boolean checkKeywords(List<String> hypotheses, boolean partial) {
+        if (hypotheses == null) return false;
+        for (String hypothesis : hypotheses) {
+            String keyword = keywordMatcher.findFirst(hypothesis);
+            if (keyword != null) {
+                keywordFired = true;
+                keywordsDetected++;
+                lastDetectionLatencyMs = SystemClock.elapsedRealtime() - speechStartedAt;
+                Log.e(TAG, "🚨🚨🚨 SOS KEYWORD \"" + keyword + "\" in \"" + hypothesis + "\" ("
+                        + (partial ? "partial" : "final") + ", " + lastDetectionLatencyMs + " ms) 🚨🚨🚨");
+                publishKeyword(keyword, hypothesis, partial);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onUtteranceStuck() {
+        if (state != State.RECOGNIZING) return;
+        Log.w(TAG, "⚠️ Recognizer silent for " + UTTERANCE_WATCHDOG_MS + " ms, recycling it");
+        otherErrors++;
+        destroyRecognizer();
+        endUtterance(false, "watchdog");
+    }
+
+    // Single exit from RECOGNIZING: back to the gate, now or after a backoff
+    private void endUtterance(boolean success, String error) {
+        handler.removeCallbacks(watchdogRunnable);
+        recognizingMs += SystemClock.elapsedRealtime() - recognizingSince;
+        stopGate(); // ends the stream into the recognizer, if any
+        closeQuietly(recognizerAudio);
+        recognizerAudio = null;
+        if (success) {
+            backoff.reset();
+            enterGating();
+        } else {
+            scheduleRestart(error);
+        }
+    }
+
+    private void scheduleRestart(String reason) {
+        stopGate();
+        long delay = backoff.nextDelayMs();
+        Log.d(TAG, "🎤 " + reason + ", listening again in " + delay + " ms (failure " + backoff.getFailures() + ")");
+        setState(State.BACKING_OFF);
+        handler.postDelayed(enterGatingRunnable, delay);
+    }
+
+    private void destroyRecognizer() {
+        if (speechRecognizer != null) {
+            try {
+                speechRecognizer.destroy();
+            } catch (Exception ignored) {
+            }
+            speechRecognizer = null;
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor descriptor) {
+        if (descriptor == null) return;
+        try {
+            descriptor.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private String getErrorText(int errorCode) {
+        switch (errorCode) {
+            case SpeechRecognizer.ERROR_AUDIO: return "Audio error";
+            case SpeechRecognizer.ERROR_CLIENT: return "Client error";
+            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS: return "Insufficient permissions";
+            case SpeechRecognizer.ERROR_NETWORK: return "Network error";
+            case SpeechRecognizer.ERROR_NETWORK_TIMEOUT: return "Network timeout";
+            case SpeechRecognizer.ERROR_NO_MATCH: return "No speech match";
+            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY: return "Recognizer busy";
+            case SpeechRecognizer.ERROR_SERVER: return "Server error";
+            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT: return "Speech timeout";
+            default: return "Unknown error: " + errorCode;
+        }
+    }
+
+    // ========== PUBLISHING ==========
+
+    private void setState(State newState) {
+        if (state == newState) return;
+        state = newState;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onStateChanged(newState);
+        }
+    }
+
+    private void publishKeyword(String keyword, String spokenText, boolean partial) {
+        boolean shown = false;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            shown |= listener.onSosKeyword(keyword, spokenText, partial);
+        }
+        if (shown) return;
+
+        // Dashboard not on screen: bring it up through a heads-up notification
+        Intent intent = new Intent(this, DashboardActivity.class)
+                .putExtra(EXTRA_VOICE_SOS_TEXT, spokenText)
+                .addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Notification notification = new NotificationCompat.Builder(this, ALERT_CHANNEL_ID)
+                .setContentTitle("🚨 Voice SOS detected")
+                .setContentText("Heard \"" + spokenText + "\" - tap to send SOS")
+                .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setContentIntent(pendingIntent)
+                .setAutoCancel(true)
+                .build();
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        manager.notify(ALERT_NOTIFICATION_ID, notification);
+    }
+
+    public Metrics getMetrics() {
+        long now = SystemClock.elapsedRealtime();
+        long uptime = startedAt > 0 ? now - startedAt : 0;
+        long recognizing = recognizingMs + (state == State.RECOGNIZING ? now - recognizingSince : 0);
+        double hours = uptime / 3600000.0;
+
+        double percentPerHour = -1;
+        float battery = getBatteryPercent();
+        if (hours > 0 && startBatteryPercent >= 0 && battery >= 0) {
+            percentPerHour = (startBatteryPercent - battery) / hours;
+        }
+        double mAhPerHour = -1;
+        long charge = getChargeMicroAh();
+        if (hours > 0 && startChargeMicroAh > 0 && charge > 0) {
+            mAhPerHour = (startChargeMicroAh - charge) / 1000.0 / hours;
+        }
+
+        return new Metrics(uptime, gateOpens, recognizerStarts, busyErrors, noMatchErrors, otherErrors,
+                recognizing, keywordsDetected, lastDetectionLatencyMs, percentPerHour, mAhPerHour);
+    }
+
+    private void logMetrics() {
+        Log.d(TAG, "📊 Voice SOS: " + getMetrics());
+        handler.postDelayed(metricsRunnable, METRICS_LOG_INTERVAL_MS);
+    }
+
+    // ========== DEVICE STATE ==========
+
+    private boolean hasAudioPermission() {
+        return ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private float getBatteryPercent() {
+        Intent batteryIntent = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryIntent != null) {
+            int level = batteryIntent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = batteryIntent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0) {
+                return level * 100 / (float) scale;
+            }
+        }
+        return -1;
+    }
+
+    // Remaining charge in microampere-hours, or -1 where the fuel gauge does not report it
+    private long getChargeMicroAh() {
+        BatteryManager batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
+        if (batteryManager == null) return -1;
+        int charge = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        return charge > 0 ? charge : -1;
+    }
+
+    // ========== NOTIFICATIONS ==========
+
+    private Notification createNotification() {
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("🎤 Voice SOS Active")
+                .setContentText("Say HELP, DANGER or EMERGENCY to raise an alert")
+                .setSmallIcon(android.R.drawable.ic_btn_speak_now)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .build();
+    }
+
+    private void createNotificationChannels() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "SafetyTrack Voice SOS",
+                    NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Listening for spoken SOS keywords during a journey");
+            channel.setSound(null, null);
+            channel.setShowBadge(false);
+
+            NotificationChannel alerts = new NotificationChannel(
+                    ALERT_CHANNEL_ID,
+                    "SafetyTrack Voice SOS Alerts",
+                    NotificationManager.IMPORTANCE_HIGH
+            );
+            alerts.setDescription("Shown when a spoken SOS keyword is detected");
+
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+                manager.createNotificationChannel(alerts);
+            }
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacksAndMessages(null);
+        stopGate();
+        if (speechRecognizer != null) {
+            speechRecognizer.cancel();
+        }
+        destroyRecognizer();
+        closeQuietly(recognizerAudio);
+        recognizerAudio = null;
+        if (state != State.IDLE) {
+            Log.d(TAG, "📊 Voice SOS final: " + getMetrics());
+        }
+        setState(State.IDLE);
+        Log.d(TAG, "VoiceSosService destroyed");
+    }
+
+    // ========== BINDER ==========
+
+    public class LocalBinder extends Binder {
+        public VoiceSosService getService() {
+            return VoiceSosService.this;
+        }
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+}
@@ -0,0 +1,131 @@
+//CompactSmsEncoder.java
+package com.safetytrack.utils;
+
+import java.util.Calendar;
+
+/**
+ * Compact journey update that always fits a single GSM-7 segment (160 chars), e.g.
+ *
+ *   SafetyTrack UPDATE 14:32
+ *   maps.google.com/?q=12.97160,77.59460
+ *   d=+120,-40m gh=tdr1v9q bat=78%
+ *
+ * Coordinates use fixed 5-decimal precision (~1 m), the delta is metres north/east of the
+ * previous update, and the geohash lets a recipient compare positions at a glance.
+ */
+public class CompactSmsEncoder {
+    public static final int GSM7_SEGMENT_LENGTH = 160;
+    public static final int GSM7_MULTIPART_LENGTH = 153;
+    public static final int UCS2_SEGMENT_LENGTH = 70;
+    public static final int UCS2_MULTIPART_LENGTH = 67;
+
+    private static final int GEOHASH_PRECISION = 7;
+    private static final int MAX_DELTA_METERS = 99999;
+
+    // GSM 03.38 basic character set (without the escape character)
+    private static final String GSM7_BASIC = "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?"
+            + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+    private static final String GSM7_EXTENDED = "^{}\\[~]|€\f";
+
+    private final StringBuilder builder = new StringBuilder(GSM7_SEGMENT_LENGTH);
+    private final char[] geohash = new char[GEOHASH_PRECISION];
+    private final Calendar calendar = Calendar.getInstance();
+    private boolean hasPrevious = false;
+    private double previousLat;
+    private double previousLng;
+
+    public String encode(double latitude, double longitude, long timestampMs, int batteryPercent) {
+        builder.setLength(0);
+
+        calendar.setTimeInMillis(timestampMs);
+        builder.append("SafetyTrack UPDATE ");
+        appendTwoDigits(calendar.get(Calendar.HOUR_OF_DAY));
+        builder.append(':');
+        appendTwoDigits(calendar.get(Calendar.MINUTE));
+
+        builder.append("\nmaps.google.com/?q=");
+        appendFixed5(latitude);
+        builder.append(',');
+        appendFixed5(longitude);
+
+        builder.append("\nd=");
+        if (hasPrevious) {
+            double north = (latitude - previousLat) * GeoMath.METERS_PER_DEGREE;
+            double east = (longitude - previousLng) * GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+            appendSignedMeters(north);
+            builder.append(',');
+            appendSignedMeters(east);
+            builder.append('m');
+        } else {
+            builder.append("start");
+        }
+
+        Geohash.encodeInto(latitude, longitude, GEOHASH_PRECISION, geohash, 0);
+        builder.append(" gh=").append(geohash);
+
+        if (batteryPercent >= 0) {
+            builder.append(" bat=").append(Math.min(batteryPercent, 100)).append('%');
+        }
+
+        hasPrevious = true;
+        previousLat = latitude;
+        previousLng = longitude;
+        return builder.toString();
+    }
+
+    public void reset() {
+        hasPrevious = false;
+    }
+
+    private void appendTwoDigits(int value) {
+        if (value < 10) builder.append('0');
+        builder.append(value);
+    }
+
+    private void appendFixed5(double value) {
+        long scaled = Math.round(value * 100000);
+        if (scaled < 0) {
+            builder.append('-');
+            scaled = -scaled;
+        }
+        builder.append(scaled / 100000).append('.');
+        long fraction = scaled % 100000;
+        for (long divisor = 10000; divisor > fraction && divisor > 1; divisor /= 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
+    private void appendSignedMeters(double meters) {
+        long rounded = Math.max(-MAX_DELTA_METERS, Math.min(MAX_DELTA_METERS, Math.round(meters)));
+        builder.append(rounded < 0 ? '-' : '+').append(Math.abs(rounded));
+    }
+
+    // ========== SEGMENT ACCOUNTING ==========
+
+    public static boolean isGsm7(CharSequence message) {
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (GSM7_BASIC.indexOf(c) < 0 && GSM7_EXTENDED.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Number of SMS segments the radio will send for this message
+    public static int segmentCount(CharSequence message) {
+        if (isGsm7(message)) {
+            int septets = 0;
+            for (int i = 0; i < message.length(); i++) {
+                septets += GSM7_EXTENDED.indexOf(message.charAt(i)) >= 0 ? 2 : 1;
+            }
+            return septets <= GSM7_SEGMENT_LENGTH ? 1
+                    : (septets + GSM7_MULTIPART_LENGTH - 1) / GSM7_MULTIPART_LENGTH;
+        }
+
+        int units = message.length(); // UTF-16 code units, as sent in UCS-2
+        return units <= UCS2_SEGMENT_LENGTH ? 1
+                : (units + UCS2_MULTIPART_LENGTH - 1) / UCS2_MULTIPART_LENGTH;
+    }
+}
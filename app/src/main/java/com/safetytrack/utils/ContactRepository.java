@@ -0,0 +1,197 @@
+//ContactRepository.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.safetytrack.models.Contact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide copy of the user's emergency contacts.
+ *
+ * Subscribes once to the user's Firestore contacts document with a snapshot listener, instead of
+ * every screen issuing its own get(). Until the first snapshot arrives the contacts come from
+ * EmergencyContactStore. Snapshots confirmed by the server are written back there for the next
+ * cold start; snapshots served from the offline cache are shown but never overwrite it, and a
+ * cached "document missing" is ignored, since offline with an empty cache it means nothing.
+ *
+ * Each update publishes a new immutable list through a volatile field, so readers never lock.
+ * Listeners are called on the main thread. Contacts handed out are shared and must not be changed.
+ */
+public class ContactRepository {
+    private static final String TAG = "ContactRepository";
+    private static final String CONTACTS_COLLECTION = "emergency_contacts";
+
+    public interface Listener {
+        void onContactsChanged(List<Contact> contacts);
+    }
+
+    private static ContactRepository instance;
+
+    private final SessionManager sessionManager;
+    private final EmergencyContactStore contactStore;
+    private final PhoneNumberNormalizer phoneNormalizer;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+
+    private volatile List<Contact> contacts;
+    private volatile List<String> selectedPhones;
+    private volatile boolean synced = false;
+
+    private ListenerRegistration registration;
+    private String subscribedUserId;
+
+    private ContactRepository(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.sessionManager = SessionManager.getInstance(appContext);
+        this.contactStore = EmergencyContactStore.getInstance(appContext);
+        this.phoneNormalizer = PhoneNumberNormalizer.getInstance(appContext);
+
+        EmergencyContactStore.Contacts saved = contactStore.read();
+        this.contacts = Collections.unmodifiableList(new ArrayList<>(saved));
+        this.selectedPhones = saved.normalizedPhones();
+    }
+
+    public static synchronized ContactRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ContactRepository(context);
+        }
+        instance.subscribe();
+        return instance;
+    }
+
+    // ========== READS (lock-free) ==========
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    // Normalized numbers of the selected contacts, ready for SmsDispatcher
+    public List<String> getSelectedPhones() {
+        return selectedPhones;
+    }
+
+    // True once a Firestore snapshot (server or offline cache) has been applied
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ========== FIRESTORE SUBSCRIPTION ==========
+
+    private synchronized void subscribe() {
+        String userId = sessionManager.getUserId();
+        if (userId.isEmpty() || userId.equals(subscribedUserId)) {
+            return;
+        }
+
+        unsubscribe();
+        subscribedUserId = userId;
+        registration = FirebaseFirestore.getInstance()
+                .collection(CONTACTS_COLLECTION)
+                .document(userId)
+                .addSnapshotListener((snapshot, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "❌ Contacts listener failed: " + e.getMessage());
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+                    boolean fromCache = snapshot.getMetadata().isFromCache();
+                    if (!snapshot.exists() && fromCache) {
+                        Log.d(TAG, "📴 No cached contacts document, keeping saved contacts");
+                        return;
+                    }
+                    publish(parse(snapshot), !fromCache);
+                });
+        Log.d(TAG, "👂 Listening for contact changes of " + userId);
+    }
+
+    // Called on logout; the next getInstance() after a login subscribes for that user
+    public synchronized void unsubscribe() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        subscribedUserId = null;
+        synced = false;
+    }
+
+    // persist: the snapshot is server-confirmed and may replace EmergencyContactStore
+    private void publish(List<Contact> updated, boolean persist) {
+        List<String> phones = new ArrayList<>(updated.size());
+        List<Contact> selected = new ArrayList<>(updated.size());
+        for (Contact contact : updated) {
+            if (contact.isSelected()) {
+                selected.add(contact);
+                String phone = phoneNormalizer.normalize(contact.getPhoneNumber());
+                if (phone != null) {
+                    phones.add(phone);
+                }
+            }
+        }
+
+        contacts = Collections.unmodifiableList(updated);
+        selectedPhones = Collections.unmodifiableList(phones);
+        synced = true;
+        if (persist) {
+            storeExecutor.execute(() -> contactStore.write(selected));
+        }
+
+        Log.d(TAG, "✅ " + updated.size() + " contacts, " + phones.size() + " selected");
+        for (Listener listener : listeners) {
+            listener.onContactsChanged(contacts);
+        }
+    }
+
+    private static List<Contact> parse(DocumentSnapshot snapshot) {
+        List<Contact> parsed = new ArrayList<>();
+        Object raw = snapshot.exists() ? snapshot.get("contacts") : null;
+        if (!(raw instanceof List)) {
+            return parsed;
+        }
+
+        for (Object item : (List<?>) raw) {
+            if (!(item instanceof Map)) continue;
+            Map<?, ?> map = (Map<?, ?>) item;
+
+            String name = stringOrNull(map.get("name"));
+            String phoneNumber = stringOrNull(map.get("phoneNumber"));
+            String rawInfo = stringOrNull(map.get("rawInfo"));
+            Object selected = map.get("isSelected");
+
+            Contact contact = new Contact(name, phoneNumber);
+            if (rawInfo != null) {
+                contact.setRawContactInfo(rawInfo);
+            }
+            contact.setSelected(Boolean.TRUE.equals(selected));
+            parsed.add(contact);
+        }
+        return parsed;
+    }
+
+    private static String stringOrNull(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+}
@@ -0,0 +1,333 @@
+//ContactSearchIndex.java
+package com.safetytrack.utils;
+
+import com.safetytrack.models.Contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable search index over contact names and phone digits for the contact picker.
+ *
+ *  - Prefix matches: every name word, the full name, the phone digits and the last 10 digits
+ *    are kept in one sorted token array and found by binary search.
+ *  - Fuzzy matches: trigrams of the name and digits map to posting lists, so a query still
+ *    finds "Ashwitha" from "ashwita" or a number from any part of it.
+ *
+ * Building allocates; searching does not. Scratch buffers are reused across queries, so one
+ * index must only be queried from one thread (the UI thread in the picker).
+ */
+public class ContactSearchIndex {
+    private static final int MAX_QUERY_LENGTH = 64;
+    private static final int NATIONAL_NUMBER_LENGTH = 10;
+
+    private final Contact[] contacts;
+
+    // Prefix tokens, sorted, with the contact each token belongs to
+    private final String[] tokens;
+    private final int[] tokenOwners;
+
+    // Trigram posting lists in CSR form: postings[offsets[i] .. offsets[i + 1]) belong to keys[i]
+    private final long[] trigramKeys;
+    private final int[] trigramOffsets;
+    private final int[] postings;
+
+    // Per-query scratch space
+    private final char[] queryBuffer = new char[MAX_QUERY_LENGTH];
+    private final int[] seenEpoch;
+    private final int[] hitCount;
+    private final int[] touched;
+    private int epoch = 0;
+
+    private ContactSearchIndex(Contact[] contacts, String[] tokens, int[] tokenOwners,
+                               long[] trigramKeys, int[] trigramOffsets, int[] postings) {
+        this.contacts = contacts;
+        this.tokens = tokens;
+        this.tokenOwners = tokenOwners;
+        this.trigramKeys = trigramKeys;
+        this.trigramOffsets = trigramOffsets;
+        this.postings = postings;
+        this.seenEpoch = new int[contacts.length];
+        this.hitCount = new int[contacts.length];
+        this.touched = new int[contacts.length];
+    }
+
+    // ========== BUILD (background thread) ==========
+
+    public static ContactSearchIndex build(List<Contact> source) {
+        Contact[] contacts = source.toArray(new Contact[0]);
+
+        List<String> tokenList = new ArrayList<>(contacts.length * 4);
+        List<Integer> ownerList = new ArrayList<>(contacts.length * 4);
+        Map<Long, List<Integer>> trigramMap = new HashMap<>();
+
+        for (int i = 0; i < contacts.length; i++) {
+            String name = foldName(contacts[i].getName());
+            String digits = digitsOf(contacts[i].getPhoneNumber());
+
+            int wordStart = -1;
+            for (int c = 0; c <= name.length(); c++) {
+                boolean boundary = c == name.length() || name.charAt(c) == ' ';
+                if (!boundary && wordStart < 0) {
+                    wordStart = c;
+                } else if (boundary && wordStart >= 0) {
+                    tokenList.add(name.substring(wordStart, c));
+                    ownerList.add(i);
+                    wordStart = -1;
+                }
+            }
+            if (name.indexOf(' ') >= 0) {
+                tokenList.add(name);
+                ownerList.add(i);
+            }
+            if (!digits.isEmpty()) {
+                tokenList.add(digits);
+                ownerList.add(i);
+                if (digits.length() > NATIONAL_NUMBER_LENGTH) {
+                    tokenList.add(digits.substring(digits.length() - NATIONAL_NUMBER_LENGTH));
+                    ownerList.add(i);
+                }
+            }
+
+            addTrigrams(trigramMap, name, i);
+            addTrigrams(trigramMap, digits, i);
+        }
+
+        Integer[] order = new Integer[tokenList.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> tokenList.get(a).compareTo(tokenList.get(b)));
+
+        String[] tokens = new String[order.length];
+        int[] owners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            tokens[i] = tokenList.get(order[i]);
+            owners[i] = ownerList.get(order[i]);
+        }
+
+        long[] keys = new long[trigramMap.size()];
+        int k = 0;
+        int totalPostings = 0;
+        for (Map.Entry<Long, List<Integer>> entry : trigramMap.entrySet()) {
+            keys[k++] = entry.getKey();
+            totalPostings += entry.getValue().size();
+        }
+        Arrays.sort(keys);
+
+        int[] offsets = new int[keys.length + 1];
+        int[] postings = new int[totalPostings];
+        int p = 0;
+        for (int i = 0; i < keys.length; i++) {
+            offsets[i] = p;
+            for (int owner : trigramMap.get(keys[i])) {
+                postings[p++] = owner;
+            }
+        }
+        offsets[keys.length] = p;
+
+        return new ContactSearchIndex(contacts, tokens, owners, keys, offsets, postings);
+    }
+
+    private static void addTrigrams(Map<Long, List<Integer>> map, String text, int owner) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            long key = trigramKey(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            List<Integer> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<>(4);
+                map.put(key, list);
+            }
+            // One posting per contact per trigram; owners arrive in increasing order
+            if (list.isEmpty() || list.get(list.size() - 1) != owner) {
+                list.add(owner);
+            }
+        }
+    }
+
+    private static String foldName(String name) {
+        if (name == null) return "";
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                sb.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String digitsOf(String phone) {
+        if (phone == null) return "";
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static long trigramKey(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    // ========== QUERY (allocation-free) ==========
+
+    public int size() {
+        return contacts.length;
+    }
+
+    public Contact get(int index) {
+        return contacts[index];
+    }
+
+    /**
+     * Writes the indices of matching contacts into out, prefix matches first and then fuzzy
+     * matches by descending score, and returns how many were written.
+     */
+    public int search(CharSequence query, int[] out) {
+        int length = foldQuery(query);
+        if (length == 0) {
+            return 0;
+        }
+
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(seenEpoch, 0);
+            epoch = 1;
+        }
+
+        int count = 0;
+
+        // Prefix matches
+        for (int t = lowerBound(length); t < tokens.length && count < out.length; t++) {
+            if (!startsWith(tokens[t], length)) break;
+            int owner = tokenOwners[t];
+            if (seenEpoch[owner] != epoch) {
+                seenEpoch[owner] = epoch;
+                hitCount[owner] = -1; // already emitted
+                out[count++] = owner;
+            }
+        }
+
+        int trigrams = length - 2;
+        if (trigrams <= 0 || count == out.length) {
+            return count;
+        }
+
+        // Fuzzy matches: count trigram hits per contact
+        int touchedCount = 0;
+        for (int i = 0; i < trigrams; i++) {
+            int slot = Arrays.binarySearch(trigramKeys,
+                    trigramKey(queryBuffer[i], queryBuffer[i + 1], queryBuffer[i + 2]));
+            if (slot < 0) continue;
+            for (int p = trigramOffsets[slot]; p < trigramOffsets[slot + 1]; p++) {
+                int owner = postings[p];
+                if (seenEpoch[owner] != epoch) {
+                    seenEpoch[owner] = epoch;
+                    hitCount[owner] = 0;
+                    touched[touchedCount++] = owner;
+                }
+                if (hitCount[owner] >= 0) {
+                    hitCount[owner]++;
+                }
+            }
+        }
+
+        // Digit queries must match as a whole; names may miss one trigram in four (at least one)
+        int required = isDigits(length) ? trigrams : Math.max(1, trigrams - Math.max(1, trigrams / 4));
+        int fuzzyStart = count;
+        for (int i = 0; i < touchedCount && count < out.length; i++) {
+            int owner = touched[i];
+            if (hitCount[owner] >= required) {
+                out[count++] = owner;
+            }
+        }
+
+        sortByScore(out, fuzzyStart, count);
+        return count;
+    }
+
+    // Lower-cases the query into queryBuffer; number-only queries lose their spaces and punctuation
+    private int foldQuery(CharSequence query) {
+        int length = 0;
+        boolean pendingSpace = false;
+        boolean hasLetter = false;
+        for (int i = 0; i < query.length() && length < MAX_QUERY_LENGTH; i++) {
+            char c = Character.toLowerCase(query.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && length > 0 && length < MAX_QUERY_LENGTH - 1) {
+                    queryBuffer[length++] = ' ';
+                }
+                queryBuffer[length++] = c;
+                pendingSpace = false;
+                hasLetter |= !(c >= '0' && c <= '9');
+            } else {
+                pendingSpace = true;
+            }
+        }
+
+        if (!hasLetter) {
+            int compacted = 0;
+            for (int i = 0; i < length; i++) {
+                if (queryBuffer[i] != ' ') queryBuffer[compacted++] = queryBuffer[i];
+            }
+            length = compacted;
+        }
+        return length;
+    }
+
+    private boolean isDigits(int length) {
+        for (int i = 0; i < length; i++) {
+            if (queryBuffer[i] < '0' || queryBuffer[i] > '9') return false;
+        }
+        return true;
+    }
+
+    private int lowerBound(int length) {
+        int low = 0, high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToQuery(tokens[mid], length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareToQuery(String token, int length) {
+        int n = Math.min(token.length(), length);
+        for (int i = 0; i < n; i++) {
+            int diff = token.charAt(i) - queryBuffer[i];
+            if (diff != 0) return diff;
+        }
+        return token.length() - length;
+    }
+
+    private boolean startsWith(String token, int length) {
+        if (token.length() < length) return false;
+        for (int i = 0; i < length; i++) {
+            if (token.charAt(i) != queryBuffer[i]) return false;
+        }
+        return true;
+    }
+
+    private void sortByScore(int[] out, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int owner = out[i];
+            int score = hitCount[owner];
+            int j = i - 1;
+            while (j >= from && hitCount[out[j]] < score) {
+                out[j + 1] = out[j];
+                j--;
+            }
+            out[j + 1] = owner;
+        }
+    }
+}
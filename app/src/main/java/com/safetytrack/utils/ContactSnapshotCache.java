@@ -0,0 +1,94 @@
+//ContactSnapshotCache.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.safetytrack.models.Contact;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local copy of the device phone list from the last sync, so the picker can show contacts
+ * immediately and only re-read rows the contacts provider reports as changed since then.
+ */
+public class ContactSnapshotCache {
+    private static final String TAG = "ContactSnapshotCache";
+    private static final String FILE_NAME = "contact_snapshot.bin";
+    private static final int VERSION = 2; // 2: rows deduped on the normalized number
+
+    public static final class Snapshot {
+        public final long syncedAt;
+        public final List<Contact> contacts;
+
+        Snapshot(long syncedAt, List<Contact> contacts) {
+            this.syncedAt = syncedAt;
+            this.contacts = contacts;
+        }
+    }
+
+    private final File file;
+
+    public ContactSnapshotCache(Context context) {
+        this.file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+    }
+
+    // Returns null when there is no usable snapshot (first run, old version or corrupt file)
+    public Snapshot read() {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            long syncedAt = in.readLong();
+            int count = in.readInt();
+            List<Contact> contacts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                String name = in.readUTF();
+                String number = in.readUTF();
+                Contact contact = new Contact(name, number);
+                contact.setId(id);
+                contacts.add(contact);
+            }
+            return new Snapshot(syncedAt, contacts);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Discarding unreadable snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void write(long syncedAt, List<Contact> contacts) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeLong(syncedAt);
+            out.writeInt(contacts.size());
+            for (Contact contact : contacts) {
+                out.writeUTF(contact.getId());
+                out.writeUTF(contact.getName());
+                out.writeUTF(contact.getPhoneNumber());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Failed to write snapshot: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "❌ Failed to replace snapshot");
+            temp.delete();
+        }
+    }
+}
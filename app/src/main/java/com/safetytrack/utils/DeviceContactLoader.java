@@ -0,0 +1,243 @@
+//DeviceContactLoader.java
+package com.safetytrack.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.ContactsContract;
+import android.util.Log;
+
+import com.safetytrack.models.Contact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads device phone numbers off the UI thread and streams them to the main thread in pages.
+ *
+ * The first run does one projected query on CommonDataKinds.Phone and saves a snapshot.
+ * Later runs show the snapshot straight away, then re-read only contacts whose
+ * CONTACT_LAST_UPDATED_TIMESTAMP is newer than the snapshot plus any entries in DeletedContacts,
+ * and report those as a delta. Updated ids come from Contacts rather than the phone query, so a
+ * contact edited down to no numbers at all still drops its old rows. A snapshot older than
+ * DeletedContacts keeps its rows for is replaced by a full reload.
+ */
+public class DeviceContactLoader {
+    private static final String TAG = "DeviceContactLoader";
+    private static final int PAGE_SIZE = 200;
+
+    private static final String[] PROJECTION = {
+            ContactsContract.CommonDataKinds.Phone.CONTACT_ID,
+            ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME_PRIMARY,
+            ContactsContract.CommonDataKinds.Phone.NUMBER
+    };
+
+    public static final Comparator<Contact> BY_NAME =
+            (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.getName(), b.getName());
+
+    public interface Listener {
+        void onPage(List<Contact> page);
+        // Contacts with these ids were changed or deleted; added holds their current rows
+        void onDelta(Set<String> removedContactIds, List<Contact> added);
+        void onComplete(int total);
+        void onError(String error);
+    }
+
+    private final ContentResolver contentResolver;
+    private final ContactSnapshotCache snapshotCache;
+    private final PhoneNumberNormalizer phoneNormalizer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean cancelled = false;
+
+    public DeviceContactLoader(Context context) {
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+        this.snapshotCache = new ContactSnapshotCache(context);
+        this.phoneNormalizer = PhoneNumberNormalizer.getInstance(context);
+    }
+
+    public void load(Listener listener) {
+        cancelled = false;
+        executor.execute(() -> {
+            try {
+                sync(listener);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Contact sync failed: " + e.getMessage());
+                post(() -> listener.onError(e.getMessage()));
+            }
+        });
+    }
+
+    public void cancel() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+
+    private void sync(Listener listener) {
+        long start = System.currentTimeMillis();
+        ContactSnapshotCache.Snapshot snapshot = snapshotCache.read();
+
+        // DeletedContacts only keeps rows for DAYS_KEPT_MILLISECONDS; past that a delta would miss deletions
+        if (snapshot != null && start - snapshot.syncedAt > ContactsContract.DeletedContacts.DAYS_KEPT_MILLISECONDS) {
+            Log.d(TAG, "📇 Snapshot older than the deleted-contacts window, reloading");
+            snapshot = null;
+        }
+
+        if (snapshot == null) {
+            List<Contact> all = queryPhones(null, null, listener);
+            if (all == null || cancelled) return;
+            snapshotCache.write(start, all);
+            finish(listener, all.size(), start, "full");
+            return;
+        }
+
+        postPages(snapshot.contacts, listener);
+
+        String since = String.valueOf(snapshot.syncedAt);
+        List<Contact> changed = queryPhones(
+                ContactsContract.CommonDataKinds.Phone.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                new String[]{since}, null);
+        if (changed == null || cancelled) return;
+
+        // Every updated contact is replaced by whatever rows the phone query returned for it, if any
+        Set<String> removedIds = queryContactIds(ContactsContract.DeletedContacts.CONTENT_URI,
+                ContactsContract.DeletedContacts.CONTACT_ID,
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP, since);
+        removedIds.addAll(queryContactIds(ContactsContract.Contacts.CONTENT_URI,
+                ContactsContract.Contacts._ID,
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP, since));
+        for (Contact contact : changed) {
+            removedIds.add(contact.getId());
+        }
+
+        List<Contact> merged = snapshot.contacts;
+        if (!removedIds.isEmpty()) {
+            post(() -> listener.onDelta(removedIds, changed));
+
+            merged = new ArrayList<>(snapshot.contacts.size() + changed.size());
+            for (Contact contact : snapshot.contacts) {
+                if (!removedIds.contains(contact.getId())) {
+                    merged.add(contact);
+                }
+            }
+            merged.addAll(changed);
+            Collections.sort(merged, BY_NAME);
+        }
+
+        // Always advance the sync point so the next delta query stays small
+        snapshotCache.write(start, merged);
+        finish(listener, merged.size(), start, "delta of " + removedIds.size() + " contacts");
+    }
+
+    // Runs one projected phone query; streams pages to listener when it is not null
+    private List<Contact> queryPhones(String selection, String[] selectionArgs, Listener listener) {
+        try (Cursor cursor = contentResolver.query(
+                ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
+                PROJECTION,
+                selection,
+                selectionArgs,
+                ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME_PRIMARY + " ASC")) {
+
+            if (cursor == null) {
+                post(() -> {
+                    if (listener != null) listener.onError("Contacts provider unavailable");
+                });
+                return null;
+            }
+
+            // Column lookups happen once per query, not once per row
+            int idColumn = cursor.getColumnIndexOrThrow(PROJECTION[0]);
+            int nameColumn = cursor.getColumnIndexOrThrow(PROJECTION[1]);
+            int numberColumn = cursor.getColumnIndexOrThrow(PROJECTION[2]);
+
+            Set<String> seen = new HashSet<>();
+            List<Contact> all = new ArrayList<>(cursor.getCount());
+            int pageStart = 0;
+
+            while (cursor.moveToNext() && !cancelled) {
+                String number = stripFormatting(cursor.getString(numberColumn));
+                String id = String.valueOf(cursor.getLong(idColumn));
+                // Same key as ContactsAdapter's stable id: "+91 98..." and "098..." are one row
+                if (number.isEmpty() || !seen.add(id + "|" + phoneNormalizer.normalize(number))) {
+                    continue;
+                }
+
+                String name = cursor.getString(nameColumn);
+                Contact contact = new Contact(name != null ? name : number, number);
+                contact.setId(id);
+                all.add(contact);
+
+                if (listener != null && all.size() - pageStart == PAGE_SIZE) {
+                    List<Contact> page = new ArrayList<>(all.subList(pageStart, all.size()));
+                    post(() -> listener.onPage(page));
+                    pageStart = all.size();
+                }
+            }
+
+            if (listener != null && pageStart < all.size()) {
+                List<Contact> page = new ArrayList<>(all.subList(pageStart, all.size()));
+                post(() -> listener.onPage(page));
+            }
+            return all;
+        }
+    }
+
+    // Contact ids from uri whose timestampColumn is newer than since
+    private Set<String> queryContactIds(Uri uri, String idColumnName, String timestampColumn, String since) {
+        Set<String> ids = new HashSet<>();
+        try (Cursor cursor = contentResolver.query(
+                uri,
+                new String[]{idColumnName},
+                timestampColumn + " > ?",
+                new String[]{since},
+                null)) {
+            if (cursor != null) {
+                int idColumn = cursor.getColumnIndexOrThrow(idColumnName);
+                while (cursor.moveToNext()) {
+                    ids.add(String.valueOf(cursor.getLong(idColumn)));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void postPages(List<Contact> contacts, Listener listener) {
+        for (int from = 0; from < contacts.size(); from += PAGE_SIZE) {
+            List<Contact> page = new ArrayList<>(contacts.subList(from, Math.min(from + PAGE_SIZE, contacts.size())));
+            post(() -> listener.onPage(page));
+        }
+    }
+
+    private void finish(Listener listener, int total, long start, String detail) {
+        Log.d(TAG, "📇 " + total + " numbers ready in " + (System.currentTimeMillis() - start) + " ms (" + detail + ")");
+        post(() -> listener.onComplete(total));
+    }
+
+    private void post(Runnable runnable) {
+        mainHandler.post(() -> {
+            if (!cancelled) runnable.run();
+        });
+    }
+
+    // Keeps digits and '+', same as the old regex but without compiling one per row
+    static String stripFormatting(String phone) {
+        if (phone == null) return "";
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '+') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,314 @@
+//EmergencyContactStore.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.safetytrack.models.Contact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selected emergency contacts, stored as one small binary file instead of the old
+ * "emergencyContacts" preference string (entries joined with "," and "\n", which broke on
+ * names containing a comma).
+ *
+ * File layout (big-endian):
+ *   int magic, int version, int count, int[count] record offsets,
+ *   then per record: id, name, phone, normalized phone, each as u16 length + UTF-8 bytes.
+ *
+ * The normalized phone is computed once at write time, so readers get send-ready numbers
+ * without splitting strings or re-normalizing. Records are decoded lazily from the loaded bytes.
+ * Writes go to a temp file which is synced and renamed over the old one.
+ */
+public class EmergencyContactStore {
+    private static final String TAG = "EmergencyContactStore";
+    private static final String FILE_NAME = "emergency_contacts.bin";
+    private static final String KEY_LEGACY_CONTACTS = "emergencyContacts";
+    private static final String KEY_LEGACY_SELECTED = "selectedContacts";
+
+    static final int MAGIC = 0x53544543; // "STEC"
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int FIELD_COUNT = 4;
+
+    private static EmergencyContactStore instance;
+
+    private final Context context;
+    private final File file;
+    private final PhoneNumberNormalizer phoneNormalizer;
+    private volatile Contacts cached;
+
+    private EmergencyContactStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.file = new File(this.context.getFilesDir(), FILE_NAME);
+        this.phoneNormalizer = PhoneNumberNormalizer.getInstance(this.context);
+    }
+
+    public static synchronized EmergencyContactStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new EmergencyContactStore(context);
+        }
+        return instance;
+    }
+
+    // ========== READ ==========
+
+    // Never null; an empty view when nothing has been saved yet
+    public Contacts read() {
+        Contacts contacts = cached;
+        if (contacts != null) {
+            return contacts;
+        }
+
+        synchronized (this) {
+            if (cached == null) {
+                cached = file.exists() ? load() : migrateLegacyPreferences();
+            }
+            return cached;
+        }
+    }
+
+    private Contacts load() {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) throw new IOException("Truncated file");
+                read += n;
+            }
+            return Contacts.decode(data);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Discarding unreadable contact store: " + e.getMessage());
+            return Contacts.EMPTY;
+        }
+    }
+
+    // One-time import of the comma/newline preference string written by older versions
+    private Contacts migrateLegacyPreferences() {
+        SharedPreferences prefs = context.getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
+        String legacy = prefs.getString(KEY_LEGACY_CONTACTS, "");
+        if (legacy.isEmpty()) {
+            legacy = prefs.getString(KEY_LEGACY_SELECTED, "");
+        }
+        if (legacy.isEmpty()) {
+            return Contacts.EMPTY;
+        }
+
+        List<Contact> contacts = new ArrayList<>();
+        for (String entry : legacy.split(",")) {
+            String[] parts = entry.trim().split("\n");
+            if (parts.length >= 2) {
+                contacts.add(new Contact(parts[0], parts[1].trim()));
+            }
+        }
+
+        Contacts migrated = writeFile(contacts);
+        if (migrated != null) {
+            prefs.edit().remove(KEY_LEGACY_CONTACTS).remove(KEY_LEGACY_SELECTED).apply();
+            Log.d(TAG, "✅ Migrated " + migrated.size() + " contacts from preferences");
+            return migrated;
+        }
+        return Contacts.decode(encode(contacts, phoneNormalizer));
+    }
+
+    // ========== WRITE ==========
+
+    public synchronized boolean write(List<Contact> contacts) {
+        Contacts written = writeFile(contacts);
+        if (written == null) {
+            return false;
+        }
+        cached = written;
+        return true;
+    }
+
+    private Contacts writeFile(List<Contact> contacts) {
+        byte[] data = encode(contacts, phoneNormalizer);
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to write contact store: " + e.getMessage());
+            temp.delete();
+            return null;
+        }
+
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "❌ Failed to replace contact store");
+            temp.delete();
+            return null;
+        }
+        return Contacts.decode(data);
+    }
+
+    static byte[] encode(List<Contact> contacts, PhoneNumberNormalizer normalizer) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(contacts.size() * 48);
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            int headerSize = HEADER_SIZE + contacts.size() * 4;
+            int[] offsets = new int[contacts.size()];
+
+            for (int i = 0; i < contacts.size(); i++) {
+                Contact contact = contacts.get(i);
+                offsets[i] = headerSize + bodyOut.size();
+                writeField(bodyOut, contact.getId());
+                writeField(bodyOut, contact.getName());
+                writeField(bodyOut, contact.getPhoneNumber());
+                writeField(bodyOut, normalizer.normalize(contact.getPhoneNumber()));
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(headerSize + body.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(contacts.size());
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            body.writeTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // In-memory streams don't throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeField(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(utf8.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(utf8, 0, length);
+    }
+
+    // ========== READ-ONLY VIEW ==========
+
+    /**
+     * Immutable view over an encoded store. Fields are decoded the first time they are asked for;
+     * getNormalizedPhone skips the other fields entirely.
+     */
+    public static final class Contacts extends AbstractList<Contact> {
+        static final Contacts EMPTY = new Contacts(new byte[0], new int[0]);
+
+        private static final int ID = 0, NAME = 1, PHONE = 2, NORMALIZED = 3;
+
+        private final byte[] data;
+        private final int[] offsets;
+        private final String[] fields;
+
+        private Contacts(byte[] data, int[] offsets) {
+            this.data = data;
+            this.offsets = offsets;
+            this.fields = new String[offsets.length * FIELD_COUNT];
+        }
+
+        static Contacts decode(byte[] data) {
+            if (data.length < HEADER_SIZE || readInt(data, 0) != MAGIC) {
+                throw new IllegalArgumentException("Not a contact store");
+            }
+            if (readInt(data, 4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported version " + readInt(data, 4));
+            }
+
+            int count = readInt(data, 8);
+            if (count < 0 || HEADER_SIZE + (long) count * 4 > data.length) {
+                throw new IllegalArgumentException("Bad record count " + count);
+            }
+
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = readInt(data, HEADER_SIZE + i * 4);
+
+                // Walk the length prefixes once so lazy decoding never reads past the end
+                long end = offsets[i];
+                for (int f = 0; f < FIELD_COUNT && end >= HEADER_SIZE && end + 2 <= data.length; f++) {
+                    end += 2 + readShort(data, (int) end);
+                }
+                if (offsets[i] < HEADER_SIZE || end > data.length) {
+                    throw new IllegalArgumentException("Bad record " + i);
+                }
+            }
+            return new Contacts(data, offsets);
+        }
+
+        @Override
+        public int size() {
+            return offsets.length;
+        }
+
+        // A fresh Contact each call, so callers can't change what the store holds
+        @Override
+        public Contact get(int index) {
+            Contact contact = new Contact(getName(index), getPhoneNumber(index));
+            String id = field(index, ID);
+            contact.setId(id.isEmpty() ? null : id);
+            contact.setSelected(true);
+            return contact;
+        }
+
+        public String getName(int index) {
+            return field(index, NAME);
+        }
+
+        public String getPhoneNumber(int index) {
+            return field(index, PHONE);
+        }
+
+        // Empty when the saved number had no digits
+        public String getNormalizedPhone(int index) {
+            return field(index, NORMALIZED);
+        }
+
+        public List<String> normalizedPhones() {
+            List<String> phones = new ArrayList<>(offsets.length);
+            for (int i = 0; i < offsets.length; i++) {
+                String phone = getNormalizedPhone(i);
+                if (!phone.isEmpty()) {
+                    phones.add(phone);
+                }
+            }
+            return Collections.unmodifiableList(phones);
+        }
+
+        private String field(int index, int field) {
+            if (index < 0 || index >= offsets.length) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + offsets.length);
+            }
+
+            int slot = index * FIELD_COUNT + field;
+            String value = fields[slot];
+            if (value == null) {
+                int position = offsets[index];
+                for (int i = 0; i < field; i++) {
+                    position += 2 + readShort(data, position);
+                }
+                value = new String(data, position + 2, readShort(data, position), StandardCharsets.UTF_8);
+                fields[slot] = value;
+            }
+            return value;
+        }
+
+        private static int readInt(byte[] data, int position) {
+            return ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16)
+                    | ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
+        }
+
+        private static int readShort(byte[] data, int position) {
+            return ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -18,6 +19,7 @@ import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SetOptions;
 import com.safetytrack.models.Contact;
 import com.safetytrack.models.Trip;
+import com.safetytrack.services.TripAggregator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,6 +36,7 @@ public class FirebaseHelper {
     private FirebaseFirestore db;
     private Context context;
     private SessionManager sessionManager;
+    private LocationWriteBatcher locationWriteBatcher;
 
     public interface FirebaseAuthListener {
         void onSuccess(String userId);
@@ -46,8 +49,8 @@ public class FirebaseHelper {
         void onError(String error);
     }
 
-    public interface FirebaseContactsListener {
-        void onSuccess(List<Contact> contacts);
+    public interface TripTraceListener {
+        void onTrace(TrajectoryCodec.Track track);
         void onError(String error);
     }
 
@@ -55,6 +58,7 @@ public class FirebaseHelper {
         this.context = context;
         this.db = FirebaseFirestore.getInstance();
         this.sessionManager = SessionManager.getInstance(context);
+        this.locationWriteBatcher = LocationWriteBatcher.getInstance(context);
     }
 
     // ========== SESSION METHODS ==========
@@ -65,6 +69,7 @@ public class FirebaseHelper {
 
     public void logout() {
         sessionManager.logout();
+        ContactRepository.getInstance(context).unsubscribe();
     }
 
     public SessionManager getSessionManager() {
@@ -250,50 +255,11 @@ public class FirebaseHelper {
                 });
     }
 
-    public void loadContactsFromFirestore(FirebaseContactsListener listener) {
-        String userId = sessionManager.getUserId();
-        if (userId.isEmpty()) {
-            listener.onError("User not logged in");
-            return;
-        }
-
-        db.collection(CONTACTS_COLLECTION)
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    List<Contact> contacts = new ArrayList<>();
-                    if (documentSnapshot.exists()) {
-                        List<Map<String, Object>> contactsList = (List<Map<String, Object>>) documentSnapshot.get("contacts");
-                        if (contactsList != null) {
-                            for (Map<String, Object> contactMap : contactsList) {
-                                String name = (String) contactMap.get("name");
-                                String phoneNumber = (String) contactMap.get("phoneNumber");
-                                String rawInfo = (String) contactMap.get("rawInfo");
-                                Boolean isSelected = (Boolean) contactMap.get("isSelected"); // ✅ CRITICAL FIX - Load selected state
-
-                                Contact contact = new Contact(name, phoneNumber);
-                                if (rawInfo != null) {
-                                    contact.setRawContactInfo(rawInfo);
-                                }
-                                if (isSelected != null) {
-                                    contact.setSelected(isSelected); // ✅ Set selected state
-                                }
-                                contacts.add(contact);
-                            }
-                        }
-                        Log.d(TAG, "Loaded " + contacts.size() + " contacts from Firestore");
-                    }
-                    listener.onSuccess(contacts);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load contacts: " + e.getMessage());
-                    listener.onError("Failed to load contacts: " + e.getMessage());
-                });
-    }
-
     // ========== TRIP METHODS ==========
 
-    public void startTrip(Trip trip, FirebaseCompleteListener listener) {
+    // Trip ids come from TripIds on the device and both writes merge into document(tripId), so
+    // retries never duplicate a trip and a stop no longer fails when the start never committed
+    public void startTrip(String tripId, Trip trip, FirebaseCompleteListener listener) {
         Map<String, Object> tripData = new HashMap<>();
         tripData.put("userId", trip.getUserId());
         tripData.put("startLat", trip.getStartLat());
@@ -303,11 +269,9 @@ public class FirebaseHelper {
         tripData.put("createdAt", System.currentTimeMillis());
 
         db.collection(TRIPS_COLLECTION)
-                .add(tripData)
-                .addOnSuccessListener(documentReference -> {
-                    String tripId = documentReference.getId();
-                    listener.onSuccess(tripId);
-                })
+                .document(tripId)
+                .set(tripData, SetOptions.merge())
+                .addOnSuccessListener(aVoid -> listener.onSuccess(tripId))
                 .addOnFailureListener(e -> {
                     listener.onError("Failed to start trip: " + e.getMessage());
                 });
@@ -315,6 +279,7 @@ public class FirebaseHelper {
 
     public void updateTripStatus(String tripId, String status, FirebaseCompleteListener listener) {
         Map<String, Object> updates = new HashMap<>();
+        updates.put("userId", sessionManager.getUserId());
         updates.put("status", status);
         if (status.equals("completed")) {
             updates.put("endTime", System.currentTimeMillis());
@@ -322,7 +287,7 @@ public class FirebaseHelper {
 
         db.collection(TRIPS_COLLECTION)
                 .document(tripId)
-                .update(updates)
+                .set(updates, SetOptions.merge())
                 .addOnSuccessListener(aVoid -> {
                     listener.onSuccess("Trip status updated to " + status);
                 })
@@ -331,44 +296,71 @@ public class FirebaseHelper {
                 });
     }
 
+    // trace is a TrajectoryCodec blob of the whole ride, or null when no fixes were recorded
+    public void saveTripSummary(String tripId, TripAggregator.Summary summary, byte[] trace,
+                                FirebaseCompleteListener listener) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("userId", sessionManager.getUserId());
+        stats.put("distance", (float) (summary.distanceMeters / 1000)); // km, as in Trip
+        stats.put("durationMs", summary.durationMs);
+        stats.put("movingTimeMs", summary.movingMs);
+        stats.put("maxSpeedKph", summary.maxSpeedKph);
+        stats.put("avgSpeedKph", summary.avgSpeedKph);
+        stats.put("stopCount", summary.stopCount);
+        if (trace != null) {
+            stats.put("trace", Blob.fromBytes(trace));
+        }
+
+        db.collection(TRIPS_COLLECTION)
+                .document(tripId)
+                .set(stats, SetOptions.merge())
+                .addOnSuccessListener(aVoid -> listener.onSuccess("Trip summary saved"))
+                .addOnFailureListener(e -> listener.onError("Failed to save trip summary: " + e.getMessage()));
+    }
+
+    // Replay/export of a finished trip: one document read instead of one per fix
+    public void loadTripTrace(String tripId, TripTraceListener listener) {
+        db.collection(TRIPS_COLLECTION)
+                .document(tripId)
+                .get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    Blob trace = documentSnapshot.getBlob("trace");
+                    if (trace == null) {
+                        listener.onError("No trace stored for this trip");
+                        return;
+                    }
+                    try {
+                        listener.onTrace(TrajectoryCodec.decode(trace.toBytes()));
+                    } catch (IllegalArgumentException e) {
+                        listener.onError("Corrupt trip trace: " + e.getMessage());
+                    }
+                })
+                .addOnFailureListener(e -> listener.onError("Failed to load trip trace: " + e.getMessage()));
+    }
+
     // ========== LOCATION METHODS ==========
 
     public void logLocation(String tripId, double latitude, double longitude, float batteryLevel) {
-        Map<String, Object> locationData = new HashMap<>();
-        locationData.put("tripId", tripId);
-        locationData.put("latitude", latitude);
-        locationData.put("longitude", longitude);
-        locationData.put("timestamp", System.currentTimeMillis());
-        locationData.put("batteryLevel", batteryLevel);
-        locationData.put("userId", sessionManager.getUserId());
-
-        db.collection(LOCATIONS_COLLECTION)
-                .add(locationData)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Location logged successfully");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to log location: " + e.getMessage());
-                });
+        locationWriteBatcher.enqueue(tripId, latitude, longitude, System.currentTimeMillis(),
+                batteryLevel, null, null, false);
     }
 
-    public void saveLocationUpdate(Map<String, Object> locationData, FirebaseCompleteListener listener) {
-        String userId = sessionManager.getUserId();
-        if (userId.isEmpty()) {
-            listener.onError("User not logged in");
+    public void saveLocationUpdate(double latitude, double longitude, String message, String type, boolean urgent) {
+        if (sessionManager.getUserId().isEmpty()) {
+            Log.e(TAG, "Cannot save location: user not logged in");
             return;
         }
 
-        locationData.put("userId", userId);
+        locationWriteBatcher.enqueue(null, latitude, longitude, System.currentTimeMillis(),
+                -1, message, type, urgent);
+    }
 
-        db.collection(LOCATIONS_COLLECTION)
-                .add(locationData)
-                .addOnSuccessListener(documentReference -> {
-                    listener.onSuccess("Location saved");
-                })
-                .addOnFailureListener(e -> {
-                    listener.onError("Failed to save location: " + e.getMessage());
-                });
+    public void flushLocationUpdates() {
+        locationWriteBatcher.flush();
+    }
+
+    public LocationWriteBatcher getLocationWriteBatcher() {
+        return locationWriteBatcher;
     }
 
     // ========== OTP METHODS ==========
@@ -0,0 +1,25 @@
+//GeoMath.java
+package com.safetytrack.utils;
+
+/**
+ * Spherical-earth distances shared by trip stats, traces, the spatial index and compact SMS, so
+ * every distance in the app comes from one earth radius. The sphere is within ~0.5% of WGS84,
+ * well inside GPS noise.
+ */
+public final class GeoMath {
+    public static final double EARTH_RADIUS_M = 6371008.8; // mean radius
+    // One degree of latitude, or of longitude at the equator, on that sphere
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS_M * Math.PI / 180;
+
+    private GeoMath() {
+    }
+
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
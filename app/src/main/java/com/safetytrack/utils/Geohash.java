@@ -0,0 +1,132 @@
+//Geohash.java
+package com.safetytrack.utils;
+
+/**
+ * Minimal geohash codec (base32, interleaved longitude/latitude bits).
+ *
+ * Besides the string form, a hash of up to 12 characters is also available as its integer
+ * value (5 bits per character), which is what the local SpatialIndex buckets by.
+ */
+public final class Geohash {
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {}
+
+    public static String encode(double latitude, double longitude, int precision) {
+        char[] hash = new char[precision];
+        encodeInto(latitude, longitude, precision, hash, 0);
+        return new String(hash);
+    }
+
+    // Writes the hash into an existing buffer so hot paths avoid allocating
+    public static void encodeInto(double latitude, double longitude, int precision, char[] out, int offset) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        int written = 0;
+
+        while (written < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                out[offset + written++] = BASE32[ch];
+                bit = 0;
+                ch = 0;
+            }
+        }
+    }
+
+    // The hash as an integer: the same interleaved bits, without the base32 step
+    public static long cell(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        long cell = 0;
+        for (int bit = 0; bit < precision * 5; bit++) {
+            if ((bit & 1) == 0) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    cell = (cell << 1) | 1;
+                    minLng = mid;
+                } else {
+                    cell = cell << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    cell = (cell << 1) | 1;
+                    minLat = mid;
+                } else {
+                    cell = cell << 1;
+                    maxLat = mid;
+                }
+            }
+        }
+        return cell;
+    }
+
+    // Cell height and width in degrees: {latitude, longitude}
+    public static double[] cellSize(int precision) {
+        int bits = precision * 5;
+        int lngBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        return new double[]{180.0 / (1L << latBits), 360.0 / (1L << lngBits)};
+    }
+
+    // {minLat, minLng, maxLat, maxLng} of the cell a hash names
+    public static double[] decodeBounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean evenBit = true;
+
+        for (int i = 0; i < hash.length(); i++) {
+            int value = indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((value >> bit) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (set) minLng = mid; else maxLng = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) minLat = mid; else maxLat = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{minLat, minLng, maxLat, maxLng};
+    }
+
+    // Cell center: {latitude, longitude}
+    public static double[] decode(String hash) {
+        double[] bounds = decodeBounds(hash);
+        return new double[]{(bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2};
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) return i;
+        }
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+}
@@ -0,0 +1,184 @@
+//KeywordMatcher.java
+package com.safetytrack.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Precompiled Aho-Corasick automaton for the voice SOS keywords. One pass over the text finds
+ * any of the keywords, however many there are, so every recognizer hypothesis (partial and
+ * final) can be checked on each callback.
+ *
+ * The automaton is a dense DFA over the keywords' own alphabet: ASCII maps to a column through
+ * a 128-entry table, other characters (Devanagari, Kannada, ...) through a sorted array, and any
+ * character outside the alphabet sends the walk back to the root. Matching is case-insensitive
+ * and a keyword only counts as a whole word, so "risk" does not fire inside "asterisk" nor
+ * "help" inside "helpful". Combining vowel signs count as part of a word.
+ */
+public final class KeywordMatcher {
+    private final String[] keywords;
+    private final int columns;
+    private final int[] asciiColumn = new int[128];
+    private final char[] otherChars;
+    private final int[] otherColumns;
+    private final int[] delta;
+    // Longest keyword ending at each state, and the nearest suffix state that also ends one
+    private final int[] output;
+    private final int[] outputLink;
+    // First state to report from each state (itself or its outputLink); -1 on the common path
+    private final int[] report;
+
+    private KeywordMatcher(String[] keywords, char[] alphabet, List<Map<Integer, Integer>> children,
+                           int[] trieOutput) {
+        this.keywords = keywords;
+        this.columns = alphabet.length + 1; // column 0: outside the alphabet
+
+        List<Character> others = new ArrayList<>();
+        for (int i = 0; i < alphabet.length; i++) {
+            char c = alphabet[i];
+            if (c < 128) {
+                asciiColumn[c] = i + 1;
+                char upper = Character.toUpperCase(c);
+                if (upper < 128) asciiColumn[upper] = i + 1;
+            } else {
+                others.add(c);
+            }
+        }
+        otherChars = new char[others.size()];
+        otherColumns = new int[others.size()];
+        for (int i = 0; i < others.size(); i++) {
+            otherChars[i] = others.get(i);
+            otherColumns[i] = Arrays.binarySearch(alphabet, otherChars[i]) + 1;
+        }
+
+        int states = children.size();
+        delta = new int[states * columns];
+        output = trieOutput;
+        outputLink = new int[states];
+        int[] fail = new int[states];
+        Arrays.fill(outputLink, -1);
+
+        // Breadth-first: a state's failure target is always finished before the state itself
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Integer, Integer> edge : children.get(0).entrySet()) {
+            delta[edge.getKey()] = edge.getValue();
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            Map<Integer, Integer> edges = children.get(state);
+            for (int column = 0; column < columns; column++) {
+                Integer child = edges.get(column);
+                if (child == null) {
+                    delta[state * columns + column] = delta[fail[state] * columns + column];
+                    continue;
+                }
+                delta[state * columns + column] = child;
+                int target = delta[fail[state] * columns + column];
+                fail[child] = target;
+                outputLink[child] = output[target] >= 0 ? target : outputLink[target];
+                queue.add(child);
+            }
+        }
+
+        report = new int[states];
+        for (int state = 0; state < states; state++) {
+            report[state] = output[state] >= 0 ? state : outputLink[state];
+        }
+    }
+
+    public static KeywordMatcher compile(String... keywords) {
+        List<String> normalized = new ArrayList<>();
+        TreeSet<Character> alphabetSet = new TreeSet<>();
+        for (String keyword : keywords) {
+            String lower = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+            if (lower.isEmpty() || normalized.contains(lower)) continue;
+            normalized.add(lower);
+            for (int i = 0; i < lower.length(); i++) {
+                alphabetSet.add(lower.charAt(i));
+            }
+        }
+
+        char[] alphabet = new char[alphabetSet.size()];
+        int a = 0;
+        for (char c : alphabetSet) alphabet[a++] = c;
+
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> trieOutput = new ArrayList<>();
+        children.add(new HashMap<>());
+        trieOutput.add(-1);
+        for (int k = 0; k < normalized.size(); k++) {
+            String keyword = normalized.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int column = Arrays.binarySearch(alphabet, keyword.charAt(i)) + 1;
+                Integer next = children.get(state).get(column);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    trieOutput.add(-1);
+                    children.get(state).put(column, next);
+                }
+                state = next;
+            }
+            trieOutput.set(state, k);
+        }
+
+        int[] output = new int[trieOutput.size()];
+        for (int i = 0; i < output.length; i++) output[i] = trieOutput.get(i);
+        return new KeywordMatcher(normalized.toArray(new String[0]), alphabet, children, output);
+    }
+
+    // ========== MATCHING ==========
+
+    // The first keyword (by end position) that stands as a whole word in text, or null
+    public String findFirst(CharSequence text) {
+        if (text == null) return null;
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = delta[state * columns + column(text.charAt(i))];
+            for (int s = report[state]; s >= 0; s = outputLink[s]) {
+                String keyword = keywords[output[s]];
+                int start = i - keyword.length() + 1;
+                if ((start == 0 || !isWordChar(text.charAt(start - 1)))
+                        && (i + 1 == length || !isWordChar(text.charAt(i + 1)))) {
+                    return keyword;
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean matches(CharSequence text) {
+        return findFirst(text) != null;
+    }
+
+    public int keywordCount() {
+        return keywords.length;
+    }
+
+    static boolean isWordChar(char c) {
+        if (Character.isLetterOrDigit(c)) return true;
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private int column(char c) {
+        if (c < 128) return asciiColumn[c];
+        int i = Arrays.binarySearch(otherChars, c);
+        if (i < 0) {
+            char lower = Character.toLowerCase(c);
+            if (lower == c) return 0;
+            i = Arrays.binarySearch(otherChars, lower);
+            if (i < 0) return 0;
+        }
+        return otherColumns[i];
+    }
+}
@@ -0,0 +1,397 @@
+//LocationJournal.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only, memory-mapped journal of location fixes. Every fix is written as a fixed-width
+ * record into a segment file before it is sent anywhere, and a background drainer replays the
+ * journal into Firestore in order whenever the network is available. Segments whose records
+ * have all been acknowledged are deleted.
+ *
+ * Record layout (64 bytes):
+ * [0]  long   timestamp (0 marks an empty slot, written last)
+ * [8]  double latitude
+ * [16] double longitude
+ * [24] float  accuracy (NaN when unknown)
+ * [28] float  batteryLevel
+ * [32] byte   tripId length
+ * [33] 31 bytes of ASCII tripId
+ */
+public class LocationJournal {
+    private static final String TAG = "LocationJournal";
+    private static final String LOCATIONS_COLLECTION = "locations";
+    private static final String JOURNAL_DIR = "location_journal";
+    private static final String PREFS_NAME = "LocationJournal";
+    private static final String KEY_ACK_SEGMENT = "ackSegment";
+    private static final String KEY_ACK_INDEX = "ackIndex";
+
+    private static final int RECORD_SIZE = 64;
+    private static final int MAX_TRIP_ID_LENGTH = 31;
+    private static final int SEGMENT_RECORDS = 1024;
+    private static final int SEGMENT_BYTES = RECORD_SIZE * SEGMENT_RECORDS; // 64 KB
+    private static final int DRAIN_BATCH_SIZE = 100;
+    private static final long COMMIT_TIMEOUT_SECONDS = 30;
+
+    private static final int OFFSET_TIMESTAMP = 0;
+    private static final int OFFSET_LATITUDE = 8;
+    private static final int OFFSET_LONGITUDE = 16;
+    private static final int OFFSET_ACCURACY = 24;
+    private static final int OFFSET_BATTERY = 28;
+    private static final int OFFSET_TRIP_ID_LENGTH = 32;
+    private static final int OFFSET_TRIP_ID = 33;
+
+    private static LocationJournal instance;
+
+    private final File journalDir;
+    private final SharedPreferences prefs;
+    private final ConnectivityManager connectivityManager;
+    private final SessionManager sessionManager;
+    private final FirebaseFirestore db;
+    private final ExecutorService drainExecutor = Executors.newSingleThreadExecutor();
+
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment;
+    private int writeIndex;
+    private long ackSegment;
+    private int ackIndex;
+    private boolean drainQueued = false;
+
+    private LocationJournal(Context context) {
+        this.journalDir = new File(context.getFilesDir(), JOURNAL_DIR);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.sessionManager = SessionManager.getInstance(context);
+        this.db = FirebaseFirestore.getInstance();
+
+        if (!journalDir.exists() && !journalDir.mkdirs()) {
+            Log.e(TAG, "❌ Could not create journal directory");
+        }
+
+        ackSegment = prefs.getLong(KEY_ACK_SEGMENT, 0);
+        ackIndex = prefs.getInt(KEY_ACK_INDEX, 0);
+        openWriteSegment();
+        registerNetworkCallback();
+    }
+
+    public static synchronized LocationJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ========== APPEND PATH ==========
+
+    public synchronized void append(String tripId, long timestamp, double latitude, double longitude,
+                                    float accuracy, float batteryLevel) {
+        if (writeBuffer == null) {
+            Log.e(TAG, "❌ Journal unavailable, fix not persisted");
+            return;
+        }
+        if (writeIndex == SEGMENT_RECORDS) {
+            rollSegment();
+            if (writeBuffer == null) return;
+        }
+
+        int base = writeIndex * RECORD_SIZE;
+        writeBuffer.putDouble(base + OFFSET_LATITUDE, latitude);
+        writeBuffer.putDouble(base + OFFSET_LONGITUDE, longitude);
+        writeBuffer.putFloat(base + OFFSET_ACCURACY, accuracy);
+        writeBuffer.putFloat(base + OFFSET_BATTERY, batteryLevel);
+
+        int length = tripId == null ? 0 : Math.min(tripId.length(), MAX_TRIP_ID_LENGTH);
+        writeBuffer.put(base + OFFSET_TRIP_ID_LENGTH, (byte) length);
+        for (int i = 0; i < length; i++) {
+            writeBuffer.put(base + OFFSET_TRIP_ID + i, (byte) tripId.charAt(i));
+        }
+
+        // Timestamp goes last: a non-zero timestamp marks the record as complete
+        writeBuffer.putLong(base + OFFSET_TIMESTAMP, timestamp);
+        writeIndex++;
+    }
+
+    public synchronized long getPendingCount() {
+        return (writeSegment - ackSegment) * SEGMENT_RECORDS + writeIndex - ackIndex;
+    }
+
+    private void openWriteSegment() {
+        long[] segments = listSegments();
+        writeSegment = segments.length > 0 ? segments[segments.length - 1] : ackSegment;
+        if (writeSegment < ackSegment) {
+            writeSegment = ackSegment;
+        }
+
+        writeBuffer = mapSegment(writeSegment, true);
+        writeIndex = 0;
+        if (writeBuffer != null) {
+            while (writeIndex < SEGMENT_RECORDS
+                    && writeBuffer.getLong(writeIndex * RECORD_SIZE + OFFSET_TIMESTAMP) != 0) {
+                writeIndex++;
+            }
+        }
+        Log.d(TAG, "Journal opened at segment " + writeSegment + ", record " + writeIndex
+                + " (" + getPendingCount() + " pending)");
+    }
+
+    private void rollSegment() {
+        writeBuffer.force();
+        writeSegment++;
+        writeIndex = 0;
+        writeBuffer = mapSegment(writeSegment, true);
+    }
+
+    // ========== DRAINER ==========
+
+    public void requestDrain() {
+        synchronized (this) {
+            if (drainQueued) return;
+            drainQueued = true;
+        }
+        drainExecutor.execute(this::drain);
+    }
+
+    private void drain() {
+        synchronized (this) {
+            drainQueued = false;
+        }
+
+        if (!isNetworkAvailable()) {
+            Log.d(TAG, "📴 Offline, journal replay deferred (" + getPendingCount() + " pending)");
+            return;
+        }
+
+        String userId = sessionManager.getUserId();
+        if (userId.isEmpty()) {
+            return;
+        }
+
+        CollectionReference locations = db.collection(LOCATIONS_COLLECTION);
+        int replayed = 0;
+
+        while (true) {
+            long segment;
+            int fromIndex;
+            int toIndex;
+            MappedByteBuffer buffer;
+
+            synchronized (this) {
+                segment = ackSegment;
+                fromIndex = ackIndex;
+                if (segment == writeSegment) {
+                    toIndex = Math.min(writeIndex, fromIndex + DRAIN_BATCH_SIZE);
+                    buffer = writeBuffer;
+                } else {
+                    toIndex = Math.min(SEGMENT_RECORDS, fromIndex + DRAIN_BATCH_SIZE);
+                    buffer = null;
+                }
+            }
+
+            if (segment == writeSegment && fromIndex >= toIndex) {
+                break; // caught up with the writer
+            }
+
+            boolean currentSegment = segment == writeSegment;
+            if (buffer == null) {
+                buffer = mapSegment(segment, false);
+            }
+            if (buffer == null) {
+                acknowledge(segment, 0, true); // segment file is gone, nothing to replay
+                continue;
+            }
+
+            boolean reachedEmptySlot = false;
+            WriteBatch batch = db.batch();
+            int count = 0;
+            for (int i = fromIndex; i < toIndex; i++) {
+                int base = i * RECORD_SIZE;
+                long timestamp = buffer.getLong(base + OFFSET_TIMESTAMP);
+                if (timestamp == 0) {
+                    toIndex = i; // torn or never-written slot ends the segment
+                    reachedEmptySlot = true;
+                    break;
+                }
+                String tripId = readTripId(buffer, base);
+                // Deterministic id: replaying the same record twice overwrites, never duplicates
+                String documentId = (tripId.isEmpty() ? "untracked" : tripId) + "_" + timestamp;
+                batch.set(locations.document(documentId), toDocument(buffer, base, tripId, timestamp, userId));
+                count++;
+            }
+
+            if (count > 0) {
+                try {
+                    Tasks.await(batch.commit(), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Log.e(TAG, "❌ Journal replay failed, will retry on reconnect: " + e.getMessage());
+                    return;
+                }
+                replayed += count;
+            }
+
+            if (currentSegment) {
+                acknowledge(segment, toIndex, false);
+                if (count == 0) break;
+            } else {
+                acknowledge(segment, toIndex, reachedEmptySlot || toIndex == SEGMENT_RECORDS);
+            }
+        }
+
+        if (replayed > 0) {
+            Log.d(TAG, "✅ Replayed " + replayed + " journaled fixes");
+        }
+    }
+
+    private synchronized void acknowledge(long segment, int index, boolean segmentDone) {
+        if (segmentDone) {
+            ackSegment = segment + 1;
+            ackIndex = 0;
+        } else {
+            ackSegment = segment;
+            ackIndex = index;
+        }
+        prefs.edit()
+                .putLong(KEY_ACK_SEGMENT, ackSegment)
+                .putInt(KEY_ACK_INDEX, ackIndex)
+                .apply();
+        compact();
+    }
+
+    // Deletes every segment that is fully acknowledged and no longer being written
+    private void compact() {
+        for (long segment : listSegments()) {
+            if (segment < ackSegment && segment != writeSegment) {
+                File file = segmentFile(segment);
+                if (file.delete()) {
+                    Log.d(TAG, "🧹 Compacted journal segment " + segment);
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> toDocument(MappedByteBuffer buffer, int base, String tripId,
+                                           long timestamp, String userId) {
+        Map<String, Object> locationData = new HashMap<>();
+        if (!tripId.isEmpty()) {
+            locationData.put("tripId", tripId);
+        }
+        double latitude = buffer.getDouble(base + OFFSET_LATITUDE);
+        double longitude = buffer.getDouble(base + OFFSET_LONGITUDE);
+        locationData.put("latitude", latitude);
+        locationData.put("longitude", longitude);
+        locationData.put("geohash", Geohash.encode(latitude, longitude, LocationWriteBatcher.GEOHASH_PRECISION));
+        float accuracy = buffer.getFloat(base + OFFSET_ACCURACY);
+        if (!Float.isNaN(accuracy)) {
+            locationData.put("accuracy", accuracy);
+        }
+        float batteryLevel = buffer.getFloat(base + OFFSET_BATTERY);
+        if (batteryLevel >= 0) {
+            locationData.put("batteryLevel", batteryLevel);
+        }
+        locationData.put("timestamp", timestamp);
+        locationData.put("userId", userId);
+        return locationData;
+    }
+
+    private String readTripId(MappedByteBuffer buffer, int base) {
+        int length = Math.min(buffer.get(base + OFFSET_TRIP_ID_LENGTH), MAX_TRIP_ID_LENGTH);
+        if (length <= 0) return "";
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buffer.get(base + OFFSET_TRIP_ID + i);
+        }
+        return new String(chars);
+    }
+
+    // ========== FILES ==========
+
+    private File segmentFile(long segment) {
+        return new File(journalDir, String.format(Locale.US, "segment-%010d.jnl", segment));
+    }
+
+    private long[] listSegments() {
+        String[] names = journalDir.list();
+        if (names == null) return new long[0];
+
+        long[] segments = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.startsWith("segment-") && name.endsWith(".jnl")) {
+                try {
+                    segments[count++] = Long.parseLong(name.substring(8, name.length() - 4));
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Ignoring unexpected journal file " + name);
+                }
+            }
+        }
+        segments = Arrays.copyOf(segments, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private MappedByteBuffer mapSegment(long segment, boolean writable) {
+        File file = segmentFile(segment);
+        if (!writable && !file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r")) {
+            FileChannel channel = raf.getChannel();
+            if (writable) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), SEGMENT_BYTES));
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to map journal segment " + segment + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ========== CONNECTIVITY ==========
+
+    private boolean isNetworkAvailable() {
+        if (connectivityManager == null) return true;
+        Network network = connectivityManager.getActiveNetwork();
+        if (network == null) return false;
+        NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private void registerNetworkCallback() {
+        if (connectivityManager == null) return;
+        try {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    Log.d(TAG, "📶 Network available, replaying journal");
+                    requestDrain();
+                }
+            });
+        } catch (SecurityException e) {
+            Log.e(TAG, "Network callback not registered: " + e.getMessage());
+        }
+    }
+}
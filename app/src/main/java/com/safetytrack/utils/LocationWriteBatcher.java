@@ -0,0 +1,305 @@
+//LocationWriteBatcher.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buffers location fixes in a bounded ring and writes them to the "locations" collection
+ * as a single WriteBatch commit, either when enough fixes are queued or when the oldest
+ * one has waited long enough. Urgent fixes (SOS) flush immediately.
+ *
+ * Offline writes rely on Firestore's own queue: while the device is offline a commit stays
+ * pending and goes out on reconnect, it does not fail. Only a commit that comes back with a
+ * transient error is retried here - plain fixes are spilled into the {@link LocationJournal},
+ * fixes carrying a message or type (which the journal record has no room for) go back into
+ * the ring for the next flush. Permanent errors are logged and the batch is dropped.
+ */
+public class LocationWriteBatcher {
+    private static final String TAG = "LocationWriteBatcher";
+    private static final String LOCATIONS_COLLECTION = "locations";
+    private static final int RING_CAPACITY = 64;
+    private static final int MAX_BATCH_SIZE = 20;
+    private static final long MAX_BATCH_AGE_MS = 60000; // 1 minute
+    // ~5 m cells; any shorter prefix of it works for a Firestore range query
+    static final int GEOHASH_PRECISION = 9;
+
+    private static LocationWriteBatcher instance;
+
+    private final FirebaseFirestore db;
+    private final SessionManager sessionManager;
+    private final LocationJournal journal;
+    private final SpatialIndex spatialIndex;
+    private final Handler handler;
+    private final Runnable ageFlushRunnable = this::flush;
+
+    // Pending fixes, stored column-wise so queuing a fix does not build a map
+    private final String[] tripIds = new String[RING_CAPACITY];
+    private final double[] latitudes = new double[RING_CAPACITY];
+    private final double[] longitudes = new double[RING_CAPACITY];
+    private final long[] timestamps = new long[RING_CAPACITY];
+    private final float[] batteryLevels = new float[RING_CAPACITY];
+    private final String[] messages = new String[RING_CAPACITY];
+    private final String[] types = new String[RING_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+    private boolean ageFlushScheduled = false;
+
+    // Counters
+    private long flushCount = 0;
+    private long failedFlushCount = 0;
+    private long writtenCount = 0;
+    private long droppedCount = 0;
+    private long totalFlushLatencyMs = 0;
+    private long lastFlushLatencyMs = 0;
+    private int lastBatchSize = 0;
+    private int maxBatchSize = 0;
+
+    private LocationWriteBatcher(Context context) {
+        this.db = FirebaseFirestore.getInstance();
+        this.sessionManager = SessionManager.getInstance(context);
+        this.journal = LocationJournal.getInstance(context);
+        this.spatialIndex = SpatialIndex.getInstance(context);
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    public static synchronized LocationWriteBatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationWriteBatcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void enqueue(String tripId, double latitude, double longitude, long timestamp,
+                        float batteryLevel, String message, String type, boolean urgent) {
+        boolean flushNow;
+        synchronized (this) {
+            put(tripId, latitude, longitude, timestamp, batteryLevel, message, type);
+            flushNow = urgent || size >= MAX_BATCH_SIZE;
+            if (!flushNow) {
+                scheduleAgeFlush();
+            }
+        }
+
+        spatialIndex.add(tripId, timestamp, latitude, longitude);
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    private void put(String tripId, double latitude, double longitude, long timestamp,
+                     float batteryLevel, String message, String type) {
+        if (size == RING_CAPACITY) {
+            // Ring is full (flushes keep failing) - overwrite the oldest fix
+            head = (head + 1) % RING_CAPACITY;
+            size--;
+            droppedCount++;
+            Log.w(TAG, "⚠️ Location ring full, dropped oldest fix (" + droppedCount + " dropped)");
+        }
+
+        int slot = (head + size) % RING_CAPACITY;
+        tripIds[slot] = tripId;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        timestamps[slot] = timestamp;
+        batteryLevels[slot] = batteryLevel;
+        messages[slot] = message;
+        types[slot] = type;
+        size++;
+    }
+
+    private void scheduleAgeFlush() {
+        if (!ageFlushScheduled) {
+            ageFlushScheduled = true;
+            handler.postDelayed(ageFlushRunnable, MAX_BATCH_AGE_MS);
+        }
+    }
+
+    public void flush() {
+        String userId = sessionManager.getUserId();
+        CollectionReference locations = db.collection(LOCATIONS_COLLECTION);
+        WriteBatch batch = db.batch();
+        int batchSize;
+        String[] batchTripIds;
+        double[] batchLatitudes;
+        double[] batchLongitudes;
+        long[] batchTimestamps;
+        float[] batchBatteryLevels;
+        String[] batchMessages;
+        String[] batchTypes;
+
+        synchronized (this) {
+            handler.removeCallbacks(ageFlushRunnable);
+            ageFlushScheduled = false;
+
+            if (size == 0) {
+                return;
+            }
+
+            batchSize = size;
+            batchTripIds = new String[batchSize];
+            batchLatitudes = new double[batchSize];
+            batchLongitudes = new double[batchSize];
+            batchTimestamps = new long[batchSize];
+            batchBatteryLevels = new float[batchSize];
+            batchMessages = new String[batchSize];
+            batchTypes = new String[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                int slot = (head + i) % RING_CAPACITY;
+                batch.set(locations.document(), toDocument(slot, userId));
+                batchTripIds[i] = tripIds[slot];
+                batchLatitudes[i] = latitudes[slot];
+                batchLongitudes[i] = longitudes[slot];
+                batchTimestamps[i] = timestamps[slot];
+                batchBatteryLevels[i] = batteryLevels[slot];
+                batchMessages[i] = messages[slot];
+                batchTypes[i] = types[slot];
+                tripIds[slot] = null;
+                messages[slot] = null;
+                types[slot] = null;
+            }
+            head = (head + batchSize) % RING_CAPACITY;
+            size = 0;
+        }
+
+        long startedAt = SystemClock.elapsedRealtime();
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    long latency = SystemClock.elapsedRealtime() - startedAt;
+                    recordFlush(batchSize, latency);
+                    Log.d(TAG, "✅ Flushed " + batchSize + " fixes in " + latency + " ms");
+                })
+                .addOnFailureListener(e -> {
+                    synchronized (LocationWriteBatcher.this) {
+                        failedFlushCount++;
+                    }
+                    if (!isTransient(e)) {
+                        Log.e(TAG, "❌ Failed to flush " + batchSize + " fixes, not retrying: " + e.getMessage());
+                        return;
+                    }
+
+                    Log.e(TAG, "❌ Failed to flush " + batchSize + " fixes, will retry: " + e.getMessage());
+                    boolean spilled = false;
+                    synchronized (LocationWriteBatcher.this) {
+                        for (int i = 0; i < batchSize; i++) {
+                            if (batchMessages[i] != null || batchTypes[i] != null) {
+                                put(batchTripIds[i], batchLatitudes[i], batchLongitudes[i], batchTimestamps[i],
+                                        batchBatteryLevels[i], batchMessages[i], batchTypes[i]);
+                                scheduleAgeFlush();
+                            } else {
+                                journal.append(batchTripIds[i], batchTimestamps[i], batchLatitudes[i],
+                                        batchLongitudes[i], Float.NaN, batchBatteryLevels[i]);
+                                spilled = true;
+                            }
+                        }
+                    }
+                    if (spilled) {
+                        journal.requestDrain();
+                    }
+                });
+    }
+
+    private static boolean isTransient(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return false;
+        }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case ABORTED:
+            case CANCELLED:
+            case DEADLINE_EXCEEDED:
+            case INTERNAL:
+            case RESOURCE_EXHAUSTED:
+            case UNAVAILABLE:
+            case UNKNOWN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Map<String, Object> toDocument(int slot, String userId) {
+        Map<String, Object> locationData = new HashMap<>();
+        if (tripIds[slot] != null) {
+            locationData.put("tripId", tripIds[slot]);
+        }
+        locationData.put("latitude", latitudes[slot]);
+        locationData.put("longitude", longitudes[slot]);
+        locationData.put("geohash", Geohash.encode(latitudes[slot], longitudes[slot], GEOHASH_PRECISION));
+        locationData.put("timestamp", timestamps[slot]);
+        if (batteryLevels[slot] >= 0) {
+            locationData.put("batteryLevel", batteryLevels[slot]);
+        }
+        if (messages[slot] != null) {
+            locationData.put("message", messages[slot]);
+        }
+        if (types[slot] != null) {
+            locationData.put("type", types[slot]);
+        }
+        locationData.put("userId", userId);
+        return locationData;
+    }
+
+    private synchronized void recordFlush(int batchSize, long latencyMs) {
+        flushCount++;
+        writtenCount += batchSize;
+        totalFlushLatencyMs += latencyMs;
+        lastFlushLatencyMs = latencyMs;
+        lastBatchSize = batchSize;
+        if (batchSize > maxBatchSize) {
+            maxBatchSize = batchSize;
+        }
+    }
+
+    // ========== COUNTERS ==========
+
+    public synchronized int getPendingCount() {
+        return size;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized long getFailedFlushCount() {
+        return failedFlushCount;
+    }
+
+    public synchronized long getWrittenCount() {
+        return writtenCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs;
+    }
+
+    public synchronized long getAverageFlushLatencyMs() {
+        return flushCount == 0 ? 0 : totalFlushLatencyMs / flushCount;
+    }
+
+    public synchronized int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public synchronized float getAverageBatchSize() {
+        return flushCount == 0 ? 0 : writtenCount / (float) flushCount;
+    }
+}
@@ -0,0 +1,150 @@
+//PhoneNumberNormalizer.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns user-entered phone numbers into the E.164 form the SMS code sends to, in one pass over
+ * the characters and without regexes. Results are kept in a small LRU so the same contacts are
+ * not re-normalized on every reload, and equal inputs share one String instance.
+ *
+ * Rules (with the default country code, e.g. 91):
+ *   - leading '+' or '00' (already international)  → +digits
+ *   - 10 digits                                     → +91digits
+ *   - 11 digits starting with a trunk '0'           → +91 and the last 10 digits
+ *   - 91 followed by 10 digits                      → +digits
+ *   - more than 12 digits                           → +digits
+ *   - anything else is returned as bare digits
+ */
+public class PhoneNumberNormalizer {
+    public static final String DEFAULT_COUNTRY_CODE = "91";
+    public static final String KEY_COUNTRY_CODE = "defaultCountryCode";
+    private static final int NATIONAL_NUMBER_LENGTH = 10;
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static PhoneNumberNormalizer instance;
+
+    private final Map<String, String> cache;
+    private final char[] digits = new char[32];
+    private volatile String countryCode;
+
+    public PhoneNumberNormalizer(String countryCode, int cacheSize) {
+        this.countryCode = countryCode;
+        this.cache = new LinkedHashMap<String, String>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static synchronized PhoneNumberNormalizer getInstance(Context context) {
+        if (instance == null) {
+            SharedPreferences prefs = context.getApplicationContext()
+                    .getSharedPreferences("SafetyTrack", Context.MODE_PRIVATE);
+            instance = new PhoneNumberNormalizer(
+                    prefs.getString(KEY_COUNTRY_CODE, DEFAULT_COUNTRY_CODE), DEFAULT_CACHE_SIZE);
+        }
+        return instance;
+    }
+
+    public synchronized void setCountryCode(String countryCode) {
+        if (!countryCode.equals(this.countryCode)) {
+            this.countryCode = countryCode;
+            cache.clear();
+        }
+    }
+
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    // Returns null for input without any digits
+    public synchronized String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        String cached = cache.get(raw);
+        if (cached != null) {
+            return cached;
+        }
+
+        String normalized = scan(raw);
+        if (normalized != null) {
+            cache.put(raw, normalized);
+        }
+        return normalized;
+    }
+
+    private String scan(String raw) {
+        int count = 0;
+        boolean plusPrefix = false;
+        boolean seenDigit = false;
+
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count == digits.length) {
+                    return null; // not a phone number
+                }
+                digits[count++] = c;
+                seenDigit = true;
+            } else if (c == '+' && !seenDigit) {
+                plusPrefix = true;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        String cc = countryCode;
+        int start = 0;
+
+        if (!plusPrefix && count > 2 && digits[0] == '0' && digits[1] == '0') {
+            plusPrefix = true;
+            start = 2;
+        }
+
+        if (plusPrefix) {
+            return build("+", null, start, count);
+        }
+        if (count == NATIONAL_NUMBER_LENGTH) {
+            return build("+", cc, 0, count);
+        }
+        if (count == NATIONAL_NUMBER_LENGTH + 1 && digits[0] == '0') {
+            return build("+", cc, 1, count);
+        }
+        if (count == cc.length() + NATIONAL_NUMBER_LENGTH && startsWith(cc)) {
+            return build("+", null, 0, count);
+        }
+        if (count > 12) {
+            return build("+", null, 0, count);
+        }
+        return build("", null, 0, count);
+    }
+
+    private boolean startsWith(String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digits[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String build(String plus, String cc, int from, int to) {
+        StringBuilder sb = new StringBuilder(plus.length() + (cc == null ? 0 : cc.length()) + to - from);
+        sb.append(plus);
+        if (cc != null) {
+            sb.append(cc);
+        }
+        sb.append(digits, from, to - from);
+        return sb.toString();
+    }
+}
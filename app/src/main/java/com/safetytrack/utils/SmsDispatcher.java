@@ -0,0 +1,414 @@
+//SmsDispatcher.java
+package com.safetytrack.utils;
+
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.telephony.SmsManager;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single outgoing SMS pipeline for the app. Messages are queued in priority lanes
+ * (SOS > SAFE_ARRIVAL > JOURNEY_UPDATE > LOW_BATTERY), sent through a per-carrier token bucket,
+ * and retried with exponential backoff when SmsBroadcastReceiver reports a transient failure.
+ * A newer journey update or low-battery alert to a contact replaces one of the same kind still
+ * waiting in the queue, and the queue is capped, evicting the lowest-priority message first.
+ *
+ * A long message goes out as a multipart SMS with a sent and a delivered report on every part;
+ * it counts as sent (or delivered) once all parts have reported, and as failed if any part fails.
+ */
+public class SmsDispatcher {
+    private static final String TAG = "SmsDispatcher";
+    public static final String SMS_SENT_ACTION = "com.safetytrack.SMS_SENT";
+    public static final String SMS_DELIVERED_ACTION = "com.safetytrack.SMS_DELIVERED";
+    public static final String EXTRA_MESSAGE_ID = "messageId";
+    public static final String EXTRA_PART = "part";
+    public static final String EXTRA_PART_COUNT = "partCount";
+    public static final String EXTRA_ATTEMPT = "attempt";
+
+    // Token bucket per carrier: short bursts allowed, then one message every RATE_REFILL_MS
+    private static final int RATE_BUCKET_SIZE = 10;
+    private static final long RATE_REFILL_MS = 3000;
+    private static final long RETRY_BASE_DELAY_MS = 5000;
+    private static final long RETRY_MAX_DELAY_MS = 300000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_SOS_ATTEMPTS = 10;
+    // Ledger reason codes for dropped messages, which never reached the radio
+    private static final int RESULT_SUPERSEDED = -100;
+    private static final int RESULT_NOT_SENT = -101;
+    private static final int RESULT_QUEUE_FULL = -102;
+    private static final int MAX_QUEUED = 200;
+    // Request codes reserve this many parts per message id
+    private static final int MAX_PARTS = 64;
+    private static final int MAX_AWAITING_DELIVERY = 256;
+
+    public enum Priority { SOS, SAFE_ARRIVAL, JOURNEY_UPDATE, LOW_BATTERY }
+
+    public interface SendListener {
+        // The radio accepted every part of the message; called where SMS_SENT is received (main thread)
+        void onSmsSent(long messageId, Priority priority, String phone);
+    }
+
+    private static final class OutgoingSms implements Comparable<OutgoingSms> {
+        final long id;
+        final long sequence;
+        final Priority priority;
+        final String phone;
+        final String message;
+        int attempts = 0;
+        // Part reports of the current attempt; a failure code wins over RESULT_OK
+        int parts = 1;
+        int partsSent;
+        int sendResult;
+        int partsDelivered;
+        int deliveryResult;
+
+        OutgoingSms(long id, long sequence, Priority priority, String phone, String message) {
+            this.id = id;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.phone = phone;
+            this.message = message;
+        }
+
+        void startAttempt(int partCount) {
+            parts = partCount;
+            partsSent = 0;
+            sendResult = Activity.RESULT_OK;
+            partsDelivered = 0;
+            deliveryResult = Activity.RESULT_OK;
+        }
+
+        // True once every part has reported its send result
+        boolean onPartSent(int resultCode) {
+            partsSent++;
+            if (resultCode != Activity.RESULT_OK && sendResult == Activity.RESULT_OK) {
+                sendResult = resultCode;
+            }
+            return partsSent >= parts;
+        }
+
+        boolean onPartDelivered(int resultCode) {
+            partsDelivered++;
+            if (resultCode != Activity.RESULT_OK && deliveryResult == Activity.RESULT_OK) {
+                deliveryResult = resultCode;
+            }
+            return partsDelivered >= parts;
+        }
+
+        @Override
+        public int compareTo(OutgoingSms other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class TokenBucket {
+        double tokens = RATE_BUCKET_SIZE;
+        long refilledAt = SystemClock.elapsedRealtime();
+
+        boolean tryTake(long now) {
+            tokens = Math.min(RATE_BUCKET_SIZE, tokens + (now - refilledAt) / (double) RATE_REFILL_MS);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        long millisUntilToken() {
+            return (long) Math.ceil((1 - tokens) * RATE_REFILL_MS);
+        }
+    }
+
+    private static SmsDispatcher instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final Runnable pumpRunnable = this::pump;
+    private final PriorityQueue<OutgoingSms> queue = new PriorityQueue<>();
+    private final Map<Long, OutgoingSms> inFlight = new HashMap<>();
+    // Multipart messages on the radio, waiting for the delivery report of every part
+    private final Map<Long, OutgoingSms> awaitingDelivery = new LinkedHashMap<Long, OutgoingSms>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, OutgoingSms> eldest) {
+            return size() > MAX_AWAITING_DELIVERY;
+        }
+    };
+    private final Map<String, TokenBucket> carrierBuckets = new HashMap<>();
+    private final SmsLedger ledger;
+    private final List<SendListener> sendListeners = new CopyOnWriteArrayList<>();
+    // Wall-clock seed keeps message ids unique in the ledger across process restarts
+    private long nextId = System.currentTimeMillis();
+    private long nextSequence = 0;
+
+    private SmsDispatcher(Context context) {
+        this.context = context;
+        this.ledger = SmsLedger.getInstance(context);
+        HandlerThread thread = new HandlerThread("SmsDispatcher");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized SmsDispatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new SmsDispatcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public int sendToAll(List<String> phones, String message, Priority priority) {
+        int queued = 0;
+        for (String phone : phones) {
+            if (send(phone, message, priority)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    public synchronized boolean send(String phone, String message, Priority priority) {
+        if (phone == null || phone.trim().isEmpty()) {
+            return false;
+        }
+
+        if (isReplaceable(priority)) {
+            dropQueued(phone, priority);
+        }
+        if (queue.size() >= MAX_QUEUED && !evictBelow(priority)) {
+            Log.w(TAG, "⚠️ Queue full, not queuing " + priority + " SMS to " + phone);
+            return false;
+        }
+
+        OutgoingSms sms = new OutgoingSms(nextId++, nextSequence++, priority, phone, message);
+        ledger.recordQueued(sms.id, phone, priority.name());
+        queue.add(sms);
+        handler.post(pumpRunnable);
+        return true;
+    }
+
+    public void addSendListener(SendListener listener) {
+        if (!sendListeners.contains(listener)) {
+            sendListeners.add(listener);
+        }
+    }
+
+    public void removeSendListener(SendListener listener) {
+        sendListeners.remove(listener);
+    }
+
+    // Called by SmsBroadcastReceiver with the result of SMS_DELIVERED for one part
+    public synchronized void onDeliveryResult(long messageId, int attempt, int resultCode) {
+        OutgoingSms sms = awaitingDelivery.get(messageId);
+        if (sms != null) {
+            if (sms.attempts != attempt || !sms.onPartDelivered(resultCode)) {
+                return;
+            }
+            awaitingDelivery.remove(messageId);
+            resultCode = sms.deliveryResult;
+        }
+
+        if (resultCode == Activity.RESULT_OK) {
+            ledger.recordDelivered(messageId);
+        } else {
+            ledger.recordFailed(messageId, resultCode);
+        }
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    // Called by SmsBroadcastReceiver with the result of SMS_SENT for one part
+    public synchronized void onSendResult(long messageId, int attempt, int resultCode) {
+        OutgoingSms sms = inFlight.get(messageId);
+        if (sms == null || sms.attempts != attempt || !sms.onPartSent(resultCode)) {
+            return; // unknown, from an earlier attempt, or more parts to come
+        }
+        inFlight.remove(messageId);
+        resultCode = sms.sendResult;
+
+        if (resultCode == Activity.RESULT_OK) {
+            ledger.recordSent(sms.id, sms.attempts);
+            for (SendListener listener : sendListeners) {
+                listener.onSmsSent(sms.id, sms.priority, sms.phone);
+            }
+            return;
+        }
+        awaitingDelivery.remove(sms.id);
+
+        boolean transient_ = resultCode == SmsManager.RESULT_ERROR_NO_SERVICE
+                || resultCode == SmsManager.RESULT_ERROR_RADIO_OFF
+                || resultCode == SmsManager.RESULT_ERROR_GENERIC_FAILURE;
+        int maxAttempts = sms.priority == Priority.SOS ? MAX_SOS_ATTEMPTS : MAX_ATTEMPTS;
+
+        if (!transient_ || sms.attempts >= maxAttempts) {
+            Log.e(TAG, "❌ Giving up on " + sms.priority + " SMS to " + sms.phone
+                    + " after " + sms.attempts + " attempts (result " + resultCode + ")");
+            ledger.recordFailed(sms.id, resultCode);
+            return;
+        }
+
+        ledger.recordAttemptFailed(sms.id, sms.attempts, resultCode);
+
+        long delay = Math.min(RETRY_MAX_DELAY_MS, RETRY_BASE_DELAY_MS << (sms.attempts - 1));
+        Log.w(TAG, "🔁 Retrying " + sms.priority + " SMS to " + sms.phone + " in " + delay + " ms");
+        handler.postDelayed(() -> requeue(sms), delay);
+    }
+
+    private synchronized void requeue(OutgoingSms sms) {
+        // A newer message of the same kind for this contact makes the retry pointless
+        if (isReplaceable(sms.priority) && hasQueued(sms.phone, sms.priority)) {
+            Log.d(TAG, "Dropping stale " + sms.priority + " retry to " + sms.phone);
+            ledger.recordDropped(sms.id, RESULT_SUPERSEDED);
+            return;
+        }
+        queue.add(sms);
+        pump();
+    }
+
+    // Only the latest position or battery level is worth sending
+    private static boolean isReplaceable(Priority priority) {
+        return priority == Priority.JOURNEY_UPDATE || priority == Priority.LOW_BATTERY;
+    }
+
+    private void dropQueued(String phone, Priority priority) {
+        Iterator<OutgoingSms> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            OutgoingSms queued = iterator.next();
+            if (queued.priority == priority && queued.phone.equals(phone)) {
+                iterator.remove();
+                ledger.recordDropped(queued.id, RESULT_SUPERSEDED);
+                Log.d(TAG, "Dropped stale " + priority + " SMS to " + phone);
+            }
+        }
+    }
+
+    private boolean hasQueued(String phone, Priority priority) {
+        for (OutgoingSms queued : queue) {
+            if (queued.priority == priority && queued.phone.equals(phone)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Makes room by dropping the newest of the lowest-priority messages, if it ranks below priority
+    private boolean evictBelow(Priority priority) {
+        OutgoingSms last = null;
+        for (OutgoingSms queued : queue) {
+            if (last == null || queued.compareTo(last) > 0) {
+                last = queued;
+            }
+        }
+        if (last == null || last.priority.compareTo(priority) <= 0) {
+            // Nothing ranks below it; an SOS still goes over the cap rather than being refused
+            return priority == Priority.SOS;
+        }
+        queue.remove(last);
+        ledger.recordDropped(last.id, RESULT_QUEUE_FULL);
+        Log.w(TAG, "⚠️ Queue full, dropped " + last.priority + " SMS to " + last.phone);
+        return true;
+    }
+
+    // Runs on the dispatcher thread; sends as much as the rate limiter allows
+    private synchronized void pump() {
+        handler.removeCallbacks(pumpRunnable);
+        TokenBucket bucket = getCarrierBucket();
+
+        while (!queue.isEmpty()) {
+            OutgoingSms sms = queue.peek();
+            // SOS never waits on the rate limiter
+            if (sms.priority != Priority.SOS && !bucket.tryTake(SystemClock.elapsedRealtime())) {
+                handler.postDelayed(pumpRunnable, bucket.millisUntilToken());
+                return;
+            }
+            queue.poll();
+            transmit(sms);
+        }
+    }
+
+    private void transmit(OutgoingSms sms) {
+        sms.attempts++;
+        try {
+            SmsManager smsManager = SmsManager.getDefault();
+            ArrayList<String> parts = smsManager.divideMessage(sms.message);
+            sms.startAttempt(parts.size());
+            inFlight.put(sms.id, sms);
+            if (parts.size() > 1) {
+                // Early parts can report delivery before the last part reports sent
+                awaitingDelivery.put(sms.id, sms);
+                // Every part reports back; onSendResult completes the message once all of them have
+                ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+                ArrayList<PendingIntent> deliveredIntents = new ArrayList<>(parts.size());
+                for (int i = 0; i < parts.size(); i++) {
+                    sentIntents.add(createResultIntent(SMS_SENT_ACTION, sms, i));
+                    deliveredIntents.add(createResultIntent(SMS_DELIVERED_ACTION, sms, i));
+                }
+                smsManager.sendMultipartTextMessage(sms.phone, null, parts, sentIntents, deliveredIntents);
+            } else {
+                smsManager.sendTextMessage(sms.phone, null, sms.message,
+                        createResultIntent(SMS_SENT_ACTION, sms, 0),
+                        createResultIntent(SMS_DELIVERED_ACTION, sms, 0));
+            }
+            Log.d(TAG, "✅ " + sms.priority + " SMS #" + sms.id + " handed to radio for " + sms.phone
+                    + " (attempt " + sms.attempts + ")");
+        } catch (SecurityException e) {
+            inFlight.remove(sms.id);
+            awaitingDelivery.remove(sms.id);
+            ledger.recordDropped(sms.id, RESULT_NOT_SENT);
+            Log.e(TAG, "❌ SMS permission denied for " + sms.phone);
+        } catch (Exception e) {
+            inFlight.remove(sms.id);
+            awaitingDelivery.remove(sms.id);
+            ledger.recordDropped(sms.id, RESULT_NOT_SENT);
+            Log.e(TAG, "❌ Failed to send SMS to " + sms.phone + ": " + e.getMessage());
+        }
+    }
+
+    private PendingIntent createResultIntent(String action, OutgoingSms sms, int part) {
+        Intent intent = new Intent(action);
+        intent.setPackage(context.getPackageName());
+        intent.putExtra(EXTRA_MESSAGE_ID, sms.id);
+        intent.putExtra(EXTRA_PART, part);
+        intent.putExtra(EXTRA_PART_COUNT, sms.parts);
+        intent.putExtra(EXTRA_ATTEMPT, sms.attempts);
+        intent.putExtra("phone", sms.phone);
+        intent.putExtra("type", sms.priority.name());
+        // Unique request code per message part so overlapping sends never share a PendingIntent
+        long slot = sms.id * MAX_PARTS + part % MAX_PARTS;
+        int requestCode = (int) (slot * 2 + (SMS_SENT_ACTION.equals(action) ? 0 : 1));
+        return PendingIntent.getBroadcast(context, requestCode, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_ONE_SHOT);
+    }
+
+    private TokenBucket getCarrierBucket() {
+        String carrier = "default";
+        TelephonyManager tm = (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
+        if (tm != null && tm.getSimOperator() != null && !tm.getSimOperator().isEmpty()) {
+            carrier = tm.getSimOperator();
+        }
+
+        TokenBucket bucket = carrierBuckets.get(carrier);
+        if (bucket == null) {
+            bucket = new TokenBucket();
+            carrierBuckets.put(carrier, bucket);
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,310 @@
+//SmsLedger.java
+package com.safetytrack.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persisted delivery ledger with one row per outgoing SMS, keyed by the dispatcher's message id
+ * (queued → sent → delivered, or failed). Messages the app itself gave up on before they reached
+ * the radio (superseded, never sent) are marked dropped and left out of the per-contact stats, so
+ * those only count outcomes owed to the carrier or recipient. Disk writes run on a single
+ * background thread. A small in-memory index keeps per-contact delivery latency for the dashboard.
+ */
+public class SmsLedger extends SQLiteOpenHelper {
+    private static final String TAG = "SmsLedger";
+    private static final String DB_NAME = "sms_ledger.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "sms_ledger";
+    private static final long RETENTION_MS = 30L * 24 * 60 * 60 * 1000; // 30 days
+    private static final int MAX_TRACKED_MESSAGES = 512;
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_SENT = "sent";
+    public static final String STATUS_DELIVERED = "delivered";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_DROPPED = "dropped";
+
+    public static final class ContactStats {
+        public final String phone;
+        public final int queued;
+        public final int delivered;
+        public final int failed;
+        public final long averageLatencyMs;
+        public final long maxLatencyMs;
+        public final long lastLatencyMs;
+
+        ContactStats(String phone, int queued, int delivered, int failed,
+                     long averageLatencyMs, long maxLatencyMs, long lastLatencyMs) {
+            this.phone = phone;
+            this.queued = queued;
+            this.delivered = delivered;
+            this.failed = failed;
+            this.averageLatencyMs = averageLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+            this.lastLatencyMs = lastLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.getDefault(), "%s\n   ✅ %d/%d delivered, ❌ %d failed\n   ⏱️ avg %.1fs, max %.1fs, last %.1fs",
+                    phone, delivered, queued, failed,
+                    averageLatencyMs / 1000f, maxLatencyMs / 1000f, lastLatencyMs / 1000f);
+        }
+    }
+
+    private static SmsLedger instance;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    // Per-contact latency index: one slot per phone number in parallel arrays
+    private final Map<String, Integer> contactSlots = new HashMap<>();
+    private String[] slotPhones = new String[8];
+    private int[] queuedCounts = new int[8];
+    private int[] deliveredCounts = new int[8];
+    private int[] failedCounts = new int[8];
+    private long[] latencySums = new long[8];
+    private long[] latencyMax = new long[8];
+    private long[] latencyLast = new long[8];
+
+    // Queue time and phone of messages still waiting for a delivery report
+    private final Map<Long, Long> queuedAtById = new LinkedHashMap<Long, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_TRACKED_MESSAGES;
+        }
+    };
+    private final Map<Long, String> phoneById = new LinkedHashMap<Long, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > MAX_TRACKED_MESSAGES;
+        }
+    };
+
+    private SmsLedger(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        long openedAt = System.currentTimeMillis();
+        writer.execute(() -> loadIndex(openedAt));
+    }
+
+    public static synchronized SmsLedger getInstance(Context context) {
+        if (instance == null) {
+            instance = new SmsLedger(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "message_id INTEGER PRIMARY KEY, "
+                + "phone TEXT NOT NULL, "
+                + "type TEXT NOT NULL, "
+                + "status TEXT NOT NULL, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, "
+                + "result_code INTEGER, "
+                + "queued_at INTEGER NOT NULL, "
+                + "sent_at INTEGER, "
+                + "delivered_at INTEGER, "
+                + "failed_at INTEGER)");
+        db.execSQL("CREATE INDEX idx_sms_ledger_phone ON " + TABLE + " (phone)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    // ========== RECORDING ==========
+
+    public void recordQueued(long messageId, String phone, String type) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            queuedAtById.put(messageId, now);
+            phoneById.put(messageId, phone);
+            queuedCounts[slotFor(phone)]++;
+        }
+
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("message_id", messageId);
+            values.put("phone", phone);
+            values.put("type", type);
+            values.put("status", STATUS_QUEUED);
+            values.put("queued_at", now);
+            try {
+                getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Ledger insert failed for #" + messageId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    public void recordSent(long messageId, int attempts) {
+        long now = System.currentTimeMillis();
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("status", STATUS_SENT);
+            values.put("attempts", attempts);
+            values.put("sent_at", now);
+            updateRow(messageId, values);
+        });
+    }
+
+    public void recordAttemptFailed(long messageId, int attempts, int resultCode) {
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("attempts", attempts);
+            values.put("result_code", resultCode);
+            updateRow(messageId, values);
+        });
+    }
+
+    public void recordDelivered(long messageId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Long queuedAt = queuedAtById.remove(messageId);
+            String phone = phoneById.remove(messageId);
+            if (queuedAt != null && phone != null) {
+                int slot = slotFor(phone);
+                long latency = now - queuedAt;
+                deliveredCounts[slot]++;
+                latencySums[slot] += latency;
+                latencyLast[slot] = latency;
+                latencyMax[slot] = Math.max(latencyMax[slot], latency);
+            }
+        }
+
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("status", STATUS_DELIVERED);
+            values.put("delivered_at", now);
+            updateRow(messageId, values);
+        });
+    }
+
+    public void recordFailed(long messageId, int resultCode) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            queuedAtById.remove(messageId);
+            String phone = phoneById.remove(messageId);
+            if (phone != null) {
+                failedCounts[slotFor(phone)]++;
+            }
+        }
+
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("status", STATUS_FAILED);
+            values.put("result_code", resultCode);
+            values.put("failed_at", now);
+            updateRow(messageId, values);
+        });
+    }
+
+    // The app gave up on the message before the radio had it; not a delivery failure
+    public void recordDropped(long messageId, int reasonCode) {
+        synchronized (this) {
+            queuedAtById.remove(messageId);
+            String phone = phoneById.remove(messageId);
+            if (phone != null) {
+                queuedCounts[slotFor(phone)]--;
+            }
+        }
+
+        writer.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("status", STATUS_DROPPED);
+            values.put("result_code", reasonCode);
+            updateRow(messageId, values);
+        });
+    }
+
+    private void updateRow(long messageId, ContentValues values) {
+        try {
+            getWritableDatabase().update(TABLE, values, "message_id = ?",
+                    new String[]{String.valueOf(messageId)});
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Ledger update failed for #" + messageId + ": " + e.getMessage());
+        }
+    }
+
+    // ========== LATENCY INDEX ==========
+
+    public synchronized List<ContactStats> getContactStats() {
+        List<ContactStats> stats = new ArrayList<>(contactSlots.size());
+        for (int slot = 0; slot < contactSlots.size(); slot++) {
+            int delivered = deliveredCounts[slot];
+            stats.add(new ContactStats(slotPhones[slot], queuedCounts[slot], delivered, failedCounts[slot],
+                    delivered == 0 ? 0 : latencySums[slot] / delivered, latencyMax[slot], latencyLast[slot]));
+        }
+        return stats;
+    }
+
+    private int slotFor(String phone) {
+        Integer slot = contactSlots.get(phone);
+        if (slot != null) {
+            return slot;
+        }
+
+        int next = contactSlots.size();
+        if (next == slotPhones.length) {
+            int capacity = next * 2;
+            slotPhones = Arrays.copyOf(slotPhones, capacity);
+            queuedCounts = Arrays.copyOf(queuedCounts, capacity);
+            deliveredCounts = Arrays.copyOf(deliveredCounts, capacity);
+            failedCounts = Arrays.copyOf(failedCounts, capacity);
+            latencySums = Arrays.copyOf(latencySums, capacity);
+            latencyMax = Arrays.copyOf(latencyMax, capacity);
+            latencyLast = Arrays.copyOf(latencyLast, capacity);
+        }
+        slotPhones[next] = phone;
+        contactSlots.put(phone, next);
+        return next;
+    }
+
+    // Rebuilds the index from the ledger so stats survive process restarts
+    private void loadIndex(long before) {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.delete(TABLE, "queued_at < ?",
+                    new String[]{String.valueOf(System.currentTimeMillis() - RETENTION_MS)});
+
+            try (Cursor cursor = db.rawQuery("SELECT phone, SUM(status != '" + STATUS_DROPPED + "'), "
+                    + "SUM(delivered_at IS NOT NULL), SUM(status = '" + STATUS_FAILED + "'), "
+                    + "SUM(CASE WHEN delivered_at IS NOT NULL THEN delivered_at - queued_at ELSE 0 END), "
+                    + "MAX(CASE WHEN delivered_at IS NOT NULL THEN delivered_at - queued_at ELSE 0 END) "
+                    + "FROM " + TABLE + " WHERE queued_at < ? GROUP BY phone",
+                    new String[]{String.valueOf(before)})) {
+                synchronized (this) {
+                    while (cursor.moveToNext()) {
+                        int slot = slotFor(cursor.getString(0));
+                        queuedCounts[slot] += cursor.getInt(1);
+                        deliveredCounts[slot] += cursor.getInt(2);
+                        failedCounts[slot] += cursor.getInt(3);
+                        latencySums[slot] += cursor.getLong(4);
+                        latencyMax[slot] = Math.max(latencyMax[slot], cursor.getLong(5));
+                    }
+                }
+            }
+            Log.d(TAG, "📒 Ledger index loaded for " + contactSlots.size() + " contacts");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Failed to load ledger: " + e.getMessage());
+        }
+    }
+}
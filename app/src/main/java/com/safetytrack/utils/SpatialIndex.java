@@ -0,0 +1,322 @@
+//SpatialIndex.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device index of the rider's own fixes for area and proximity questions ("which trips passed
+ * within 500 m of here last week") without reading the locations collection.
+ *
+ * Fixes are bucketed by their precision-6 geohash cell (about 1.2 x 0.6 km), each bucket holding
+ * primitive arrays. A query enumerates only the cells overlapping its bounding box, then filters
+ * the points in them, so its cost follows the area asked about rather than the total history.
+ *
+ * History is persisted as fixed-width records appended to filesDir/spatial_index.bin and reloaded
+ * on first use; fixes older than RETENTION_MS are dropped at load. Boxes crossing the antimeridian
+ * are not split.
+ */
+public class SpatialIndex {
+    private static final String TAG = "SpatialIndex";
+    private static final String FILE_NAME = "spatial_index.bin";
+    static final int CELL_PRECISION = 6;
+    static final long RETENTION_MS = 180L * 24 * 60 * 60 * 1000;
+
+    // Record: long time, double lat, double lng, byte tripId length, 31 bytes of ASCII tripId
+    private static final int MAX_TRIP_ID_LENGTH = 31;
+    private static final int RECORD_SIZE = 8 + 8 + 8 + 1 + MAX_TRIP_ID_LENGTH;
+
+    public interface Visitor {
+        void onFix(String tripId, long timeMs, double lat, double lng);
+    }
+
+    private static final class Bucket {
+        double[] lats = new double[8];
+        double[] lngs = new double[8];
+        long[] times = new long[8];
+        int[] trips = new int[8];
+        int size;
+
+        void add(double lat, double lng, long time, int trip) {
+            if (size == lats.length) {
+                int capacity = size * 2;
+                lats = Arrays.copyOf(lats, capacity);
+                lngs = Arrays.copyOf(lngs, capacity);
+                times = Arrays.copyOf(times, capacity);
+                trips = Arrays.copyOf(trips, capacity);
+            }
+            lats[size] = lat;
+            lngs[size] = lng;
+            times[size] = time;
+            trips[size] = trip;
+            size++;
+        }
+    }
+
+    private static SpatialIndex instance;
+
+    private final File file;
+    private final ExecutorService ioExecutor;
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+    private final Map<String, Integer> tripIndex = new HashMap<>();
+    private final List<String> tripIds = new ArrayList<>();
+    private final double cellHeight;
+    private final double cellWidth;
+    private int size;
+    private volatile boolean loaded;
+
+    // file == null keeps the index in memory only
+    SpatialIndex(File file) {
+        this.file = file;
+        this.ioExecutor = file != null ? Executors.newSingleThreadExecutor() : null;
+        double[] cellSize = Geohash.cellSize(CELL_PRECISION);
+        this.cellHeight = cellSize[0];
+        this.cellWidth = cellSize[1];
+        tripIds.add(""); // index 0: fixes outside a trip
+
+        if (ioExecutor != null) {
+            ioExecutor.execute(this::load);
+        } else {
+            loaded = true;
+        }
+    }
+
+    public static synchronized SpatialIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new SpatialIndex(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    // ========== WRITE PATH ==========
+
+    public void add(String tripId, long timeMs, double lat, double lng) {
+        if (ioExecutor == null) {
+            insert(tripId, timeMs, lat, lng);
+            return;
+        }
+        // Queued behind load() so a compaction at load never sees a fix that is also appended
+        ioExecutor.execute(() -> {
+            insert(tripId, timeMs, lat, lng);
+            appendRecord(tripId, timeMs, lat, lng);
+        });
+    }
+
+    private synchronized void insert(String tripId, long timeMs, double lat, double lng) {
+        String key = tripId == null ? "" : tripId;
+        Integer trip = tripIndex.get(key);
+        if (trip == null) {
+            trip = key.isEmpty() ? 0 : tripIds.size();
+            if (trip != 0) tripIds.add(key);
+            tripIndex.put(key, trip);
+        }
+
+        long cell = Geohash.cell(lat, lng, CELL_PRECISION);
+        Bucket bucket = buckets.get(cell);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(cell, bucket);
+        }
+        bucket.add(lat, lng, timeMs, trip);
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // ========== QUERIES ==========
+
+    // Visits every fix inside the box within [fromMs, toMs]; returns how many matched
+    public synchronized int queryBox(double minLat, double minLng, double maxLat, double maxLng,
+                                     long fromMs, long toMs, Visitor visitor) {
+        return scan(minLat, minLng, maxLat, maxLng, fromMs, toMs, Double.NaN, 0, 0, visitor);
+    }
+
+    // Visits every fix within radiusMeters of the point in [fromMs, toMs]; returns how many matched
+    public synchronized int queryRadius(double lat, double lng, double radiusMeters,
+                                        long fromMs, long toMs, Visitor visitor) {
+        double dLat = radiusMeters / GeoMath.METERS_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(lat));
+        double dLng = cos < 1e-6 ? 180 : Math.min(180, radiusMeters / (GeoMath.METERS_PER_DEGREE * cos));
+        return scan(lat - dLat, lng - dLng, lat + dLat, lng + dLng, fromMs, toMs,
+                radiusMeters, lat, lng, visitor);
+    }
+
+    // Distinct trips with a fix within radiusMeters of the point, in first-seen order
+    public Set<String> tripsNear(double lat, double lng, double radiusMeters, long fromMs, long toMs) {
+        Set<String> trips = new LinkedHashSet<>();
+        queryRadius(lat, lng, radiusMeters, fromMs, toMs, (tripId, timeMs, fixLat, fixLng) -> {
+            if (!tripId.isEmpty()) trips.add(tripId);
+        });
+        return trips;
+    }
+
+    private int scan(double minLat, double minLng, double maxLat, double maxLng, long fromMs, long toMs,
+                     double radiusMeters, double centerLat, double centerLng, Visitor visitor) {
+        minLat = Math.max(-90, minLat);
+        maxLat = Math.min(90, maxLat);
+        minLng = Math.max(-180, minLng);
+        maxLng = Math.min(180, maxLng);
+        if (minLat > maxLat || minLng > maxLng) return 0;
+
+        long firstRow = (long) Math.floor((minLat + 90) / cellHeight);
+        long lastRow = Math.min((long) Math.floor((maxLat + 90) / cellHeight), Math.round(180 / cellHeight) - 1);
+        long firstColumn = (long) Math.floor((minLng + 180) / cellWidth);
+        long lastColumn = Math.min((long) Math.floor((maxLng + 180) / cellWidth), Math.round(360 / cellWidth) - 1);
+        long cellCount = (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+
+        int matched = 0;
+        if (cellCount > buckets.size()) {
+            // Box covers more cells than exist: walking the buckets is cheaper than the grid
+            for (Bucket bucket : buckets.values()) {
+                matched += filter(bucket, minLat, minLng, maxLat, maxLng, fromMs, toMs,
+                        radiusMeters, centerLat, centerLng, visitor);
+            }
+            return matched;
+        }
+
+        for (long row = firstRow; row <= lastRow; row++) {
+            double rowLat = -90 + (row + 0.5) * cellHeight;
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                double columnLng = -180 + (column + 0.5) * cellWidth;
+                Bucket bucket = buckets.get(Geohash.cell(rowLat, columnLng, CELL_PRECISION));
+                if (bucket != null) {
+                    matched += filter(bucket, minLat, minLng, maxLat, maxLng, fromMs, toMs,
+                            radiusMeters, centerLat, centerLng, visitor);
+                }
+            }
+        }
+        return matched;
+    }
+
+    private int filter(Bucket bucket, double minLat, double minLng, double maxLat, double maxLng,
+                       long fromMs, long toMs, double radiusMeters, double centerLat, double centerLng,
+                       Visitor visitor) {
+        int matched = 0;
+        for (int i = 0; i < bucket.size; i++) {
+            double lat = bucket.lats[i];
+            double lng = bucket.lngs[i];
+            long time = bucket.times[i];
+            if (time < fromMs || time > toMs
+                    || lat < minLat || lat > maxLat || lng < minLng || lng > maxLng) {
+                continue;
+            }
+            if (!Double.isNaN(radiusMeters) && GeoMath.haversine(centerLat, centerLng, lat, lng) > radiusMeters) {
+                continue;
+            }
+            matched++;
+            if (visitor != null) {
+                visitor.onFix(tripIds.get(bucket.trips[i]), time, lat, lng);
+            }
+        }
+        return matched;
+    }
+
+    // ========== PERSISTENCE ==========
+
+    private void load() {
+        if (!file.exists()) {
+            loaded = true;
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - RETENTION_MS;
+        int read = 0;
+        int expired = 0;
+        byte[] tripBytes = new byte[MAX_TRIP_ID_LENGTH];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                long time = in.readLong();
+                double lat = in.readDouble();
+                double lng = in.readDouble();
+                int length = Math.min(in.readUnsignedByte(), MAX_TRIP_ID_LENGTH);
+                in.readFully(tripBytes);
+                read++;
+                if (time < cutoff) {
+                    expired++;
+                    continue;
+                }
+                insert(new String(tripBytes, 0, length, StandardCharsets.US_ASCII), time, lat, lng);
+            }
+        } catch (EOFException e) {
+            // End of file, or a torn last record from a crash mid-append
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to load spatial index: " + e.getMessage());
+        }
+
+        if (expired > 0 || file.length() != (long) read * RECORD_SIZE) {
+            rewrite();
+        }
+        loaded = true;
+        Log.d(TAG, "🗺️ Loaded " + (read - expired) + " fixes (" + expired + " expired)");
+    }
+
+    private void appendRecord(String tripId, long timeMs, double lat, double lng) {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+            writeRecord(out, tripId, timeMs, lat, lng);
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to persist fix: " + e.getMessage());
+        }
+    }
+
+    // Compacts the file to exactly the fixes held in memory (drops expired and torn records)
+    private void rewrite() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            synchronized (this) {
+                for (Bucket bucket : buckets.values()) {
+                    for (int i = 0; i < bucket.size; i++) {
+                        writeRecord(out, tripIds.get(bucket.trips[i]), bucket.times[i], bucket.lats[i], bucket.lngs[i]);
+                    }
+                }
+            }
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to compact spatial index: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "❌ Failed to replace spatial index file");
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String tripId, long timeMs, double lat, double lng)
+            throws IOException {
+        out.writeLong(timeMs);
+        out.writeDouble(lat);
+        out.writeDouble(lng);
+        int length = tripId == null ? 0 : Math.min(tripId.length(), MAX_TRIP_ID_LENGTH);
+        out.writeByte(length);
+        for (int i = 0; i < MAX_TRIP_ID_LENGTH; i++) {
+            out.writeByte(i < length ? tripId.charAt(i) : 0);
+        }
+    }
+}
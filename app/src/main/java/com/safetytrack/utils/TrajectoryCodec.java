@@ -0,0 +1,231 @@
+//TrajectoryCodec.java
+package com.safetytrack.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact encoding of a whole trip trace for one field on the trip document.
+ *
+ *  1. Douglas-Peucker simplification: points are dropped while every original fix stays within
+ *     toleranceMeters of the simplified polyline (distances on a local equirectangular projection,
+ *     which is well under 0.1% off at trip scale).
+ *  2. The kept points are quantized to 1e-6 degrees (about 0.11 m) and whole seconds, and stored
+ *     as zigzag varint deltas from the previous point, so a typical step costs 5-7 bytes.
+ *
+ * Layout: byte version, varint count, varint firstTimeSeconds, zigzag lat0, zigzag lng0,
+ * then per point: varint dtSeconds, zigzag dLat, zigzag dLng.
+ *
+ * The decoded trace is within toleranceMeters + QUANTIZATION_ERROR_M of every input fix.
+ */
+public final class TrajectoryCodec {
+    static final int VERSION = 1;
+    static final double SCALE = 1e6;
+    // Half a quantization step on both axes, rounded up
+    public static final double QUANTIZATION_ERROR_M = 0.08;
+
+    /** Growable primitive arrays of fixes; no per-point objects while a trip is recorded. */
+    public static final class Track {
+        private long[] times;
+        private double[] lats;
+        private double[] lngs;
+        private int size;
+
+        public Track() {
+            this(256);
+        }
+
+        public Track(int capacity) {
+            times = new long[capacity];
+            lats = new double[capacity];
+            lngs = new double[capacity];
+        }
+
+        public void add(long timeMs, double lat, double lng) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lngs = Arrays.copyOf(lngs, capacity);
+            }
+            times[size] = timeMs;
+            lats[size] = lat;
+            lngs[size] = lng;
+            size++;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getTime(int i) {
+            return times[i];
+        }
+
+        public double getLat(int i) {
+            return lats[i];
+        }
+
+        public double getLng(int i) {
+            return lngs[i];
+        }
+    }
+
+    private TrajectoryCodec() {
+    }
+
+    // ========== ENCODE ==========
+
+    public static byte[] encode(Track track, double toleranceMeters) {
+        int n = track.size();
+        boolean[] keep = simplify(track, toleranceMeters);
+
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + kept * 7);
+        out.write(VERSION);
+        writeVarint(out, kept);
+        if (kept == 0) {
+            return out.toByteArray();
+        }
+
+        long prevTime = 0, prevLat = 0, prevLng = 0;
+        boolean first = true;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            long time = Math.round(track.times[i] / 1000.0);
+            long lat = Math.round(track.lats[i] * SCALE);
+            long lng = Math.round(track.lngs[i] * SCALE);
+            if (first) {
+                writeVarint(out, time);
+                first = false;
+            } else {
+                writeVarint(out, Math.max(0, time - prevTime));
+            }
+            writeVarint(out, zigzag(lat - prevLat));
+            writeVarint(out, zigzag(lng - prevLng));
+            prevTime = Math.max(prevTime, time);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return out.toByteArray();
+    }
+
+    // Iterative Douglas-Peucker; the first and last points are always kept
+    static boolean[] simplify(Track track, double toleranceMeters) {
+        int n = track.size();
+        boolean[] keep = new boolean[n];
+        if (n == 0) return keep;
+        keep[0] = true;
+        keep[n - 1] = true;
+        if (n < 3) return keep;
+
+        double cosLat = Math.cos(Math.toRadians(track.lats[0]));
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            double ax = track.lngs[start] * cosLat, ay = track.lats[start];
+            double bx = track.lngs[end] * cosLat, by = track.lats[end];
+            double maxSq = -1;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double d = segmentDistanceSq(track.lngs[i] * cosLat, track.lats[i], ax, ay, bx, by);
+                if (d > maxSq) {
+                    maxSq = d;
+                    farthest = i;
+                }
+            }
+
+            if (farthest >= 0 && maxSq * GeoMath.METERS_PER_DEGREE * GeoMath.METERS_PER_DEGREE > toleranceSq) {
+                keep[farthest] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        return keep;
+    }
+
+    // Squared distance from p to segment ab, in the projected degree space
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx), ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    // ========== DECODE ==========
+
+    public static Track decode(byte[] data) {
+        int[] position = {0};
+        if (data.length == 0 || data[position[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported trace version");
+        }
+
+        // Untrusted length: every point takes at least one byte per varint, so the rest must hold it
+        long count = readVarint(data, position);
+        if (count < 0 || count > (data.length - position[0]) / 3) {
+            throw new IllegalArgumentException("Bad trace point count " + count);
+        }
+        Track track = new Track((int) Math.max(count, 1));
+        long time = 0, lat = 0, lng = 0;
+        for (int i = 0; i < count; i++) {
+            time += readVarint(data, position);
+            lat += unzigzag(readVarint(data, position));
+            lng += unzigzag(readVarint(data, position));
+            track.add(time * 1000, lat / SCALE, lng / SCALE);
+        }
+        return track;
+    }
+
+    // ========== VARINTS ==========
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= data.length || shift > 63) {
+                throw new IllegalArgumentException("Truncated trace");
+            }
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
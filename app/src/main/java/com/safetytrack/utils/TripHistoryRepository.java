@@ -0,0 +1,270 @@
+//TripHistoryRepository.java
+package com.safetytrack.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.safetytrack.models.Trip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The user's trips, newest first, read from Firestore one page at a time with startAfter cursors.
+ *
+ * Pages already read are kept for the life of the process, so reopening the history screen shows
+ * them without any reads; only trips started since the newest cached one are fetched (endBefore
+ * the first cached document), plus a re-read of cached trips that were still running when read,
+ * so they pick up their end time, distance and status. Reads therefore grow with pages viewed
+ * and running trips, not with total history.
+ *
+ * Needs the composite index trips(userId ASC, startTime DESC).
+ */
+public class TripHistoryRepository {
+    private static final String TAG = "TripHistoryRepository";
+    private static final String TRIPS_COLLECTION = "trips";
+    public static final int PAGE_SIZE = 20;
+
+    public interface Callback {
+        // trips is the full cached list; newCount of them arrived with this call
+        void onTrips(List<Trip> trips, int newCount, boolean endReached);
+        void onError(String error);
+    }
+
+    private static TripHistoryRepository instance;
+
+    private final FirebaseFirestore db;
+    private final SessionManager sessionManager;
+
+    // Guarded by this; touched on the main thread in practice (Firestore callbacks land there)
+    private final List<Trip> trips = new ArrayList<>();
+    private DocumentSnapshot firstDocument;
+    private DocumentSnapshot lastDocument;
+    private String cachedUserId;
+    private boolean endReached = false;
+    private boolean loading = false;
+
+    private TripHistoryRepository(Context context) {
+        this.db = FirebaseFirestore.getInstance();
+        this.sessionManager = SessionManager.getInstance(context.getApplicationContext());
+    }
+
+    public static synchronized TripHistoryRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TripHistoryRepository(context);
+        }
+        return instance;
+    }
+
+    // ========== CACHE ==========
+
+    public synchronized List<Trip> getCachedTrips() {
+        checkUser();
+        return Collections.unmodifiableList(new ArrayList<>(trips));
+    }
+
+    public synchronized boolean isEndReached() {
+        return endReached;
+    }
+
+    public synchronized boolean isLoading() {
+        return loading;
+    }
+
+    public synchronized void clear() {
+        trips.clear();
+        firstDocument = null;
+        lastDocument = null;
+        cachedUserId = null;
+        endReached = false;
+    }
+
+    private void checkUser() {
+        String userId = sessionManager.getUserId();
+        if (!userId.equals(cachedUserId)) {
+            clear();
+            cachedUserId = userId;
+        }
+    }
+
+    // ========== QUERIES ==========
+
+    private Query baseQuery() {
+        return db.collection(TRIPS_COLLECTION)
+                .whereEqualTo("userId", cachedUserId)
+                .orderBy("startTime", Query.Direction.DESCENDING);
+    }
+
+    public synchronized void loadNextPage(Callback callback) {
+        checkUser();
+        if (cachedUserId.isEmpty()) {
+            callback.onError("User not logged in");
+            return;
+        }
+        if (loading || endReached) {
+            return;
+        }
+
+        loading = true;
+        Query query = baseQuery().limit(PAGE_SIZE);
+        if (lastDocument != null) {
+            query = query.startAfter(lastDocument);
+        }
+
+        String userId = cachedUserId;
+        query.get()
+                .addOnSuccessListener(snapshot -> onPage(userId, snapshot, callback))
+                .addOnFailureListener(e -> onFailure(e, callback));
+    }
+
+    // Fetches only trips newer than the newest cached one and re-reads running ones; falls back to the first page when empty
+    public synchronized void refreshHead(Callback callback) {
+        checkUser();
+        if (firstDocument == null) {
+            // Nothing cached yet, or the user had no trips: an earlier empty page must not block this one
+            endReached = false;
+            loadNextPage(callback);
+            return;
+        }
+        if (loading) {
+            return;
+        }
+
+        loading = true;
+        String userId = cachedUserId;
+        baseQuery().endBefore(firstDocument).limit(PAGE_SIZE).get()
+                .addOnSuccessListener(snapshot -> onHead(userId, snapshot, callback))
+                .addOnFailureListener(e -> onFailure(e, callback));
+    }
+
+    private synchronized void onPage(String userId, QuerySnapshot snapshot, Callback callback) {
+        loading = false;
+        if (!userId.equals(cachedUserId)) {
+            return; // user changed while the page was in flight
+        }
+
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        for (DocumentSnapshot document : documents) {
+            trips.add(toTrip(document));
+        }
+        if (!documents.isEmpty()) {
+            if (firstDocument == null) {
+                firstDocument = documents.get(0);
+            }
+            lastDocument = documents.get(documents.size() - 1);
+        }
+        endReached = documents.size() < PAGE_SIZE;
+
+        Log.d(TAG, "📄 Page of " + documents.size() + " trips (" + trips.size() + " cached)");
+        callback.onTrips(getCachedTrips(), documents.size(), endReached);
+    }
+
+    private synchronized void onHead(String userId, QuerySnapshot snapshot, Callback callback) {
+        loading = false;
+        if (!userId.equals(cachedUserId)) {
+            return;
+        }
+
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        List<Trip> newer = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            newer.add(toTrip(document));
+        }
+        if (documents.size() == PAGE_SIZE) {
+            // A full page of new trips may not reach the cached ones; start the cache over from it
+            trips.clear();
+            trips.addAll(newer);
+            firstDocument = documents.get(0);
+            lastDocument = documents.get(documents.size() - 1);
+            endReached = false;
+            Log.d(TAG, "🔄 A page or more of new trips since last visit; cache restarted");
+            callback.onTrips(getCachedTrips(), documents.size(), endReached);
+            return;
+        }
+        if (!documents.isEmpty()) {
+            trips.addAll(0, newer);
+            firstDocument = documents.get(0);
+        }
+
+        Log.d(TAG, "🔄 " + documents.size() + " new trips since last visit");
+        refreshRunningTrips(userId, documents.size(), callback);
+    }
+
+    // Trips cached while active; the ones just fetched by the head query are fresh already
+    private void refreshRunningTrips(String userId, int newCount, Callback callback) {
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>();
+        for (int i = newCount; i < trips.size(); i++) {
+            Trip trip = trips.get(i);
+            if ("active".equals(trip.getStatus()) && trip.getEndTime() == 0 && trip.getId() != null) {
+                reads.add(db.collection(TRIPS_COLLECTION).document(trip.getId()).get());
+            }
+        }
+        if (reads.isEmpty()) {
+            callback.onTrips(getCachedTrips(), newCount, endReached);
+            return;
+        }
+
+        loading = true;
+        Tasks.whenAllComplete(reads)
+                .addOnCompleteListener(done -> onRunningTrips(userId, reads, newCount, callback));
+    }
+
+    private synchronized void onRunningTrips(String userId, List<Task<DocumentSnapshot>> reads,
+                                             int newCount, Callback callback) {
+        loading = false;
+        if (!userId.equals(cachedUserId)) {
+            return;
+        }
+
+        int updated = 0;
+        for (Task<DocumentSnapshot> read : reads) {
+            DocumentSnapshot document = read.isSuccessful() ? read.getResult() : null;
+            if (document == null || !document.exists()) continue;
+            for (int i = 0; i < trips.size(); i++) {
+                if (document.getId().equals(trips.get(i).getId())) {
+                    trips.set(i, toTrip(document));
+                    updated++;
+                    break;
+                }
+            }
+        }
+
+        Log.d(TAG, "🔄 Re-read " + reads.size() + " running trips (" + updated + " updated)");
+        callback.onTrips(getCachedTrips(), newCount, endReached);
+    }
+
+    private synchronized void onFailure(Exception e, Callback callback) {
+        loading = false;
+        Log.e(TAG, "❌ Failed to load trips: " + e.getMessage());
+        callback.onError("Failed to load trips: " + e.getMessage());
+    }
+
+    private static Trip toTrip(DocumentSnapshot document) {
+        Trip trip = new Trip(document.getString("userId"));
+        trip.setId(document.getId());
+        trip.setStartTime(longOrZero(document.getLong("startTime")));
+        trip.setEndTime(longOrZero(document.getLong("endTime")));
+
+        String status = document.getString("status");
+        if (status != null) trip.setStatus(status);
+
+        Double startLat = document.getDouble("startLat");
+        Double startLng = document.getDouble("startLng");
+        Double distance = document.getDouble("distance");
+        if (startLat != null) trip.setStartLat(startLat);
+        if (startLng != null) trip.setStartLng(startLng);
+        if (distance != null) trip.setDistance(distance.floatValue());
+        return trip;
+    }
+
+    private static long longOrZero(Long value) {
+        return value != null ? value : 0;
+    }
+}
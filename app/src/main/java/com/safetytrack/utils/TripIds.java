@@ -0,0 +1,87 @@
+//TripIds.java
+package com.safetytrack.utils;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Client-side trip ids in ULID form: 26 Crockford base32 characters, a 48-bit millisecond
+ * timestamp followed by 80 random bits.
+ *
+ * Ids sort by creation time as plain strings, so they work directly as Firestore document ids
+ * and cursors. Ids issued in the same millisecond increment the random part, so they stay
+ * ordered and unique within the process.
+ */
+public final class TripIds {
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 26;
+    private static final int TIME_LENGTH = 10;
+
+    private static final TripIds DEFAULT = new TripIds(new SecureRandom());
+
+    private final Random random;
+    private long lastTime = -1;
+    private long randomHigh; // upper 16 of the 80 random bits
+    private long randomLow;  // lower 64
+
+    TripIds(Random random) {
+        this.random = random;
+    }
+
+    public static String next() {
+        return DEFAULT.generate(System.currentTimeMillis());
+    }
+
+    synchronized String generate(long timeMs) {
+        if (timeMs <= lastTime) {
+            // Same (or earlier, if the clock stepped back) millisecond: stay monotonic
+            timeMs = lastTime;
+            randomLow++;
+            if (randomLow == 0) {
+                randomHigh = (randomHigh + 1) & 0xFFFF;
+            }
+        } else {
+            lastTime = timeMs;
+            randomHigh = random.nextInt(1 << 16);
+            randomLow = random.nextLong();
+        }
+
+        char[] out = new char[LENGTH];
+        long time = timeMs;
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (time & 31)];
+            time >>>= 5;
+        }
+
+        // 80 random bits as 16 characters: randomHigh (16 bits) then randomLow (64 bits)
+        long low = randomLow;
+        long high = randomHigh;
+        for (int i = LENGTH - 1; i >= TIME_LENGTH; i--) {
+            out[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | ((high & 31) << 59);
+            high >>>= 5;
+        }
+        return new String(out);
+    }
+
+    // Creation time encoded in an id, or -1 if it isn't one of ours (e.g. legacy trip_<millis>)
+    public static long timestampOf(String id) {
+        if (id == null || id.length() != LENGTH) {
+            return -1;
+        }
+        long time = 0;
+        for (int i = 0; i < TIME_LENGTH; i++) {
+            int value = indexOf(id.charAt(i));
+            if (value < 0) return -1;
+            time = (time << 5) | value;
+        }
+        return time;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.safetytrack.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic 20 ms PCM frames (16 kHz) through the energy gate: steady road noise,
+ * speech-level bursts on top of it, and short clicks.
+ */
+public class EnergyGateTest {
+    private static final int FRAME = 320;
+
+    private EnergyGate gate;
+    private Random random;
+    private final short[] frame = new short[FRAME];
+
+    @Before
+    public void setUp() {
+        gate = new EnergyGate();
+        random = new Random(3);
+    }
+
+    // Gaussian noise at roughly the given RMS amplitude (full scale 32768)
+    private boolean feed(double rms, int frames) {
+        boolean opened = false;
+        for (int f = 0; f < frames; f++) {
+            for (int i = 0; i < FRAME; i++) {
+                frame[i] = (short) Math.max(-32768, Math.min(32767, random.nextGaussian() * rms));
+            }
+            opened |= gate.onFrame(frame, FRAME);
+        }
+        return opened;
+    }
+
+    @Test
+    public void levelDb_matchesFullScaleReference() {
+        short[] square = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) square[i] = (short) (i % 2 == 0 ? 16384 : -16384);
+        assertEquals(-6.02, EnergyGate.levelDb(square, FRAME), 0.01);
+        assertEquals(EnergyGate.SILENCE_DB, EnergyGate.levelDb(new short[FRAME], FRAME), 0.0);
+    }
+
+    @Test
+    public void rampingNoise_neverOpens_evenWhenLoud() {
+        assertFalse(feed(300, 500));    // quiet cabin, ~-41 dBFS
+        for (int step = 1; step <= 100; step++) {
+            assertFalse(feed(300 * Math.pow(10, step / 100.0), 10));  // speeding up over 20 s
+        }
+        assertFalse(feed(3000, 500));   // engine and wind, ~-21 dBFS
+        assertTrue(gate.getNoiseFloorDb() > -25);
+    }
+
+    @Test
+    public void noiseStep_isAbsorbed_afterAFewOpens() {
+        assertFalse(feed(300, 250));
+        int opens = 0;
+        for (int i = 0; i < 500; i++) {
+            if (feed(3000, 1)) opens++;
+        }
+        assertTrue("opens=" + opens, opens > 0 && opens < 100);
+        assertFalse(feed(3000, 250));
+    }
+
+    @Test
+    public void speechOverNoise_opens() {
+        assertFalse(feed(300, 250));
+        assertTrue(feed(4000, 10));     // ~23 dB over the floor
+    }
+
+    @Test
+    public void shortClick_doesNotOpen() {
+        assertFalse(feed(300, 250));
+        assertFalse(feed(8000, EnergyGate.OPEN_FRAMES - 1));
+        assertFalse(feed(300, 50));
+    }
+
+    @Test
+    public void nearSilence_staysClosed() {
+        assertFalse(feed(1, 250));
+        assertFalse(feed(60, 10));      // 30+ dB over a near-silent floor, but under MIN_OPEN_DB
+    }
+}
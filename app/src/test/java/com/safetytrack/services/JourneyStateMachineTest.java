@@ -0,0 +1,102 @@
+package com.safetytrack.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays synthetic speed traces (one sample every 30 s, like JourneyDetector) through the
+ * journey state machine.
+ */
+public class JourneyStateMachineTest {
+    private static final long SAMPLE_INTERVAL_MS = 30000;
+
+    private final List<String> events = new ArrayList<>();
+    private JourneyStateMachine machine;
+    private long clock;
+
+    @Before
+    public void setUp() {
+        events.clear();
+        clock = 0;
+        machine = new JourneyStateMachine(new JourneyStateMachine.Listener() {
+            @Override
+            public void onJourneyStarted(long timestampMs) {
+                events.add("start@" + timestampMs);
+            }
+
+            @Override
+            public void onJourneyEnded(long timestampMs) {
+                events.add("end@" + timestampMs);
+            }
+        });
+    }
+
+    private void replay(float... speedsKph) {
+        for (float speed : speedsKph) {
+            machine.onSpeedSample(speed, clock);
+            clock += SAMPLE_INTERVAL_MS;
+        }
+    }
+
+    @Test
+    public void fullRide_startsOnceAndEndsOnce() {
+        replay(0, 0, 25, 30, 40, 45, 50, 40, 30);
+        assertEquals(JourneyStateMachine.State.ACTIVE, machine.getState());
+
+        // Parked: eleven samples below the stop speed covers the five-minute window
+        replay(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertEquals(JourneyStateMachine.State.ENDED, machine.getState());
+        assertEquals(List.of("start@120000", "end@570000"), events);
+    }
+
+    @Test
+    public void singleSpeedSpike_doesNotStartJourney() {
+        replay(0, 35, 0, 0, 40, 2, 0);
+        assertEquals(JourneyStateMachine.State.IDLE, machine.getState());
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void stopAndGoTraffic_neverEndsJourney() {
+        replay(30, 30, 30);
+        // Long crawl: repeatedly dipping under the stop speed, then recovering
+        for (int i = 0; i < 40; i++) {
+            replay(3, 3, 3, 20);
+        }
+        assertEquals(JourneyStateMachine.State.ACTIVE, machine.getState());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void speedBetweenThresholds_keepsStopping() {
+        replay(30, 30, 30, 4);
+        assertEquals(JourneyStateMachine.State.STOPPING, machine.getState());
+        // 8 km/h is above the stop speed but below the start speed: no flapping back to ACTIVE
+        replay(8, 8);
+        assertEquals(JourneyStateMachine.State.STOPPING, machine.getState());
+    }
+
+    @Test
+    public void tickEndsJourneyWithoutNewFixes() {
+        replay(30, 30, 30, 0);
+        long stoppedAt = clock - SAMPLE_INTERVAL_MS;
+        machine.onTick(stoppedAt + JourneyStateMachine.STOP_CONFIRM_MS - 1);
+        assertEquals(JourneyStateMachine.State.STOPPING, machine.getState());
+        machine.onTick(stoppedAt + JourneyStateMachine.STOP_CONFIRM_MS);
+        assertEquals(JourneyStateMachine.State.ENDED, machine.getState());
+    }
+
+    @Test
+    public void endedMachineDetectsNextJourney() {
+        replay(30, 30, 30, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertEquals(JourneyStateMachine.State.ENDED, machine.getState());
+        replay(30, 30, 30);
+        assertEquals(JourneyStateMachine.State.ACTIVE, machine.getState());
+        assertEquals(3, events.size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.safetytrack.services;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PcmRingBufferTest {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME = SAMPLE_RATE / 50;
+
+    @Test
+    public void keepsTheMostRecentSamples_oldestFirst() {
+        PcmRingBuffer buffer = new PcmRingBuffer(5);
+        buffer.write(new short[] {1, 2, 3}, 3);
+        short[] out = new short[5];
+        assertEquals(3, buffer.copyTo(out));
+        assertArrayEquals(new short[] {1, 2, 3, 0, 0}, out);
+
+        buffer.write(new short[] {4, 5, 6, 7, 99}, 4);
+        assertEquals(5, buffer.size());
+        assertEquals(5, buffer.copyTo(out));
+        assertArrayEquals(new short[] {3, 4, 5, 6, 7}, out);
+
+        buffer.write(new short[] {10, 11, 12, 13, 14, 15, 16}, 7);
+        buffer.copyTo(out);
+        assertArrayEquals(new short[] {12, 13, 14, 15, 16}, out);
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void toPcm16le_isLittleEndian() {
+        PcmRingBuffer buffer = new PcmRingBuffer(4);
+        buffer.write(new short[] {0x1234, -2}, 2);
+        assertArrayEquals(new byte[] {0x34, 0x12, (byte) 0xFE, (byte) 0xFF}, buffer.toPcm16le());
+    }
+
+    /**
+     * End-to-end capture of a short shouted keyword over road noise: 350 ms of speech whose first
+     * 80 ms is a softer onset. Compares how much of it reaches the recognizer when the gate streams
+     * its pre-roll into it against handing the microphone over, which takes several hundred ms.
+     */
+    @Test
+    public void shortKeyword_isFullyCaptured_onlyWithPreRoll() {
+        Random random = new Random(11);
+        EnergyGate gate = new EnergyGate();
+        PcmRingBuffer preRoll = new PcmRingBuffer(VoiceSosService.PRE_ROLL_SAMPLES);
+
+        int keywordStart = 3 * SAMPLE_RATE;
+        int keywordEnd = keywordStart + SAMPLE_RATE * 350 / 1000;
+        int onsetEnd = keywordStart + SAMPLE_RATE * 80 / 1000;
+        short[] frame = new short[FRAME];
+        long gateOpenSample = -1;
+
+        for (int position = 0; position < keywordEnd + SAMPLE_RATE && gateOpenSample < 0; position += FRAME) {
+            for (int i = 0; i < FRAME; i++) {
+                int sample = position + i;
+                double rms = 300; // ~-41 dBFS cabin noise
+                if (sample >= keywordStart && sample < keywordEnd) {
+                    rms = sample < onsetEnd ? 2000 : 6000;
+                }
+                frame[i] = (short) Math.max(-32768, Math.min(32767, random.nextGaussian() * rms));
+            }
+            preRoll.write(frame, FRAME);
+            if (gate.onFrame(frame, FRAME)) {
+                gateOpenSample = position + FRAME;
+            }
+        }
+
+        assertTrue("gate never opened", gateOpenSample > 0);
+        long gateLatencyMs = (gateOpenSample - keywordStart) * 1000 / SAMPLE_RATE;
+        assertTrue("gate latency " + gateLatencyMs + " ms", gateLatencyMs <= 150);
+
+        // Streaming: the recognizer hears the pre-roll, then live audio from the gate-open sample on
+        long streamedFrom = gateOpenSample - preRoll.size();
+        double streamedCoverage = coverage(streamedFrom, keywordStart, keywordEnd);
+
+        // Handover: the recognizer hears nothing until it has bound and opened the microphone
+        long handoverMs = 300;
+        double handoverCoverage = coverage(gateOpenSample + handoverMs * SAMPLE_RATE / 1000, keywordStart, keywordEnd);
+
+        assertEquals(1.0, streamedCoverage, 0.0);
+        assertTrue("handover coverage " + handoverCoverage, handoverCoverage < 0.25);
+    }
+
+    private static double coverage(long heardFrom, long keywordStart, long keywordEnd) {
+        long heard = keywordEnd - Math.max(heardFrom, keywordStart);
+        return Math.max(0, heard) / (double) (keywordEnd - keywordStart);
+    }
+}
@@ -0,0 +1,32 @@
+package com.safetytrack.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RestartBackoffTest {
+
+    @Test
+    public void doublesUpToTheCap() {
+        RestartBackoff backoff = new RestartBackoff();
+        assertEquals(500, backoff.nextDelayMs());
+        assertEquals(1000, backoff.nextDelayMs());
+        assertEquals(2000, backoff.nextDelayMs());
+        assertEquals(4000, backoff.nextDelayMs());
+        assertEquals(RestartBackoff.MAX_MS, backoff.nextDelayMs());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(RestartBackoff.MAX_MS, backoff.nextDelayMs());
+        }
+        assertEquals(105, backoff.getFailures());
+    }
+
+    @Test
+    public void resetStartsOver() {
+        RestartBackoff backoff = new RestartBackoff();
+        backoff.nextDelayMs();
+        backoff.nextDelayMs();
+        backoff.reset();
+        assertEquals(0, backoff.getFailures());
+        assertEquals(RestartBackoff.BASE_MS, backoff.nextDelayMs());
+    }
+}
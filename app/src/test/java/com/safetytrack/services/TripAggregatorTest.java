@@ -0,0 +1,111 @@
+package com.safetytrack.services;
+
+import com.safetytrack.utils.GeoMath;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic fixes (one per second, like a high-accuracy LocationEngine subscription)
+ * through the trip aggregator.
+ */
+public class TripAggregatorTest {
+    private static final double START_LAT = 12.9716;
+    private static final double START_LNG = 77.5946;
+    private static final double METERS_PER_DEGREE_LAT = GeoMath.METERS_PER_DEGREE;
+
+    private TripAggregator aggregator;
+    private long clock;
+    private double lat;
+
+    @Before
+    public void setUp() {
+        aggregator = new TripAggregator();
+        clock = 0;
+        lat = START_LAT;
+    }
+
+    // Drives due north at a constant speed
+    private void drive(double kph, int seconds) {
+        double metersPerSecond = kph / 3.6;
+        for (int i = 0; i < seconds; i++) {
+            lat += metersPerSecond / METERS_PER_DEGREE_LAT;
+            clock += 1000;
+            aggregator.onFix(lat, START_LNG, 8f, clock);
+        }
+    }
+
+    // Parked, with GPS wandering a few meters around the spot
+    private void park(int seconds, Random random) {
+        for (int i = 0; i < seconds; i++) {
+            double noiseLat = (random.nextDouble() - 0.5) * 8 / METERS_PER_DEGREE_LAT;
+            double noiseLng = (random.nextDouble() - 0.5) * 8 / METERS_PER_DEGREE_LAT;
+            clock += 1000;
+            aggregator.onFix(lat + noiseLat, START_LNG + noiseLng, 12f, clock);
+        }
+    }
+
+    @Test
+    public void steadyDrive_measuresDistanceAndSpeed() {
+        aggregator.onFix(lat, START_LNG, 8f, clock);
+        drive(60, 600);
+
+        TripAggregator.Summary summary = aggregator.snapshot();
+        assertEquals(10000, summary.distanceMeters, 100);
+        assertEquals(60, summary.maxSpeedKph, 1);
+        assertEquals(60, summary.avgSpeedKph, 1);
+        assertEquals(600000, summary.durationMs);
+        assertEquals(0, summary.stopCount);
+    }
+
+    @Test
+    public void parkedJitter_addsNoDistanceAndCountsOneStop() {
+        Random random = new Random(11);
+        aggregator.onFix(lat, START_LNG, 8f, clock);
+        drive(40, 120);
+        double driven = aggregator.snapshot().distanceMeters;
+
+        park(300, random);
+        TripAggregator.Summary parked = aggregator.snapshot();
+        assertEquals(driven, parked.distanceMeters, 1);
+        assertEquals(1, parked.stopCount);
+        assertEquals(120000, parked.movingMs, 2000);
+
+        drive(40, 120);
+        park(30, random); // too short to be a stop
+        drive(40, 60);
+        TripAggregator.Summary summary = aggregator.snapshot();
+        assertEquals(1, summary.stopCount);
+        assertEquals(40, summary.avgSpeedKph, 2);
+    }
+
+    @Test
+    public void jumpsAndInaccurateFixes_areRejected() {
+        aggregator.onFix(lat, START_LNG, 8f, clock);
+        drive(50, 60);
+        double before = aggregator.snapshot().distanceMeters;
+
+        clock += 1000;
+        aggregator.onFix(lat + 0.05, START_LNG, 8f, clock);   // 5.5 km in one second
+        clock += 1000;
+        aggregator.onFix(lat + 0.001, START_LNG, 200f, clock); // cell-tower quality fix
+        aggregator.onFix(lat, START_LNG, 8f, clock - 5000);    // out of order
+
+        TripAggregator.Summary summary = aggregator.snapshot();
+        assertEquals(before, summary.distanceMeters, 0.001);
+        assertEquals(3, summary.rejectedFixes);
+        assertTrue(summary.maxSpeedKph < 51);
+    }
+
+    @Test
+    public void haversine_matchesKnownDistance() {
+        // Bengaluru to Chennai, about 290 km great-circle
+        double meters = GeoMath.haversine(12.9716, 77.5946, 13.0827, 80.2707);
+        assertEquals(290000, meters, 3000);
+    }
+}
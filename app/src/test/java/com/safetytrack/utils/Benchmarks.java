@@ -0,0 +1,18 @@
+package com.safetytrack.utils;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Wall-clock benchmarks print timings instead of asserting on them and are skipped in the normal
+ * test run; run them with ./gradlew test -Pbenchmarks.
+ */
+final class Benchmarks {
+    static final String PROPERTY = "safetytrack.benchmarks";
+
+    private Benchmarks() {
+    }
+
+    static void assumeEnabled() {
+        assumeTrue("benchmarks run only with -Pbenchmarks", Boolean.getBoolean(PROPERTY));
+    }
+}
@@ -0,0 +1,64 @@
+package com.safetytrack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Segments and encode time of compact journey updates against the emoji text messages the app
+ * sends today.
+ */
+public class CompactSmsEncoderBenchmark {
+    private static final int ITERATIONS = 100000;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void segmentsAndEncodeTimePerMessageType() {
+        double lat = 12.9716, lng = 77.5946;
+        String name = "Ashwitha";
+
+        report("SOS (text)", () -> "🚨🚨🚨 EMERGENCY ALERT 🚨🚨🚨\n" + name + " is in DANGER!\n"
+                + "📍 Location: " + lat + ", " + lng + "\n"
+                + "Google Maps: maps.google.com/?q=" + lat + "," + lng + "\n"
+                + "PLEASE RESPOND IMMEDIATELY!\nSent via SafetyTrack");
+        report("SAFE_ARRIVAL (text)", () -> "🛡️🛡️🛡️ SAFE ARRIVAL 🛡️🛡️🛡️\n" + name + " has arrived safely.\n"
+                + "📍 Final Location: " + lat + ", " + lng + "\n"
+                + "Google Maps: maps.google.com/?q=" + lat + "," + lng + "\n"
+                + "🕒 Time: 02:32 PM, 17 Oct\n🔋 Battery: 78.0%\nSent via SafetyTrack");
+        report("JOURNEY_UPDATE (text)", () -> "📍 Journey Update\nUser is travelling.\nLive Location:\n"
+                + "https://maps.google.com/?q=" + lat + "," + lng + "\n"
+                + "🕒 Time: 02:32 PM, 17 Oct\n🔋 Battery: 78.0%\nSent via SafetyTrack");
+
+        CompactSmsEncoder encoder = new CompactSmsEncoder();
+        long[] step = {0};
+        report("JOURNEY_UPDATE (compact)", () -> {
+            step[0]++;
+            return encoder.encode(lat + step[0] * 1e-5, lng, step[0] * 120000, 78);
+        });
+    }
+
+    private interface MessageSource {
+        String next();
+    }
+
+    private static void report(String type, MessageSource source) {
+        String message = source.next();
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            source.next(); // warm-up
+        }
+
+        long start = System.nanoTime();
+        int totalLength = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            totalLength += source.next().length();
+        }
+        long nanosPerMessage = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println(String.format("%-26s %3d chars  %s  %d segment(s)  %5d ns/encode  (%d chars total)",
+                type, message.length(), CompactSmsEncoder.isGsm7(message) ? "GSM-7" : "UCS-2",
+                CompactSmsEncoder.segmentCount(message), nanosPerMessage, totalLength));
+    }
+}
@@ -0,0 +1,68 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that compact journey updates stay in one GSM-7 segment.
+ */
+public class CompactSmsEncoderTest {
+    @Test
+    public void geohash_matchesReferenceValue() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void firstUpdate_hasFixedPrecisionCoordinates() {
+        CompactSmsEncoder encoder = new CompactSmsEncoder();
+        String message = encoder.encode(12.9716, 77.5946, 0, 78);
+
+        assertTrue(message.contains("maps.google.com/?q=12.97160,77.59460"));
+        assertTrue(message.contains("d=start"));
+        assertTrue(message.contains("bat=78%"));
+    }
+
+    @Test
+    public void secondUpdate_carriesDeltaInMeters() {
+        CompactSmsEncoder encoder = new CompactSmsEncoder();
+        encoder.encode(12.97160, 77.59460, 0, 78);
+        String message = encoder.encode(12.97260, 77.59460, 120000, 77);
+
+        // 0.001 degrees of latitude is ~111 m north
+        assertTrue(message, message.contains("d=+111,+0m"));
+    }
+
+    @Test
+    public void everyUpdate_fitsOneGsm7Segment() {
+        CompactSmsEncoder encoder = new CompactSmsEncoder();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            String message = encoder.encode(lat, lng, random.nextLong() & Long.MAX_VALUE, random.nextInt(101));
+
+            assertTrue(message, CompactSmsEncoder.isGsm7(message));
+            assertTrue(message, message.length() <= CompactSmsEncoder.GSM7_SEGMENT_LENGTH);
+            assertEquals(1, CompactSmsEncoder.segmentCount(message));
+        }
+    }
+
+    @Test
+    public void emojiMessages_fallBackToUcs2() {
+        assertFalse(CompactSmsEncoder.isGsm7("📍 Journey Update"));
+        assertEquals(2, CompactSmsEncoder.segmentCount(repeat('a', 161)));
+        assertEquals(2, CompactSmsEncoder.segmentCount("📍" + repeat('a', 69)));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) sb.append(c);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.safetytrack.utils;
+
+import com.safetytrack.models.Contact;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.safetytrack.utils.ContactSearchIndexTest.BOOK_SIZE;
+import static com.safetytrack.utils.ContactSearchIndexTest.FIRST;
+import static com.safetytrack.utils.ContactSearchIndexTest.LAST;
+import static com.safetytrack.utils.ContactSearchIndexTest.TYPED;
+
+public class ContactSearchIndexBenchmark {
+    private final int[] results = new int[500];
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void queriesOn10kContacts() {
+        List<Contact> book = new ArrayList<>(BOOK_SIZE);
+        Random random = new Random(3);
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + i;
+            String phone = "+91" + (6000000000L + (long) (random.nextDouble() * 3999999999L));
+            book.add(new Contact(name, phone));
+        }
+
+        long buildStart = System.nanoTime();
+        ContactSearchIndex index = ContactSearchIndex.build(book);
+        long buildMs = (System.nanoTime() - buildStart) / 1000000;
+
+        for (int i = 0; i < 200; i++) {
+            for (String query : TYPED) index.search(query, results); // warm-up
+        }
+
+        long worstNs = 0;
+        long totalNs = 0;
+        int rounds = 50;
+        for (int round = 0; round < rounds; round++) {
+            for (String query : TYPED) {
+                long start = System.nanoTime();
+                index.search(query, results);
+                long elapsed = System.nanoTime() - start;
+                worstNs = Math.max(worstNs, elapsed);
+                totalNs += elapsed;
+            }
+        }
+        int queries = rounds * TYPED.length;
+
+        System.out.println(String.format("10k contacts: build %d ms, avg %d us/query, worst %d us over %d queries",
+                buildMs, totalNs / queries / 1000, worstNs / 1000, queries));
+    }
+}
@@ -0,0 +1,97 @@
+package com.safetytrack.utils;
+
+import com.safetytrack.models.Contact;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContactSearchIndexTest {
+    static final int BOOK_SIZE = 10000;
+    static final String[] FIRST = {"Ashwitha", "Priya", "Rahul", "Karthik", "Divya", "Arjun",
+            "Meena", "Suresh", "Lakshmi", "Vikram", "Anitha", "Ganesh", "Kavya", "Ravi", "Deepa"};
+    static final String[] LAST = {"Kumar", "Reddy", "Sharma", "Iyer", "Nair", "Rao",
+            "Patel", "Menon", "Das", "Pillai"};
+    // Keystroke-by-keystroke queries, the way the picker issues them
+    static final String[] TYPED = {"a", "as", "ash", "ashw", "ashwi", "ashwit", "ashwita", "k", "ku", "kum", "kuma",
+            "9", "98", "987", "9876", "98765", "redy", "lakshmi r", "vikram pil", "4321"};
+
+    private final int[] results = new int[500];
+
+    private static ContactSearchIndex index(String... namesAndNumbers) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < namesAndNumbers.length; i += 2) {
+            contacts.add(new Contact(namesAndNumbers[i], namesAndNumbers[i + 1]));
+        }
+        return ContactSearchIndex.build(contacts);
+    }
+
+    private String first(ContactSearchIndex index, String query) {
+        int count = index.search(query, results);
+        return count == 0 ? null : index.get(results[0]).getName();
+    }
+
+    @Test
+    public void prefix_matchesAnyNameWord() {
+        ContactSearchIndex index = index("Ashwitha Kumar", "+919876543210", "Priya Reddy", "+919812345678");
+        assertEquals("Ashwitha Kumar", first(index, "ash"));
+        assertEquals("Ashwitha Kumar", first(index, "KUM"));
+        assertEquals("Priya Reddy", first(index, "priya re"));
+    }
+
+    @Test
+    public void digits_matchPrefixAndSubstring() {
+        ContactSearchIndex index = index("Ashwitha Kumar", "+919876543210", "Priya Reddy", "+919812345678");
+        assertEquals("Ashwitha Kumar", first(index, "98765"));
+        assertEquals("Priya Reddy", first(index, "+91 98123"));
+        assertEquals("Priya Reddy", first(index, "2345"));
+        assertEquals(1, index.search("2345", results));
+    }
+
+    @Test
+    public void trigrams_tolerateTypos() {
+        ContactSearchIndex index = index("Ashwitha Kumar", "+919876543210", "Priya Reddy", "+919812345678");
+        assertEquals("Ashwitha Kumar", first(index, "ashwita"));
+        assertEquals("Priya Reddy", first(index, "redy"));
+    }
+
+    @Test
+    public void emptyQuery_returnsNothing() {
+        ContactSearchIndex index = index("Ashwitha Kumar", "+919876543210");
+        assertEquals(0, index.search("", results));
+        assertEquals(0, index.search("  -", results));
+    }
+
+    @Test
+    public void search_doesNotAllocate() {
+        List<Contact> book = new ArrayList<>(BOOK_SIZE);
+        Random random = new Random(3);
+        for (int i = 0; i < BOOK_SIZE; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + i;
+            String phone = "+91" + (6000000000L + (long) (random.nextDouble() * 3999999999L));
+            book.add(new Contact(name, phone));
+        }
+        ContactSearchIndex index = ContactSearchIndex.build(book);
+
+        for (int i = 0; i < 200; i++) {
+            for (String query : TYPED) index.search(query, results); // warm-up
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int round = 0; round < 50; round++) {
+            for (String query : TYPED) index.search(query, results);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue("search allocated " + allocated + " bytes", allocated < 4096);
+    }
+}
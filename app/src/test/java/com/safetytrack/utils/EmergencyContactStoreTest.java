@@ -0,0 +1,95 @@
+package com.safetytrack.utils;
+
+import com.safetytrack.models.Contact;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EmergencyContactStoreTest {
+    private final PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer("91", 16);
+
+    private static Contact contact(String id, String name, String phone) {
+        Contact contact = new Contact(name, phone);
+        contact.setId(id);
+        return contact;
+    }
+
+    private EmergencyContactStore.Contacts roundTrip(List<Contact> contacts) {
+        return EmergencyContactStore.Contacts.decode(EmergencyContactStore.encode(contacts, normalizer));
+    }
+
+    @Test
+    public void namesWithSeparators_surviveRoundTrip() {
+        EmergencyContactStore.Contacts stored = roundTrip(Arrays.asList(
+                contact("12", "Kumar, Ashwitha", "9876543210"),
+                contact(null, "Amma\nHome", "+91 98123 45678"),
+                contact("7", "प्रिया", "")));
+
+        assertEquals(3, stored.size());
+        assertEquals("Kumar, Ashwitha", stored.getName(0));
+        assertEquals("Amma\nHome", stored.getName(1));
+        assertEquals("प्रिया", stored.get(2).getName());
+        assertEquals("12", stored.get(0).getId());
+        assertNull(stored.get(1).getId());
+        assertTrue(stored.get(0).isSelected());
+    }
+
+    @Test
+    public void normalizedPhones_areStoredAndSkipEmptyNumbers() {
+        EmergencyContactStore.Contacts stored = roundTrip(Arrays.asList(
+                contact("1", "A", "9876543210"),
+                contact("2", "B", "+91 98123 45678"),
+                contact("3", "C", "")));
+
+        assertEquals("+919876543210", stored.getNormalizedPhone(0));
+        assertEquals("+91 98123 45678", stored.getPhoneNumber(1));
+        assertEquals(Arrays.asList("+919876543210", "+919812345678"), stored.normalizedPhones());
+    }
+
+    @Test
+    public void view_isReadOnly() {
+        EmergencyContactStore.Contacts stored = roundTrip(new ArrayList<>(Arrays.asList(contact("1", "A", "9876543210"))));
+        try {
+            stored.add(contact("2", "B", "9812345678"));
+            fail("view accepted an add");
+        } catch (UnsupportedOperationException expected) {
+            // read-only
+        }
+        stored.get(0).setName("Changed");
+        assertEquals("A", stored.get(0).getName());
+    }
+
+    @Test
+    public void emptyList_roundTrips() {
+        assertEquals(0, roundTrip(new ArrayList<>()).size());
+    }
+
+    @Test
+    public void corruptOrForeignData_isRejected() {
+        byte[] data = EmergencyContactStore.encode(Arrays.asList(contact("1", "A", "9876543210")), normalizer);
+
+        byte[] wrongVersion = data.clone();
+        wrongVersion[7] = 99;
+        assertRejected(wrongVersion);
+
+        assertRejected(Arrays.copyOf(data, data.length - 3));
+        assertRejected("1\n9876543210,".getBytes());
+    }
+
+    private static void assertRejected(byte[] data) {
+        try {
+            EmergencyContactStore.Contacts.decode(data);
+            fail("decoded bad data");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.safetytrack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.safetytrack.utils.KeywordMatcherTest.KEYWORDS;
+import static com.safetytrack.utils.KeywordMatcherTest.MATCHER;
+
+public class KeywordMatcherBenchmark {
+    // The ten keywords of the old contains() chain
+    private static final String[] ENGLISH = {"help", "danger", "risk", "emergency", "sos", "save me",
+            "accident", "crash", "attack", "need assistance"};
+    private static final int ITERATIONS = 200000;
+
+    // What initVoiceSOS used to run on the top hypothesis
+    private static boolean containsChain(String text) {
+        String spokenText = text.toLowerCase();
+        return spokenText.contains("help") ||
+                spokenText.contains("danger") ||
+                spokenText.contains("risk") ||
+                spokenText.contains("emergency") ||
+                spokenText.contains("sos") ||
+                spokenText.contains("save me") ||
+                spokenText.contains("accident") ||
+                spokenText.contains("crash") ||
+                spokenText.contains("attack") ||
+                spokenText.contains("need assistance");
+    }
+
+    // The same chain extended to the full keyword list
+    private static boolean containsAll(String text) {
+        String spokenText = text.toLowerCase();
+        for (String keyword : KEYWORDS) {
+            if (spokenText.contains(keyword)) return true;
+        }
+        return false;
+    }
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void matcherVsContainsChain() {
+        Random random = new Random(11);
+        String[] utterances = new String[1024];
+        for (int i = 0; i < utterances.length; i++) {
+            // Mostly ordinary speech, as the recognizer sees it on a ride
+            utterances[i] = KeywordMatcherTest.utterance(random, i % 10 == 0);
+        }
+
+        KeywordMatcher english = KeywordMatcher.compile(ENGLISH);
+        int sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) { // warm-up
+            String text = utterances[i & 1023];
+            if (containsChain(text)) sink++;
+            if (containsAll(text)) sink++;
+            if (english.matches(text)) sink++;
+            if (MATCHER.matches(text)) sink++;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (containsChain(utterances[i & 1023])) sink++;
+        }
+        long chainNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (containsAll(utterances[i & 1023])) sink++;
+        }
+        long chainAllNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (english.matches(utterances[i & 1023])) sink++;
+        }
+        long englishNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (MATCHER.matches(utterances[i & 1023])) sink++;
+        }
+        long allNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println(String.format("per hypothesis: 10 keywords contains %d ns / automaton %d ns, "
+                        + "%d keywords contains %d ns / automaton %d ns (%d hits)",
+                chainNanos, englishNanos, MATCHER.keywordCount(), chainAllNanos, allNanos, sink));
+    }
+}
@@ -0,0 +1,102 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeywordMatcherTest {
+    // The ten keywords of the old contains() chain, plus the multilingual entries of R.array.sos_keywords
+    static final String[] KEYWORDS = {"help", "danger", "risk", "emergency", "sos", "save me",
+            "accident", "crash", "attack", "need assistance", "bachao", "madad", "बचाओ", "मदद", "खतरा",
+            "ಸಹಾಯ", "ಕಾಪಾಡಿ", "உதவி", "காப்பாற்று", "సహాయం", "కాపాడండి", "ayuda", "socorro", "peligro"};
+    private static final String[] WORDS = {"take", "the", "next", "left", "turn", "traffic", "is", "heavy",
+            "near", "silk", "board", "call", "me", "when", "you", "reach", "home", "okay", "slow", "down",
+            "asterisk", "helpful", "shelp", "dangerous", "ride", "safe"};
+
+    static final KeywordMatcher MATCHER = KeywordMatcher.compile(KEYWORDS);
+
+    // Reference: every keyword occurrence that stands as a whole word
+    private static boolean naiveMatches(String text, String[] keywords) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String keyword : keywords) {
+            for (int from = lower.indexOf(keyword); from >= 0; from = lower.indexOf(keyword, from + 1)) {
+                int end = from + keyword.length();
+                if ((from == 0 || !KeywordMatcher.isWordChar(lower.charAt(from - 1)))
+                        && (end == lower.length() || !KeywordMatcher.isWordChar(lower.charAt(end)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static String utterance(Random random, boolean withKeyword) {
+        StringBuilder sb = new StringBuilder();
+        int words = 3 + random.nextInt(8);
+        int keywordAt = withKeyword ? random.nextInt(words) : -1;
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(i == keywordAt ? KEYWORDS[random.nextInt(KEYWORDS.length)] : WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void finds_keywordsAnywhereAndInAnyCase() {
+        assertEquals("help", MATCHER.findFirst("please HELP me"));
+        assertEquals("save me", MATCHER.findFirst("someone Save Me now"));
+        assertEquals("need assistance", MATCHER.findFirst("i need assistance"));
+        assertEquals("sos", MATCHER.findFirst("sos"));
+        assertEquals("crash", MATCHER.findFirst("there was a crash."));
+        assertNull(MATCHER.findFirst("call me when you reach home"));
+        assertNull(MATCHER.findFirst(""));
+        assertNull(MATCHER.findFirst((String) null));
+    }
+
+    @Test
+    public void finds_multilingualKeywords() {
+        assertEquals("बचाओ", MATCHER.findFirst("कोई बचाओ"));
+        assertEquals("ಸಹಾಯ", MATCHER.findFirst("ದಯವಿಟ್ಟು ಸಹಾಯ ಮಾಡಿ"));
+        assertEquals("உதவி", MATCHER.findFirst("உதவி செய்யுங்கள்"));
+        assertEquals("socorro", MATCHER.findFirst("¡Socorro!"));
+        assertEquals("bachao", MATCHER.findFirst("koi bachao"));
+    }
+
+    @Test
+    public void keywordMustBeAWholeWord() {
+        assertFalse(MATCHER.matches("press the asterisk key"));
+        assertFalse(MATCHER.matches("chaos mode"));
+        assertFalse(MATCHER.matches("that was helpful"));
+        assertFalse(MATCHER.matches("he is helping out"));
+        assertFalse(MATCHER.matches("a dangerous turn"));
+        assertTrue(MATCHER.matches("helpful people, help!"));
+        assertTrue(MATCHER.matches("crash-landed"));
+        assertFalse(MATCHER.matches("உதவிக்கு")); // keyword followed by more of the word
+    }
+
+    @Test
+    public void overlappingKeywords_allReported() {
+        KeywordMatcher matcher = KeywordMatcher.compile("he", "she", "his", "hers");
+        assertEquals("she", matcher.findFirst("ushers she"));
+        assertEquals("hers", matcher.findFirst("ushers hers"));
+        assertEquals("he", matcher.findFirst("xshe he"));
+        assertEquals("me", KeywordMatcher.compile("save me", "me").findFirst("unsave me")); // via the output link
+        assertEquals(4, matcher.keywordCount());
+        assertEquals(1, KeywordMatcher.compile("Help", "help ", " HELP", "", null).keywordCount());
+    }
+
+    @Test
+    public void randomUtterances_agreeWithNaiveSearch() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            String text = utterance(random, random.nextBoolean());
+            assertEquals(text, naiveMatches(text, KEYWORDS), MATCHER.matches(text));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.safetytrack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.safetytrack.utils.PhoneNumberNormalizerTest.ADDRESS_BOOK_SIZE;
+
+public class PhoneNumberNormalizerBenchmark {
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void againstRegexChain() {
+        List<String> book = PhoneNumberNormalizerTest.addressBook(ADDRESS_BOOK_SIZE);
+        int rounds = 20;
+
+        for (int i = 0; i < 3; i++) { // warm-up
+            runLegacy(book);
+            runScanner(book, new PhoneNumberNormalizer("91", 8));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) runLegacy(book);
+        long legacyNs = (System.nanoTime() - start) / rounds;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) runScanner(book, new PhoneNumberNormalizer("91", 8));
+        long scannerNs = (System.nanoTime() - start) / rounds;
+
+        PhoneNumberNormalizer cached = new PhoneNumberNormalizer("91", ADDRESS_BOOK_SIZE);
+        runScanner(book, cached);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) runScanner(book, cached);
+        long cachedNs = (System.nanoTime() - start) / rounds;
+
+        System.out.println(String.format("%d numbers: regex chain %d us, scanner %d us, warm LRU %d us",
+                ADDRESS_BOOK_SIZE, legacyNs / 1000, scannerNs / 1000, cachedNs / 1000));
+    }
+
+    private static int runLegacy(List<String> book) {
+        int total = 0;
+        for (String raw : book) total += PhoneNumberNormalizerTest.legacyNormalize(raw).length();
+        return total;
+    }
+
+    private static int runScanner(List<String> book, PhoneNumberNormalizer normalizer) {
+        int total = 0;
+        for (String raw : book) total += normalizer.normalize(raw).length();
+        return total;
+    }
+}
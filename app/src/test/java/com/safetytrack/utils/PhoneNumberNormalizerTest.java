@@ -0,0 +1,101 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PhoneNumberNormalizerTest {
+    static final int ADDRESS_BOOK_SIZE = 5000;
+
+    private final PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer("91", 256);
+
+    @Test
+    public void nationalNumber_getsDefaultCountryCode() {
+        assertEquals("+919876543210", normalizer.normalize("98765 43210"));
+        assertEquals("+919876543210", normalizer.normalize("(987) 654-3210"));
+    }
+
+    @Test
+    public void countryCodeWithoutPlus_getsPlus() {
+        assertEquals("+919876543210", normalizer.normalize("91 98765 43210"));
+    }
+
+    @Test
+    public void internationalPrefixes_areKept() {
+        assertEquals("+919876543210", normalizer.normalize("+91 98765-43210"));
+        assertEquals("+14155550123", normalizer.normalize("+1 (415) 555-0123"));
+        assertEquals("+447911123456", normalizer.normalize("0044 7911 123456"));
+    }
+
+    @Test
+    public void trunkZero_isReplacedByCountryCode() {
+        assertEquals("+919876543210", normalizer.normalize("098765 43210"));
+    }
+
+    @Test
+    public void countryCode_isConfigurable() {
+        PhoneNumberNormalizer us = new PhoneNumberNormalizer("1", 16);
+        assertEquals("+14155550123", us.normalize("415-555-0123"));
+        assertEquals("+14155550123", us.normalize("1 415 555 0123"));
+
+        us.setCountryCode("44");
+        assertEquals("+444155550123", us.normalize("415-555-0123"));
+    }
+
+    @Test
+    public void noDigits_returnsNull() {
+        assertNull(normalizer.normalize(null));
+        assertNull(normalizer.normalize("unknown"));
+    }
+
+    @Test
+    public void repeatedInput_returnsCachedInstance() {
+        String first = normalizer.normalize("98765 43210");
+        assertSame(first, normalizer.normalize("98765 43210"));
+    }
+
+    @Test
+    public void matchesLegacyChain_onLegacyShapes() {
+        for (String raw : addressBook(ADDRESS_BOOK_SIZE)) {
+            if (raw.startsWith("+") || raw.startsWith("0")) {
+                continue; // the legacy chain dropped '+' and trunk prefixes; covered above
+            }
+            assertEquals(raw, legacyNormalize(raw), normalizer.normalize(raw));
+        }
+    }
+
+    // The chain previously copy-pasted in DashboardActivity and LocationService
+    static String legacyNormalize(String phone) {
+        String cleanPhone = phone.replaceAll("[^0-9]", "");
+        if (cleanPhone.length() == 10) {
+            cleanPhone = "+91" + cleanPhone;
+        } else if (cleanPhone.length() == 12 && cleanPhone.startsWith("91")) {
+            cleanPhone = "+" + cleanPhone;
+        } else if (cleanPhone.length() > 12) {
+            cleanPhone = "+" + cleanPhone.replaceAll("^\\+?", "");
+        }
+        return cleanPhone.replace("++", "+").replace("+91+91", "+91");
+    }
+
+    static List<String> addressBook(int size) {
+        Random random = new Random(7);
+        List<String> book = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String national = String.valueOf(6000000000L + (long) (random.nextDouble() * 3999999999L));
+            switch (i % 5) {
+                case 0: book.add(national); break;
+                case 1: book.add(national.substring(0, 5) + " " + national.substring(5)); break;
+                case 2: book.add("+91 " + national); break;
+                case 3: book.add("91-" + national); break;
+                default: book.add("0" + national); break;
+            }
+        }
+        return book;
+    }
+}
@@ -0,0 +1,47 @@
+package com.safetytrack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.safetytrack.utils.SpatialIndexTest.HISTORY_FIXES;
+
+public class SpatialIndexBenchmark {
+    private static final int QUERIES = 2000;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void radiusQueryVsFullScan() {
+        SpatialIndex index = new SpatialIndex(null);
+        SpatialIndexTest.History history = SpatialIndexTest.history(index, 4);
+        Random random = new Random(5);
+        double[] lats = new double[QUERIES];
+        double[] lngs = new double[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            lats[q] = 12.7 + random.nextDouble() * 0.55;
+            lngs[q] = 77.3 + random.nextDouble() * 0.55;
+        }
+
+        long start = System.nanoTime();
+        int indexed = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            indexed += index.queryRadius(lats[q], lngs[q], 500, 0, Long.MAX_VALUE, null);
+        }
+        long indexNanos = (System.nanoTime() - start) / QUERIES;
+
+        start = System.nanoTime();
+        int scanned = 0;
+        for (int q = 0; q < QUERIES / 20; q++) {
+            scanned += SpatialIndexTest.bruteRadius(history, lats[q], lngs[q], 500, 0, Long.MAX_VALUE);
+        }
+        long scanNanos = (System.nanoTime() - start) / (QUERIES / 20);
+
+        System.out.println(String.format("500 m radius over %d fixes: index %d us/query, full scan %d us/query (%d, %d hits)",
+                HISTORY_FIXES, indexNanos / 1000, scanNanos / 1000, indexed, scanned));
+    }
+}
@@ -0,0 +1,128 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialIndexTest {
+    static final int HISTORY_FIXES = 200000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    static final class History {
+        final double[] lats = new double[HISTORY_FIXES];
+        final double[] lngs = new double[HISTORY_FIXES];
+        final long[] times = new long[HISTORY_FIXES];
+        final String[] trips = new String[HISTORY_FIXES];
+    }
+
+    // Fixes scattered over a ~60 km square around Bengaluru, one trip per 100 fixes, over 90 days
+    static History history(SpatialIndex index, long seed) {
+        Random random = new Random(seed);
+        History history = new History();
+        for (int i = 0; i < HISTORY_FIXES; i++) {
+            history.lats[i] = 12.7 + random.nextDouble() * 0.55;
+            history.lngs[i] = 77.3 + random.nextDouble() * 0.55;
+            history.times[i] = random.nextInt(90) * DAY_MS + random.nextInt((int) DAY_MS);
+            history.trips[i] = "trip" + (i / 100);
+            index.add(history.trips[i], history.times[i], history.lats[i], history.lngs[i]);
+        }
+        return history;
+    }
+
+    static int bruteRadius(History history, double lat, double lng, double radius, long from, long to) {
+        int count = 0;
+        for (int i = 0; i < HISTORY_FIXES; i++) {
+            if (history.times[i] >= from && history.times[i] <= to
+                    && GeoMath.haversine(lat, lng, history.lats[i], history.lngs[i]) <= radius) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void geohashCell_matchesStringHashAndBounds() {
+        String hash = Geohash.encode(12.9716, 77.5946, 6);
+        double[] bounds = Geohash.decodeBounds(hash);
+        double[] size = Geohash.cellSize(6);
+
+        assertEquals(size[0], bounds[2] - bounds[0], 1e-12);
+        assertEquals(size[1], bounds[3] - bounds[1], 1e-12);
+        assertTrue(bounds[0] <= 12.9716 && 12.9716 < bounds[2]);
+        assertTrue(bounds[1] <= 77.5946 && 77.5946 < bounds[3]);
+
+        double[] center = Geohash.decode(hash);
+        assertEquals(hash, Geohash.encode(center[0], center[1], 6));
+        assertEquals(Geohash.cell(12.9716, 77.5946, 6), Geohash.cell(center[0], center[1], 6));
+
+        double[] known = Geohash.decodeBounds("u4pruydqqvj");
+        assertTrue(known[0] <= 57.64911 && 57.64911 <= known[2]);
+        assertTrue(known[1] <= 10.40744 && 10.40744 <= known[3]);
+    }
+
+    @Test
+    public void radiusQuery_matchesBruteForce() {
+        SpatialIndex index = new SpatialIndex(null);
+        History history = history(index, 1);
+        Random random = new Random(2);
+        for (int q = 0; q < 200; q++) {
+            double lat = 12.7 + random.nextDouble() * 0.55;
+            double lng = 77.3 + random.nextDouble() * 0.55;
+            double radius = 50 + random.nextDouble() * 3000;
+            long from = random.nextInt(60) * DAY_MS;
+            long to = from + 7 * DAY_MS;
+            assertEquals(bruteRadius(history, lat, lng, radius, from, to),
+                    index.queryRadius(lat, lng, radius, from, to, null));
+        }
+    }
+
+    @Test
+    public void boxQuery_matchesBruteForce() {
+        SpatialIndex index = new SpatialIndex(null);
+        History history = history(index, 3);
+        double minLat = 12.91, minLng = 77.55, maxLat = 12.97, maxLng = 77.63;
+
+        int expected = 0;
+        for (int i = 0; i < HISTORY_FIXES; i++) {
+            if (history.lats[i] >= minLat && history.lats[i] <= maxLat
+                    && history.lngs[i] >= minLng && history.lngs[i] <= maxLng) {
+                expected++;
+            }
+        }
+        assertEquals(expected, index.queryBox(minLat, minLng, maxLat, maxLng, 0, Long.MAX_VALUE, null));
+        // A box bigger than the whole history falls back to walking the buckets
+        assertEquals(HISTORY_FIXES, index.queryBox(-90, -180, 90, 180, 0, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    public void tripsNear_findsTripsThatPassedBy() {
+        SpatialIndex index = new SpatialIndex(null);
+        index.add("home", 1000, 12.97160, 77.59460);
+        index.add("near", 2000, 12.97500, 77.59460);   // ~380 m north
+        index.add("far", 3000, 12.99000, 77.59460);    // ~2 km north
+        index.add("old", 10, 12.97160, 77.59470);      // right there, but before the window
+        index.add(null, 2500, 12.97160, 77.59460);     // outside any trip
+
+        Set<String> trips = index.tripsNear(12.9716, 77.5946, 500, 100, Long.MAX_VALUE);
+        assertEquals(2, trips.size());
+        assertTrue(trips.contains("home"));
+        assertTrue(trips.contains("near"));
+    }
+
+    @Test
+    public void poles_andCellEdges_countedOnce() {
+        SpatialIndex index = new SpatialIndex(null);
+        index.add("a", 1, 90, 180);
+        index.add("b", 1, -90, -180);
+        double[] size = Geohash.cellSize(SpatialIndex.CELL_PRECISION);
+        index.add("c", 1, 12 + size[0] * 3, 77 + size[1] * 5); // exactly on a cell corner
+
+        assertEquals(1, index.queryBox(89.99, 179.99, 90, 180, 0, 10, null));
+        assertEquals(1, index.queryBox(-90, -180, -89.99, -179.99, 0, 10, null));
+        assertEquals(1, index.queryRadius(12 + size[0] * 3, 77 + size[1] * 5, 1, 0, 10, null));
+    }
+}
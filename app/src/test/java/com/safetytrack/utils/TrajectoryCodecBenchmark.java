@@ -0,0 +1,47 @@
+package com.safetytrack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.safetytrack.utils.TrajectoryCodecTest.RIDE_FIXES;
+
+public class TrajectoryCodecBenchmark {
+    private static final int ITERATIONS = 50;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+    }
+
+    @Test
+    public void sizeAndThroughput() {
+        TrajectoryCodec.Track ride = TrajectoryCodecTest.ride(RIDE_FIXES, 5);
+        byte[] encoded = TrajectoryCodec.encode(ride, 5);
+        System.out.println(String.format("%d fixes: %d bytes raw -> %d bytes encoded (%.1f bytes/fix, %d kept)",
+                RIDE_FIXES, RIDE_FIXES * (8 + 8 + 8), encoded.length, encoded.length / (double) RIDE_FIXES,
+                TrajectoryCodec.decode(encoded).size()));
+
+        for (int i = 0; i < ITERATIONS / 5; i++) {
+            TrajectoryCodec.decode(TrajectoryCodec.encode(ride, 5)); // warm-up
+        }
+
+        long start = System.nanoTime();
+        int bytes = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes += TrajectoryCodec.encode(ride, 5).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int points = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            points += TrajectoryCodec.decode(encoded).size();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("encode %6.1f fixes/us (%.2f ms per 3 h ride, %d bytes), decode %6.1f points/us",
+                RIDE_FIXES * (double) ITERATIONS / (encodeNanos / 1000.0),
+                encodeNanos / 1e6 / ITERATIONS, bytes / ITERATIONS,
+                points / (decodeNanos / 1000.0)));
+    }
+}
@@ -0,0 +1,146 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TrajectoryCodecTest {
+    private static final double METERS_PER_DEGREE = GeoMath.METERS_PER_DEGREE;
+    static final int RIDE_FIXES = 3 * 60 * 60; // 3 hours at 1 Hz
+
+    // A winding ride around Bengaluru: ~11 m/s with slow turns, stops and 3 m GPS noise
+    static TrajectoryCodec.Track ride(int fixes, long seed) {
+        Random random = new Random(seed);
+        TrajectoryCodec.Track track = new TrajectoryCodec.Track();
+        double lat = 12.9716, lng = 77.5946, heading = 0;
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < fixes; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.2;
+            double speed = (i / 600) % 5 == 4 ? 0 : 11;
+            lat += speed * Math.cos(heading) / METERS_PER_DEGREE;
+            lng += speed * Math.sin(heading) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+            double noiseLat = random.nextGaussian() * 3 / METERS_PER_DEGREE;
+            double noiseLng = random.nextGaussian() * 3 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+            track.add(time, lat + noiseLat, lng + noiseLng);
+            time += 1000;
+        }
+        return track;
+    }
+
+    private static double distanceToSegmentMeters(double lat, double lng, double aLat, double aLng,
+                                                  double bLat, double bLng) {
+        double cos = Math.cos(Math.toRadians(lat));
+        double px = lng * cos * METERS_PER_DEGREE, py = lat * METERS_PER_DEGREE;
+        double ax = aLng * cos * METERS_PER_DEGREE, ay = aLat * METERS_PER_DEGREE;
+        double bx = bLng * cos * METERS_PER_DEGREE, by = bLat * METERS_PER_DEGREE;
+        double dx = bx - ax, dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSq));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    // Worst distance from any original fix to the decoded polyline
+    private static double maxErrorMeters(TrajectoryCodec.Track original, TrajectoryCodec.Track decoded) {
+        double worst = 0;
+        int segment = 0;
+        for (int i = 0; i < original.size(); i++) {
+            long second = Math.round(original.getTime(i) / 1000.0) * 1000;
+            // Fixes stay in time order, so the covering segment only moves forward
+            while (segment < decoded.size() - 2 && decoded.getTime(segment + 1) < second) {
+                segment++;
+            }
+            double best = Double.MAX_VALUE;
+            for (int s = Math.max(0, segment - 1); s < Math.min(decoded.size() - 1, segment + 2); s++) {
+                best = Math.min(best, distanceToSegmentMeters(original.getLat(i), original.getLng(i),
+                        decoded.getLat(s), decoded.getLng(s), decoded.getLat(s + 1), decoded.getLng(s + 1)));
+            }
+            worst = Math.max(worst, best);
+        }
+        return worst;
+    }
+
+    @Test
+    public void roundTrip_everyFixWithinToleranceOfDecodedTrace() {
+        TrajectoryCodec.Track ride = ride(RIDE_FIXES, 1);
+        for (double tolerance : new double[]{2, 5, 15}) {
+            TrajectoryCodec.Track decoded = TrajectoryCodec.decode(TrajectoryCodec.encode(ride, tolerance));
+            double error = maxErrorMeters(ride, decoded);
+            assertTrue("tolerance " + tolerance + " m, error " + error + " m",
+                    error <= tolerance + TrajectoryCodec.QUANTIZATION_ERROR_M + 0.05);
+        }
+    }
+
+    @Test
+    public void zeroTolerance_keepsEveryFixToQuantization() {
+        TrajectoryCodec.Track ride = ride(500, 2);
+        TrajectoryCodec.Track decoded = TrajectoryCodec.decode(TrajectoryCodec.encode(ride, 0));
+
+        assertEquals(ride.size(), decoded.size());
+        for (int i = 0; i < ride.size(); i++) {
+            assertEquals(ride.getLat(i), decoded.getLat(i), 0.5 / TrajectoryCodec.SCALE + 1e-12);
+            assertEquals(ride.getLng(i), decoded.getLng(i), 0.5 / TrajectoryCodec.SCALE + 1e-12);
+            assertEquals(ride.getTime(i), decoded.getTime(i), 500);
+        }
+    }
+
+    @Test
+    public void endpointsAndSignsSurvive() {
+        TrajectoryCodec.Track track = new TrajectoryCodec.Track(2);
+        track.add(0, -33.868820, 151.209296);
+        track.add(1000, -33.868900, 151.209100);
+        track.add(2000, 40.712776, -74.005974);
+
+        TrajectoryCodec.Track decoded = TrajectoryCodec.decode(TrajectoryCodec.encode(track, 5));
+        assertEquals(3, decoded.size());
+        assertEquals(40.712776, decoded.getLat(2), 1e-9);
+        assertEquals(-74.005974, decoded.getLng(2), 1e-9);
+
+        assertEquals(0, TrajectoryCodec.decode(TrajectoryCodec.encode(new TrajectoryCodec.Track(), 5)).size());
+    }
+
+    @Test
+    public void threeHourRide_fitsComfortablyInOneDocument() {
+        TrajectoryCodec.Track ride = ride(RIDE_FIXES, 3);
+        byte[] encoded = TrajectoryCodec.encode(ride, 5);
+        int raw = RIDE_FIXES * (8 + 8 + 8);
+
+        assertTrue(encoded.length < raw / 10);
+        assertTrue(encoded.length < 100 * 1024); // Firestore documents cap at 1 MiB
+    }
+
+    @Test
+    public void corruptData_rejected() {
+        byte[] encoded = TrajectoryCodec.encode(ride(100, 4), 5);
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length - 2);
+        try {
+            TrajectoryCodec.decode(truncated);
+            fail("truncated trace decoded");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        encoded[0] = 9;
+        try {
+            TrajectoryCodec.decode(encoded);
+            fail("unknown version decoded");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Version byte, then a count of ~2^62 (and one of -1 as a 10-byte varint) with no points behind it
+        byte[][] hostile = {
+                {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x3F},
+                {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01},
+                {1, (byte) 0x80, (byte) 0x80, 0x04, 0, 0, 0},
+        };
+        for (byte[] data : hostile) {
+            try {
+                TrajectoryCodec.decode(data);
+                fail("hostile point count decoded");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
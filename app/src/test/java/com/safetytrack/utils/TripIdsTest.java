@@ -0,0 +1,62 @@
+package com.safetytrack.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TripIdsTest {
+    private final TripIds ids = new TripIds(new Random(7));
+
+    @Test
+    public void id_hasUlidShapeAndCarriesItsTimestamp() {
+        long now = 1770847527935L;
+        String id = ids.generate(now);
+        assertEquals(26, id.length());
+        assertTrue(id, id.matches("[0-9A-HJKMNP-TV-Z]{26}"));
+        assertEquals(now, TripIds.timestampOf(id));
+    }
+
+    @Test
+    public void ids_sortByCreationTime() {
+        String earlier = ids.generate(1700000000000L);
+        String later = ids.generate(1700000000001L);
+        String muchLater = ids.generate(1800000000000L);
+        assertTrue(earlier.compareTo(later) < 0);
+        assertTrue(later.compareTo(muchLater) < 0);
+    }
+
+    @Test
+    public void sameMillisecond_staysUniqueAndOrdered() {
+        long now = 1900000000000L;
+        List<String> issued = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            issued.add(ids.generate(now));
+        }
+
+        Set<String> unique = new HashSet<>(issued);
+        assertEquals(issued.size(), unique.size());
+        for (int i = 1; i < issued.size(); i++) {
+            assertTrue(issued.get(i - 1).compareTo(issued.get(i)) < 0);
+        }
+    }
+
+    @Test
+    public void clockSteppingBack_keepsOrder() {
+        String first = ids.generate(1700000000500L);
+        String second = ids.generate(1700000000000L);
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    public void legacyIds_haveNoTimestamp() {
+        assertEquals(-1, TripIds.timestampOf("trip_1770847527935"));
+        assertEquals(-1, TripIds.timestampOf(null));
+    }
+}